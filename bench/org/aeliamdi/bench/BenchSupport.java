@@ -0,0 +1,86 @@
+package org.aeliamdi.bench;
+
+import java.awt.BorderLayout;
+import java.lang.reflect.InvocationTargetException;
+
+import javax.swing.JLabel;
+import javax.swing.JMenuBar;
+import javax.swing.SwingUtilities;
+
+import org.aeliamdi.MDIFrame;
+import org.aeliamdi.MDIView;
+
+/**
+ * Helpers shared by the benchmarks. Every Swing call of a benchmark is run
+ * on the event dispatch thread with <code>invokeAndWait()</code>, so the
+ * measured times include one event queue round trip. The benchmarks need a
+ * display; on a build server run them under Xvfb, e.g. 
+ * <code>xvfb-run ant bench</code>.
+ */
+final class BenchSupport {
+	private BenchSupport(){
+	}
+
+	/**
+	 * Runs <code>task</code> on the event dispatch thread and waits for it.
+	 */
+	static void onEdt(Runnable task){
+		if(SwingUtilities.isEventDispatchThread()){
+			task.run();
+			return;
+		}
+		try{
+			SwingUtilities.invokeAndWait(task);
+		}catch(InterruptedException ex){
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(ex);
+		}catch(InvocationTargetException ex){
+			Throwable cause = ex.getCause();
+			if(cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			if(cause instanceof Error)
+				throw (Error)cause;
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * Creates and shows a frame in <code>pane</code> with <code>viewCount</code>
+	 * views. Must be called on the event dispatch thread.
+	 */
+	static MDIFrame createFrame(String pane, int viewCount){
+		MDIFrame frame = new MDIFrame("Benchmark", true);
+		frame.setJMenuBar(new JMenuBar());
+		frame.setSize(1024, 768);
+		frame.setCurrentViewPane(pane);
+		frame.setVisible(true);
+		for(int i=0; i<viewCount; i++){
+			frame.addInternalView(createView(frame, i));
+		}
+		return frame;
+	}
+
+	/**
+	 * Creates a view with a label as content. Must be called on the event
+	 * dispatch thread.
+	 */
+	static MDIView createView(MDIFrame frame, int number){
+		MDIView view = new MDIView(frame, null, "View " + number, null);
+		view.setLayout(new BorderLayout());
+		view.add(new JLabel("Content of view " + number), BorderLayout.CENTER);
+		return view;
+	}
+
+	/**
+	 * Disposes <code>frame</code> on the event dispatch thread.
+	 */
+	static void dispose(final MDIFrame frame){
+		if(frame == null)
+			return;
+		onEdt(new Runnable(){
+			public void run(){
+				frame.dispose();
+			}
+		});
+	}
+}
@@ -0,0 +1,82 @@
+package org.aeliamdi.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.aeliamdi.MDIFrame;
+import org.aeliamdi.MDIView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks of the <code>MDIFrame</code> operations whose cost grows with
+ * the number of views: adding a view and toggling the view pane, in both
+ * panes at 10, 100 and 1000 views.
+ * <p>
+ * To keep the number of views constant, <code>addInternalView</code> adds
+ * a view and closes it again; the cost of the add alone is its score minus
+ * the score of <code>MDIViewCloseBenchmark.closeView</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MDIFrameBenchmark {
+	@Param({"10", "100", "1000"})
+	public int views;
+
+	@Param({"TABS", "DESKTOP"})
+	public String pane;
+
+	private MDIFrame frame;
+
+	private int counter;
+
+	@Setup(Level.Trial)
+	public void createFrame(){
+		BenchSupport.onEdt(new Runnable(){
+			public void run(){
+				frame = BenchSupport.createFrame(MDIFrame.TABS.equalsIgnoreCase(pane) ? MDIFrame.TABS : MDIFrame.DESKTOP, views);
+			}
+		});
+	}
+
+	@TearDown(Level.Trial)
+	public void disposeFrame(){
+		BenchSupport.dispose(frame);
+		frame = null;
+	}
+
+	@Benchmark
+	public void addInternalView(){
+		BenchSupport.onEdt(new Runnable(){
+			public void run(){
+				MDIView view = BenchSupport.createView(frame, counter++);
+				frame.addInternalView(view);
+				view.closeView();
+			}
+		});
+	}
+
+	/**
+	 * Toggles the view pane twice, so that every invocation starts in the
+	 * pane given by the parameter.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(2)
+	public void changeView(){
+		BenchSupport.onEdt(new Runnable(){
+			public void run(){
+				frame.changeView();
+				frame.changeView();
+			}
+		});
+	}
+}
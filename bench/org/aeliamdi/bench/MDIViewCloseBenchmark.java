@@ -0,0 +1,74 @@
+package org.aeliamdi.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.aeliamdi.MDIFrame;
+import org.aeliamdi.MDIView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmark of <code>MDIView.closeView()</code> in both panes at 10, 100
+ * and 1000 views. A fresh view is added before every invocation; the
+ * invocation level setup is acceptable here because closing a view takes
+ * far longer than the setup overhead of JMH.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MDIViewCloseBenchmark {
+	@Param({"10", "100", "1000"})
+	public int views;
+
+	@Param({"TABS", "DESKTOP"})
+	public String pane;
+
+	private MDIFrame frame;
+
+	private int counter;
+
+	/** The view closed by the next invocation. */
+	private MDIView viewToClose;
+
+	@Setup(Level.Trial)
+	public void createFrame(){
+		BenchSupport.onEdt(new Runnable(){
+			public void run(){
+				frame = BenchSupport.createFrame(MDIFrame.TABS.equalsIgnoreCase(pane) ? MDIFrame.TABS : MDIFrame.DESKTOP, views);
+			}
+		});
+	}
+
+	@TearDown(Level.Trial)
+	public void disposeFrame(){
+		BenchSupport.dispose(frame);
+		frame = null;
+	}
+
+	@Setup(Level.Invocation)
+	public void addViewToClose(){
+		BenchSupport.onEdt(new Runnable(){
+			public void run(){
+				viewToClose = BenchSupport.createView(frame, counter++);
+				frame.addInternalView(viewToClose);
+			}
+		});
+	}
+
+	@Benchmark
+	public void closeView(){
+		BenchSupport.onEdt(new Runnable(){
+			public void run(){
+				viewToClose.closeView();
+			}
+		});
+	}
+}
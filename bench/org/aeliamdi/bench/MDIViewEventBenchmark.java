@@ -0,0 +1,77 @@
+package org.aeliamdi.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.aeliamdi.MDIFrame;
+import org.aeliamdi.MDIView;
+import org.aeliamdi.MDIViewAdapter;
+import org.aeliamdi.MDIViewEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark of the fan-out of <code>MDIView.fireMDIViewEvent()</code> with
+ * 0, 1, 10 and 100 listeners. The listeners are <code>MDIViewAdapter</code>s
+ * that only handle <code>MDIVIEW_RESTORED</code>, so <code>fireHandled</code>
+ * measures the delivery and <code>fireUnhandled</code> the cost of an event
+ * nobody listens to.
+ * <p>
+ * The events are fired on the benchmark thread, without an event queue
+ * round trip, because firing them touches no Swing component.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MDIViewEventBenchmark {
+	@Param({"0", "1", "10", "100"})
+	public int listeners;
+
+	private MDIFrame frame;
+
+	private MDIView view;
+
+	private Blackhole blackhole;
+
+	@Setup(Level.Trial)
+	public void createFrame(Blackhole blackhole){
+		this.blackhole = blackhole;
+		BenchSupport.onEdt(new Runnable(){
+			public void run(){
+				frame = BenchSupport.createFrame(MDIFrame.TABS, 1);
+				view = (MDIView)frame.getViews().get(0);
+				for(int i=0; i<listeners; i++){
+					view.addMDIViewListener(new MDIViewAdapter(){
+						public void MDIViewRestored(MDIViewEvent e){
+							MDIViewEventBenchmark.this.blackhole.consume(e);
+						}
+					});
+				}
+			}
+		});
+	}
+
+	@TearDown(Level.Trial)
+	public void disposeFrame(){
+		BenchSupport.dispose(frame);
+		frame = null;
+	}
+
+	@Benchmark
+	public void fireHandled(){
+		view.fireMDIViewEvent(MDIViewEvent.MDIVIEW_RESTORED);
+	}
+
+	@Benchmark
+	public void fireUnhandled(){
+		view.fireMDIViewEvent(MDIViewEvent.MDIVIEW_ICONIFIED);
+	}
+}
@@ -0,0 +1,62 @@
+package org.aeliamdi.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.aeliamdi.MDIFrame;
+import org.aeliamdi.MDIFrameEvent;
+import org.aeliamdi.MDIWindowsMenu;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmark of the rebuild of the window list of a <code>MDIWindowsMenu</code>,
+ * which happens on every <code>MDIFrameEvent</code>, at 10, 100 and 1000 views.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MDIWindowsMenuBenchmark {
+	@Param({"10", "100", "1000"})
+	public int views;
+
+	@Param({"TABS", "DESKTOP"})
+	public String pane;
+
+	private MDIFrame frame;
+
+	private MDIFrameEvent event;
+
+	@Setup(Level.Trial)
+	public void createFrame(){
+		BenchSupport.onEdt(new Runnable(){
+			public void run(){
+				frame = BenchSupport.createFrame(MDIFrame.TABS.equalsIgnoreCase(pane) ? MDIFrame.TABS : MDIFrame.DESKTOP, views);
+				frame.getJMenuBar().add(new MDIWindowsMenu(frame));
+				event = new MDIFrameEvent(frame, null, null);
+			}
+		});
+	}
+
+	@TearDown(Level.Trial)
+	public void disposeFrame(){
+		BenchSupport.dispose(frame);
+		frame = null;
+	}
+
+	@Benchmark
+	public void rebuild(){
+		BenchSupport.onEdt(new Runnable(){
+			public void run(){
+				frame.fireMDIFrameEvent(event);
+			}
+		});
+	}
+}
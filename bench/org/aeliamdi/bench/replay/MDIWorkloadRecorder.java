@@ -0,0 +1,118 @@
+package org.aeliamdi.bench.replay;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.aeliamdi.MDIFrame;
+import org.aeliamdi.MDIFrameEvent;
+import org.aeliamdi.MDIFrameListener;
+import org.aeliamdi.MDIView;
+import org.aeliamdi.MDIViewAdapter;
+import org.aeliamdi.MDIViewEvent;
+
+/**
+ * Records the session of a user on a <code>MDIFrame</code> as a workload
+ * script that <code>MDIWorkloadReplay</code> can replay. Opening, activating
+ * and closing views and toggling the pane are recorded; title changes and
+ * the window arrangements are not visible to listeners and have to be
+ * added to the script by hand.
+ * <pre>
+ * MDIWorkloadRecorder recorder = new MDIWorkloadRecorder(mdiFrame);
+ * ... the user works ...
+ * recorder.write(new FileWriter("session.txt"));
+ * </pre>
+ * The recorder must be created before the first view is added.
+ */
+public class MDIWorkloadRecorder {
+	private final MDIFrame frame;
+
+	/** The views of the frame in the order they were opened. */
+	private final List<MDIView> views = new ArrayList<MDIView>();
+
+	/** The recorded commands. */
+	private final List<String> lines = new ArrayList<String>();
+
+	/** Number of views opened since the last recorded command. */
+	private int pendingOpens;
+
+	private final MDIViewAdapter viewListener = new MDIViewAdapter(){
+		public void MDIViewActivated(MDIViewEvent e){
+			int index = views.indexOf(e.getSource());
+			if(index != -1)
+				add("activate " + index);
+		}
+
+		public void MDIViewClosed(MDIViewEvent e){
+			MDIView view = (MDIView)e.getSource();
+			int index = views.indexOf(view);
+			if(index != -1){
+				add("close " + index);
+				views.remove(index);
+				view.removeMDIViewListener(this);
+			}
+		}
+	};
+
+	/**
+	 * Starts recording the session on <code>frame</code>.
+	 * @param frame the frame to record.
+	 */
+	public MDIWorkloadRecorder(MDIFrame frame){
+		this.frame = frame;
+		frame.addMDIFrameListener(new MDIFrameListener(){
+			public void viewPaneChanged(MDIFrameEvent e){
+				if(e.getNewViewPane() != null){
+					add("pane " + e.getNewViewPane());
+				}else{
+					findOpenedViews();
+				}
+			}
+		});
+	}
+
+	/** Registers with the views that were added since the last event. */
+	private void findOpenedViews(){
+		List current = frame.getViews();
+		for(int i=0; i<current.size(); i++){
+			MDIView view = (MDIView)current.get(i);
+			if(!views.contains(view)){
+				views.add(view);
+				view.addMDIViewListener(viewListener, MDIViewEvent.MDIVIEW_ACTIVIATED_MASK | MDIViewEvent.MDIVIEW_CLOSED_MASK);
+				pendingOpens++;
+			}
+		}
+	}
+
+	private void add(String line){
+		findOpenedViews();
+		flushOpens();
+		// activating the view just opened is part of opening it
+		if(line.startsWith("activate ") && !lines.isEmpty() && lines.get(lines.size() - 1).startsWith("open "))
+			return;
+		lines.add(line);
+	}
+
+	private void flushOpens(){
+		if(pendingOpens > 0){
+			lines.add("open " + pendingOpens);
+			pendingOpens = 0;
+		}
+	}
+
+	/**
+	 * Writes the script recorded so far.
+	 * @param writer the writer to write to, it is flushed but not closed.
+	 */
+	public void write(Writer writer){
+		findOpenedViews();
+		flushOpens();
+		PrintWriter out = new PrintWriter(writer);
+		out.println("# recorded from " + frame.getTitle());
+		for(String line : lines){
+			out.println(line);
+		}
+		out.flush();
+	}
+}
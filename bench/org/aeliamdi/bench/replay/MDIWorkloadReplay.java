@@ -0,0 +1,305 @@
+package org.aeliamdi.bench.replay;
+
+import java.awt.BorderLayout;
+import java.awt.GraphicsEnvironment;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+
+import javax.swing.JLabel;
+import javax.swing.JMenuBar;
+import javax.swing.JMenuItem;
+import javax.swing.SwingUtilities;
+
+import org.aeliamdi.MDIFrame;
+import org.aeliamdi.MDIView;
+import org.aeliamdi.MDIWindowsMenu;
+
+/**
+ * Replays a <code>WorkloadScript</code> against a real <code>MDIFrame</code>
+ * and measures the latency of the event dispatch thread for every step.
+ * <p>
+ * Each action of a step is posted to the event queue, followed by an empty
+ * event. The latency is the time from posting the action until the empty
+ * event has run, so it includes the layout and paint work the action
+ * caused, which is what the user waits for. The frame needs a display, on a
+ * build server use a virtual one, e.g. <code>xvfb-run</code>.
+ * <pre>
+ * java org.aeliamdi.bench.replay.MDIWorkloadReplay -script session.txt
+ *      -report report.properties [-baseline old.properties]
+ *      [-tolerance 0.25] [-minDelta 2000] [-warmup 1]
+ * </pre>
+ * With a baseline the process exits with status 1 if a step regressed, see
+ * <code>WorkloadReport.compare()</code>.
+ */
+public class MDIWorkloadReplay {
+	private static final Runnable NOOP = new Runnable(){
+		public void run(){
+		}
+	};
+
+	private final WorkloadScript script;
+
+	private MDIFrame frame;
+
+	private MDIWindowsMenu windowsMenu;
+
+	/** Numbers the opened views. */
+	private int viewCounter;
+
+	/** The index of the view the next <code>switch</code> activates. */
+	private int switchCursor;
+
+	/** Numbers the renames. */
+	private int renameCounter;
+
+	/**
+	 * Constructs a replay of <code>script</code>.
+	 * @param script the script to replay.
+	 */
+	public MDIWorkloadReplay(WorkloadScript script){
+		this.script = script;
+	}
+
+	/**
+	 * Replays the script on a new frame, which is disposed afterwards.
+	 * @return the measured latencies.
+	 * @throws Exception if a step failed.
+	 */
+	public WorkloadReport run() throws Exception{
+		onEdt(new Runnable(){
+			public void run(){
+				frame = new MDIFrame("Workload replay", true);
+				JMenuBar menuBar = new JMenuBar();
+				windowsMenu = new MDIWindowsMenu(frame);
+				menuBar.add(windowsMenu);
+				frame.setJMenuBar(menuBar);
+				frame.setSize(1280, 800);
+				frame.setVisible(true);
+			}
+		});
+		viewCounter = 0;
+		switchCursor = 0;
+		renameCounter = 0;
+		WorkloadReport report = new WorkloadReport();
+		try{
+			for(WorkloadStep step : script.getSteps()){
+				execute(step, report);
+			}
+		}finally{
+			onEdt(new Runnable(){
+				public void run(){
+					frame.dispose();
+				}
+			});
+		}
+		return report;
+	}
+
+	private void execute(final WorkloadStep step, WorkloadReport report) throws Exception{
+		String command = step.getCommand();
+		if(command.equals("open")){
+			for(int i=step.getCount(1); i>0; i--){
+				measure(step, report, new Runnable(){
+					public void run(){
+						MDIView view = new MDIView(frame, null, "View " + (++viewCounter), null);
+						view.setLayout(new BorderLayout());
+						view.add(new JLabel("Content of " + view.getTitle()), BorderLayout.CENTER);
+						frame.addInternalView(view);
+					}
+				});
+			}
+		}else if(command.equals("switch")){
+			for(int i=step.getCount(1); i>0 && viewCount() > 0; i--){
+				measure(step, report, new Runnable(){
+					public void run(){
+						frame.setActiveView(view(switchCursor++));
+					}
+				});
+			}
+		}else if(command.equals("activate")){
+			final int index = step.getCount(0);
+			if(viewCount() > 0){
+				measure(step, report, new Runnable(){
+					public void run(){
+						frame.setActiveView(view(index));
+					}
+				});
+			}
+		}else if(command.equals("toggle")){
+			measure(step, report, new Runnable(){
+				public void run(){
+					frame.changeView();
+				}
+			});
+		}else if(command.equals("pane")){
+			final String pane = MDIFrame.DESKTOP.equalsIgnoreCase(step.getArgument()) ? MDIFrame.DESKTOP : MDIFrame.TABS;
+			measure(step, report, new Runnable(){
+				public void run(){
+					if(!frame.getCurrentViewPane().equals(pane))
+						frame.changeView();
+				}
+			});
+		}else if(command.equals("tile") || command.equals("cascade")){
+			final JMenuItem item = menuItem(command.equals("tile") ? "Tile" : "Cascade");
+			measure(step, report, new Runnable(){
+				public void run(){
+					item.doClick(0);
+				}
+			});
+		}else if(command.equals("rename")){
+			final int count = step.getCount(Integer.MAX_VALUE);
+			measure(step, report, new Runnable(){
+				public void run(){
+					renameCounter++;
+					List views = frame.getViews();
+					for(int i=0; i<count && i<views.size(); i++){
+						MDIView view = (MDIView)views.get(i);
+						view.setTitle("View " + (i + 1) + " (" + renameCounter + ")");
+					}
+				}
+			});
+		}else if(command.equals("close")){
+			final int index = step.getCount(0);
+			if(viewCount() > 0){
+				measure(step, report, new Runnable(){
+					public void run(){
+						view(index).closeView();
+					}
+				});
+			}
+		}else if(command.equals("closeall")){
+			while(viewCount() > 0){
+				measure(step, report, new Runnable(){
+					public void run(){
+						view(viewCount() - 1).closeView();
+					}
+				});
+			}
+		}
+	}
+
+	private int viewCount(){
+		return frame.getViews().size();
+	}
+
+	/** Gives the view at <code>index</code> modulo the number of views. */
+	private MDIView view(int index){
+		List views = frame.getViews();
+		return (MDIView)views.get(index % views.size());
+	}
+
+	private JMenuItem menuItem(String text){
+		for(int i=0; i<windowsMenu.getItemCount(); i++){
+			JMenuItem item = windowsMenu.getItem(i);
+			if(item != null && text.equals(item.getText()))
+				return item;
+		}
+		throw new IllegalStateException("The windows menu has no item " + text);
+	}
+
+	/**
+	 * Runs <code>action</code> on the event dispatch thread and records the
+	 * time until the events it caused have been processed.
+	 */
+	private void measure(WorkloadStep step, WorkloadReport report, Runnable action) throws Exception{
+		long start = System.nanoTime();
+		onEdt(action);
+		onEdt(NOOP);
+		report.record(step, System.nanoTime() - start);
+	}
+
+	private static void onEdt(Runnable task) throws Exception{
+		try{
+			SwingUtilities.invokeAndWait(task);
+		}catch(InvocationTargetException ex){
+			Throwable cause = ex.getCause();
+			if(cause instanceof Exception)
+				throw (Exception)cause;
+			throw (Error)cause;
+		}
+	}
+
+	public static void main(String[] args) throws Exception{
+		String scriptFile = null;
+		String reportFile = null;
+		String baselineFile = null;
+		double tolerance = 0.25;
+		long minDelta = 2000;
+		int warmup = 1;
+		for(int i=0; i+1<args.length; i+=2){
+			if(args[i].equals("-script"))
+				scriptFile = args[i + 1];
+			else if(args[i].equals("-report"))
+				reportFile = args[i + 1];
+			else if(args[i].equals("-baseline"))
+				baselineFile = args[i + 1].length() == 0 ? null : args[i + 1];
+			else if(args[i].equals("-tolerance"))
+				tolerance = Double.parseDouble(args[i + 1]);
+			else if(args[i].equals("-minDelta"))
+				minDelta = Long.parseLong(args[i + 1]);
+			else if(args[i].equals("-warmup"))
+				warmup = Integer.parseInt(args[i + 1]);
+			else
+				throw new IllegalArgumentException("Unknown option " + args[i]);
+		}
+		if(scriptFile == null){
+			System.err.println("Usage: MDIWorkloadReplay -script file [-report file] [-baseline file]"
+				+ " [-tolerance 0.25] [-minDelta micros] [-warmup runs]");
+			System.exit(2);
+		}
+		if(GraphicsEnvironment.isHeadless()){
+			System.err.println("The replay needs a display, run it under a virtual display such as xvfb-run.");
+			System.exit(2);
+		}
+
+		WorkloadScript script;
+		Reader reader = new FileReader(scriptFile);
+		try{
+			script = WorkloadScript.parse(reader);
+		}finally{
+			reader.close();
+		}
+
+		MDIWorkloadReplay replay = new MDIWorkloadReplay(script);
+		for(int i=0; i<warmup; i++){
+			replay.run();
+		}
+		WorkloadReport report = replay.run();
+		PrintWriter out = new PrintWriter(System.out);
+		report.print(out);
+
+		if(reportFile != null){
+			Writer writer = new FileWriter(reportFile);
+			try{
+				report.write(writer);
+			}finally{
+				writer.close();
+			}
+		}
+
+		if(baselineFile != null){
+			List<String> regressions;
+			Reader baseline = new FileReader(baselineFile);
+			try{
+				regressions = report.compare(baseline, tolerance, minDelta);
+			}finally{
+				baseline.close();
+			}
+			if(!regressions.isEmpty()){
+				System.err.println("EDT latency regressed against " + baselineFile + ":");
+				for(String regression : regressions){
+					System.err.println("  " + regression);
+				}
+				System.exit(1);
+			}
+			out.println("No regression against " + baselineFile);
+			out.flush();
+		}
+		System.exit(0);
+	}
+}
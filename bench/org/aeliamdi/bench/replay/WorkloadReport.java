@@ -0,0 +1,144 @@
+package org.aeliamdi.bench.replay;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The EDT latencies measured by a replay, per step. A report is written as
+ * a properties file with the keys <code>&lt;step&gt;.count</code>,
+ * <code>.p50</code>, <code>.p90</code>, <code>.p99</code> and
+ * <code>.max</code>, the latencies in microseconds, so that the report of
+ * one run can be used as the baseline of the next.
+ */
+public class WorkloadReport {
+	/** The latencies per step key, in order of first execution. */
+	private final Map<String, Samples> samples = new LinkedHashMap<String, Samples>();
+
+	/** The description of each step key. */
+	private final Map<String, String> descriptions = new LinkedHashMap<String, String>();
+
+	/**
+	 * Records one latency of <code>step</code>.
+	 * @param step the step.
+	 * @param nanos the latency in nanoseconds.
+	 */
+	public void record(WorkloadStep step, long nanos){
+		Samples s = samples.get(step.getKey());
+		if(s == null){
+			s = new Samples();
+			samples.put(step.getKey(), s);
+			descriptions.put(step.getKey(), step.toString());
+		}
+		s.add(nanos / 1000);
+	}
+
+	/**
+	 * Gives the measured values of the report, keyed like the properties file.
+	 * @return the values in microseconds, and the counts.
+	 */
+	public Map<String, Long> getValues(){
+		Map<String, Long> values = new LinkedHashMap<String, Long>();
+		for(Map.Entry<String, Samples> entry : samples.entrySet()){
+			Samples s = entry.getValue();
+			String key = entry.getKey();
+			values.put(key + ".count", Long.valueOf(s.size));
+			values.put(key + ".p50", Long.valueOf(s.percentile(50)));
+			values.put(key + ".p90", Long.valueOf(s.percentile(90)));
+			values.put(key + ".p99", Long.valueOf(s.percentile(99)));
+			values.put(key + ".max", Long.valueOf(s.percentile(100)));
+		}
+		return values;
+	}
+
+	/**
+	 * Writes the report as properties file.
+	 * @param writer the writer to write to.
+	 */
+	public void write(Writer writer){
+		PrintWriter out = new PrintWriter(writer);
+		out.println("# EDT latency per workload step in microseconds");
+		for(Map.Entry<String, Long> entry : getValues().entrySet()){
+			out.println(entry.getKey() + "=" + entry.getValue());
+		}
+		out.flush();
+	}
+
+	/**
+	 * Prints a human readable table of the report.
+	 * @param out the writer to print to.
+	 */
+	public void print(PrintWriter out){
+		out.printf("%-18s %-20s %7s %9s %9s %9s %9s%n", "step", "command", "count", "p50 us", "p90 us", "p99 us", "max us");
+		for(Map.Entry<String, Samples> entry : samples.entrySet()){
+			Samples s = entry.getValue();
+			out.printf("%-18s %-20s %7d %9d %9d %9d %9d%n", entry.getKey(), descriptions.get(entry.getKey()), 
+				Integer.valueOf(s.size), Long.valueOf(s.percentile(50)), Long.valueOf(s.percentile(90)),
+				Long.valueOf(s.percentile(99)), Long.valueOf(s.percentile(100)));
+		}
+		out.flush();
+	}
+
+	/**
+	 * Compares the p90 latencies with those of a baseline report. A step
+	 * regressed if its p90 exceeds the baseline by more than 
+	 * <code>tolerance</code> and by more than <code>minDeltaMicros</code>,
+	 * the latter keeps short steps from failing on noise. Steps that are 
+	 * not in the baseline are ignored.
+	 * @param baseline the baseline report as properties file.
+	 * @param tolerance the allowed relative increase, for example 0.25.
+	 * @param minDeltaMicros the allowed absolute increase.
+	 * @return a description of every regressed step, empty if there is none.
+	 * @throws IOException if the baseline can't be read.
+	 */
+	public List<String> compare(Reader baseline, double tolerance, long minDeltaMicros) throws IOException{
+		Properties base = new Properties();
+		base.load(baseline);
+		List<String> regressions = new ArrayList<String>();
+		for(Map.Entry<String, Samples> entry : samples.entrySet()){
+			String value = base.getProperty(entry.getKey() + ".p90");
+			if(value == null)
+				continue;
+			long before = Long.parseLong(value.trim());
+			long now = entry.getValue().percentile(90);
+			if(now > before * (1 + tolerance) && now - before > minDeltaMicros){
+				regressions.add(entry.getKey() + " (" + descriptions.get(entry.getKey()) + "): p90 "
+					+ before + " us -> " + now + " us");
+			}
+		}
+		return regressions;
+	}
+
+	/** The latencies of one step in microseconds. */
+	private static class Samples {
+		long[] values = new long[16];
+		int size;
+		boolean sorted = true;
+
+		void add(long value){
+			if(size == values.length)
+				values = Arrays.copyOf(values, size * 2);
+			values[size++] = value;
+			sorted = false;
+		}
+
+		/** Nearest rank percentile. */
+		long percentile(double p){
+			if(size == 0)
+				return 0;
+			if(!sorted){
+				Arrays.sort(values, 0, size);
+				sorted = true;
+			}
+			int rank = (int)Math.ceil(p / 100 * size);
+			return values[Math.max(0, Math.min(size, rank) - 1)];
+		}
+	}
+}
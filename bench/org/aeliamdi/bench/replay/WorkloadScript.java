@@ -0,0 +1,94 @@
+package org.aeliamdi.bench.replay;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A parsed workload script. A script has one command per line, blank lines
+ * and lines starting with <code>#</code> are ignored:
+ * <table summary="commands">
+ * <tr><td><code>open n</code></td><td>adds <code>n</code> views, one per event</td></tr>
+ * <tr><td><code>switch n</code></td><td>activates <code>n</code> views, stepping through all views</td></tr>
+ * <tr><td><code>activate i</code></td><td>activates the view at index <code>i</code></td></tr>
+ * <tr><td><code>toggle</code></td><td>toggles between TABS and DESKTOP</td></tr>
+ * <tr><td><code>pane TABS|DESKTOP</code></td><td>switches to the pane if it is not current</td></tr>
+ * <tr><td><code>tile</code>, <code>cascade</code></td><td>invokes the item of the windows menu</td></tr>
+ * <tr><td><code>rename n</code></td><td>renames the first <code>n</code> views in one event</td></tr>
+ * <tr><td><code>close i</code></td><td>closes the view at index <code>i</code></td></tr>
+ * <tr><td><code>closeall</code></td><td>closes all views, one per event</td></tr>
+ * <tr><td><code>repeat n</code> ... <code>end</code></td><td>repeats the enclosed lines</td></tr>
+ * </table>
+ */
+public class WorkloadScript {
+	private static final Set<String> COMMANDS = new HashSet<String>(Arrays.asList(
+		"open", "switch", "activate", "toggle", "pane", "tile", "cascade", "rename", "close", "closeall"));
+
+	private final List<WorkloadStep> steps;
+
+	private WorkloadScript(List<WorkloadStep> steps){
+		this.steps = Collections.unmodifiableList(steps);
+	}
+
+	/**
+	 * Gives the steps with the <code>repeat</code> blocks expanded.
+	 * @return the steps in execution order.
+	 */
+	public List<WorkloadStep> getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Parses a script.
+	 * @param reader the script.
+	 * @return the parsed script.
+	 * @throws IOException if the script can't be read.
+	 * @throws IllegalArgumentException if the script is malformed.
+	 */
+	public static WorkloadScript parse(Reader reader) throws IOException{
+		BufferedReader in = new BufferedReader(reader);
+		// the steps of the open blocks, the outermost first
+		List<List<WorkloadStep>> blocks = new ArrayList<List<WorkloadStep>>();
+		List<Integer> repeats = new ArrayList<Integer>();
+		blocks.add(new ArrayList<WorkloadStep>());
+		String text;
+		int line = 0;
+		while((text = in.readLine()) != null){
+			line++;
+			text = text.trim();
+			if(text.length() == 0 || text.startsWith("#"))
+				continue;
+			String[] parts = text.split("\\s+");
+			if(parts.length > 2)
+				throw new IllegalArgumentException("line " + line + ": too many arguments: " + text);
+			String command = parts[0].toLowerCase();
+			String argument = parts.length == 2 ? parts[1] : null;
+			if(command.equals("repeat")){
+				repeats.add(Integer.valueOf(new WorkloadStep(line, command, argument).getCount(1)));
+				blocks.add(new ArrayList<WorkloadStep>());
+			}else if(command.equals("end")){
+				if(repeats.isEmpty())
+					throw new IllegalArgumentException("line " + line + ": end without repeat");
+				List<WorkloadStep> body = blocks.remove(blocks.size() - 1);
+				int count = repeats.remove(repeats.size() - 1).intValue();
+				List<WorkloadStep> outer = blocks.get(blocks.size() - 1);
+				for(int i=0; i<count; i++){
+					outer.addAll(body);
+				}
+			}else if(COMMANDS.contains(command)){
+				blocks.get(blocks.size() - 1).add(new WorkloadStep(line, command, argument));
+			}else{
+				throw new IllegalArgumentException("line " + line + ": unknown command " + command);
+			}
+		}
+		if(!repeats.isEmpty())
+			throw new IllegalArgumentException("repeat without end");
+		return new WorkloadScript(blocks.get(0));
+	}
+}
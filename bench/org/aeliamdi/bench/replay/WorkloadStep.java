@@ -0,0 +1,66 @@
+package org.aeliamdi.bench.replay;
+
+/**
+ * One command of a workload script. The steps inside a <code>repeat</code>
+ * block are expanded when the script is parsed, so the same step can occur
+ * several times; all its executions are reported together.
+ */
+public class WorkloadStep {
+	private final int line;
+	private final String command;
+	private final String argument;
+
+	/**
+	 * Constructs a step.
+	 * @param line the line of the script the step was read from.
+	 * @param command the command, for example <code>open</code>.
+	 * @param argument the argument or <code>null</code>.
+	 */
+	public WorkloadStep(int line, String command, String argument){
+		this.line = line;
+		this.command = command;
+		this.argument = argument;
+	}
+
+	public int getLine() {
+		return line;
+	}
+
+	public String getCommand() {
+		return command;
+	}
+
+	public String getArgument() {
+		return argument;
+	}
+
+	/**
+	 * Gives the argument as a number.
+	 * @param defaultValue the value to return if there is no argument.
+	 * @return the argument.
+	 * @throws IllegalArgumentException if the argument is not a number.
+	 */
+	public int getCount(int defaultValue){
+		if(argument == null)
+			return defaultValue;
+		try{
+			return Integer.parseInt(argument);
+		}catch(NumberFormatException ex){
+			throw new IllegalArgumentException("line " + line + ": " + command + " expects a number, not " + argument);
+		}
+	}
+
+	/**
+	 * Gives the key under which the step is reported, for example
+	 * <code>L3-open</code>. The key stays the same as long as the script
+	 * is not edited above the step, which keeps reports comparable.
+	 * @return the key.
+	 */
+	public String getKey(){
+		return "L" + line + "-" + command;
+	}
+
+	public String toString(){
+		return argument == null ? command : command + " " + argument;
+	}
+}
@@ -0,0 +1,297 @@
+package org.aeliamdi;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Delivers <code>MDIViewEvent</code>s to the asynchronous listeners of the
+ * views of a <code>MDIFrame</code>, so that slow listeners, for example ones
+ * that save state when a view is closed, do not stall the event dispatch
+ * thread.
+ * <p>
+ * The events of one view are delivered in the order in which they were
+ * fired, one after the other. Events of different views may be delivered
+ * in parallel if the executor has more than one thread.
+ * <p>
+ * The number of events waiting for delivery is limited by
+ * <code>maxPending</code>. When the limit is reached an event fired on the
+ * event dispatch thread overflows at once, so that slow listeners never
+ * stall the event dispatch thread. Other firing threads wait at most
+ * <code>maxBlockMillis</code> milliseconds for a slot before the event
+ * overflows. Overflowing events are coalesced per view: an overflowing
+ * event replaces the undelivered overflowing event of the same type of its
+ * view, which is dropped and counted by <code>getCoalescedCount()</code>.
+ * The replacing event is queued last, so the listeners still see the last
+ * state of the view. Closed events are never dropped. So besides the
+ * <code>maxPending</code> events each view holds at most one overflowing
+ * event per type, however slow the listeners are.
+ * <p>
+ * A listener that throws a <code>RuntimeException</code> does not keep the
+ * other listeners from the event, the exception is passed to the uncaught
+ * exception handler of the delivering thread.
+ * @see MDIView#addAsyncMDIViewListener(MDIViewListener, int)
+ * @see MDIFrame#getAsyncEventDispatcher()
+ */
+public class MDIAsyncEventDispatcher {
+	/** Default maximum number of events waiting for delivery. */
+	public static final int DEFAULT_MAX_PENDING = 1024;
+
+	/** Default maximum time a firing thread off the event dispatch thread waits for a free slot. */
+	public static final long DEFAULT_MAX_BLOCK_MILLIS = 100;
+
+	/** Maximum number of events of one view delivered before other views get a turn. */
+	private static final int DELIVERY_BATCH = 64;
+
+	/** The executor the listeners are invoked on. */
+	private final Executor executor;
+
+	/** Whether <code>executor</code> was created by this dispatcher. */
+	private final boolean ownsExecutor;
+
+	/** Limits the number of events waiting for delivery. */
+	private final Semaphore pendingPermits;
+
+	/** The maximum number of events waiting for delivery. */
+	private final int maxPending;
+
+	/** Maximum time a firing thread off the event dispatch thread waits for a free slot. */
+	private volatile long maxBlockNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_BLOCK_MILLIS);
+
+	/** Number of events that were queued over the limit. */
+	private final AtomicLong overflowCount = new AtomicLong();
+
+	/** Number of overflowing events dropped for a later event of the same type. */
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	/**
+	 * Constructs a dispatcher with default settings that delivers the events
+	 * on its own daemon thread.
+	 */
+	public MDIAsyncEventDispatcher(){
+		this(createDefaultExecutor(), DEFAULT_MAX_PENDING, true);
+	}
+
+	/**
+	 * Constructs a dispatcher that delivers the events on <code>executor</code>.
+	 * @param executor the executor the listeners are invoked on.
+	 * @param maxPending the maximum number of events waiting for delivery.
+	 */
+	public MDIAsyncEventDispatcher(Executor executor, int maxPending){
+		this(executor, maxPending, false);
+	}
+
+	private MDIAsyncEventDispatcher(Executor executor, int maxPending, boolean ownsExecutor){
+		if(executor == null)
+			throw new IllegalArgumentException("executor should not be null");
+		if(maxPending < 1)
+			throw new IllegalArgumentException("maxPending must be positive");
+		this.executor = executor;
+		this.ownsExecutor = ownsExecutor;
+		this.maxPending = maxPending;
+		this.pendingPermits = new Semaphore(maxPending);
+	}
+
+	private static ExecutorService createDefaultExecutor(){
+		final AtomicInteger counter = new AtomicInteger();
+		return Executors.newSingleThreadExecutor(new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, "MDIAsyncEventDispatcher-" + counter.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Queues <code>event</code> for delivery to <code>targets</code>.
+	 */
+	void post(MDIView view, MDIViewEvent event, MDIViewListener[] targets){
+		boolean acquired = pendingPermits.tryAcquire();
+		// the event dispatch thread never waits for a slot
+		if(!acquired && maxBlockNanos > 0 && !SwingUtilities.isEventDispatchThread()){
+			try{
+				acquired = pendingPermits.tryAcquire(maxBlockNanos, TimeUnit.NANOSECONDS);
+			}catch(InterruptedException ex){
+				Thread.currentThread().interrupt();
+			}
+		}
+		if(!acquired)
+			overflowCount.incrementAndGet();
+		view.getAsyncEventQueue(this).post(new Delivery(event, targets, acquired));
+	}
+
+	/**
+	 * Gives the number of events waiting for delivery.
+	 * @return the number of pending events, not counting overflow.
+	 */
+	public int getPendingCount(){
+		return maxPending - pendingPermits.availablePermits();
+	}
+
+	/**
+	 * Gives the number of events that were queued although
+	 * <code>maxPending</code> events were already waiting.
+	 * @return the overflow count.
+	 */
+	public long getOverflowCount(){
+		return overflowCount.get();
+	}
+
+	/**
+	 * Gives the number of overflowing events that were dropped before their
+	 * delivery because a later event of the same type and view overflowed.
+	 * @return the coalesced count.
+	 */
+	public long getCoalescedCount(){
+		return coalescedCount.get();
+	}
+
+	/**
+	 * Gives the maximum time a firing thread other than the event dispatch
+	 * thread waits for a free slot.
+	 * @return the time in milliseconds.
+	 */
+	public long getMaxBlockMillis(){
+		return TimeUnit.NANOSECONDS.toMillis(maxBlockNanos);
+	}
+
+	/**
+	 * Sets the maximum time a firing thread other than the event dispatch
+	 * thread waits for a free slot.
+	 * @param maxBlockMillis the time in milliseconds, <code>0</code> to
+	 * 			never wait.
+	 */
+	public void setMaxBlockMillis(long maxBlockMillis){
+		this.maxBlockNanos = TimeUnit.MILLISECONDS.toNanos(maxBlockMillis);
+	}
+
+	/**
+	 * Stops the default executor. Events that are not yet delivered are
+	 * dropped. An executor passed to the constructor is left alone.
+	 */
+	public void shutdown(){
+		if(ownsExecutor)
+			((ExecutorService)executor).shutdownNow();
+	}
+
+	/** One event and the listeners it is delivered to. */
+	private static class Delivery {
+		final MDIViewEvent event;
+		final MDIViewListener[] targets;
+		final boolean holdsPermit;
+
+		Delivery(MDIViewEvent event, MDIViewListener[] targets, boolean holdsPermit){
+			this.event = event;
+			this.targets = targets;
+			this.holdsPermit = holdsPermit;
+		}
+	}
+
+	/**
+	 * The events of one view waiting for delivery. At most one task per
+	 * queue is submitted to the executor, which keeps the events in order.
+	 */
+	final class ViewQueue implements Runnable {
+		/** Guarded by <code>this</code>. */
+		private final ArrayDeque<Delivery> deliveries = new ArrayDeque<Delivery>();
+
+		/**
+		 * The undelivered overflowing event of each type, the closed event
+		 * excepted. Guarded by <code>this</code>.
+		 */
+		private final Delivery[] overflowing = new Delivery[MDIViewListenerList.TYPE_COUNT];
+
+		/** Whether a task is submitted or running. Guarded by <code>this</code>. */
+		private boolean scheduled;
+
+		/** Gives the dispatcher this queue belongs to. */
+		MDIAsyncEventDispatcher getDispatcher(){
+			return MDIAsyncEventDispatcher.this;
+		}
+
+		void post(Delivery delivery){
+			synchronized(this){
+				int id = delivery.event.getID();
+				if(!delivery.holdsPermit && id != MDIViewEvent.MDIVIEW_CLOSED){
+					int type = MDIViewListenerList.typeIndex(id);
+					Delivery replaced = overflowing[type];
+					if(replaced != null && deliveries.removeLastOccurrence(replaced))
+						coalescedCount.incrementAndGet();
+					overflowing[type] = delivery;
+				}
+				deliveries.add(delivery);
+				if(scheduled)
+					return;
+				scheduled = true;
+			}
+			submit();
+		}
+
+		private void submit(){
+			try{
+				executor.execute(this);
+			}catch(RejectedExecutionException ex){
+				// the dispatcher has been shut down, drop the events
+				synchronized(this){
+					for(Delivery delivery : deliveries){
+						if(delivery.holdsPermit)
+							pendingPermits.release();
+					}
+					deliveries.clear();
+					Arrays.fill(overflowing, null);
+					scheduled = false;
+				}
+			}
+		}
+
+		public void run(){
+			for(int i=0; i<DELIVERY_BATCH; i++){
+				Delivery delivery;
+				synchronized(this){
+					delivery = deliveries.poll();
+					if(delivery == null){
+						scheduled = false;
+						return;
+					}
+					if(!delivery.holdsPermit){
+						int type = MDIViewListenerList.typeIndex(delivery.event.getID());
+						if(overflowing[type] == delivery)
+							overflowing[type] = null;
+					}
+				}
+				try{
+					deliver(delivery);
+				}finally{
+					if(delivery.holdsPermit)
+						pendingPermits.release();
+				}
+			}
+			// let the other views have their turn
+			submit();
+		}
+
+		private void deliver(Delivery delivery){
+			MDIViewListener[] targets = delivery.targets;
+			for(int i=0; i<targets.length; i++){
+				try{
+					MDIViewListenerList.dispatch(delivery.event, targets[i]);
+				}catch(RuntimeException ex){
+					// one failing listener must not keep the others from the event
+					Thread thread = Thread.currentThread();
+					thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+				}
+			}
+		}
+	}
+}
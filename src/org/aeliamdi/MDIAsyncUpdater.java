@@ -0,0 +1,224 @@
+package org.aeliamdi;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * A thread safe facade for the <code>MDIFrame</code> and <code>MDIView</code>
+ * operations that are typically driven by background threads, such as
+ * status titles that change many times a second.
+ * <p>
+ * The methods of this class can be called from any thread. The calls are
+ * queued and applied on the event dispatch thread in a single
+ * <code>invokeLater()</code> batch. Title and icon updates are coalesced per
+ * view, i.e. if the title of a view is set several times before the batch
+ * runs only the last title is applied. Each method returns a
+ * <code>CompletableFuture</code> that completes when the call has been
+ * applied; coalesced calls share one future.
+ * <p>
+ * Within a batch views are added first, in the order of the calls, and the
+ * title and icon updates are applied afterwards. The batch shows the new
+ * titles and icons in the tabs and internal frames right away, with
+ * <code>MDIFrame.flushViewUpdates()</code>, so a future of an update only
+ * completes once its title or icon is visible.
+ * @see MDIFrame#getAsyncUpdater()
+ */
+public class MDIAsyncUpdater {
+	/** The frame the calls are applied to. */
+	private final MDIFrame mdiFrame;
+
+	/** Guards the pending calls below. */
+	private final Object lock = new Object();
+
+	/** Coalesced title and icon updates per view. Guarded by <code>lock</code>. */
+	private Map<MDIView, PendingUpdate> pendingUpdates = new LinkedHashMap<MDIView, PendingUpdate>();
+
+	/** Views waiting to be added. Guarded by <code>lock</code>. */
+	private List<PendingAdd> pendingAdds = new ArrayList<PendingAdd>();
+
+	/** Whether a batch has been posted to the event queue. Guarded by <code>lock</code>. */
+	private boolean flushScheduled;
+
+	/** Applies one batch. */
+	private final Runnable flusher = new Runnable(){
+		public void run(){
+			flush();
+		}
+	};
+
+	/**
+	 * Constructs the updater for <code>mdiFrame</code>.
+	 * @param mdiFrame the frame the calls are applied to.
+	 */
+	public MDIAsyncUpdater(MDIFrame mdiFrame){
+		this.mdiFrame = mdiFrame;
+	}
+
+	/**
+	 * Sets the title of <code>view</code> on the event dispatch thread.
+	 * @param view the view whose title is set.
+	 * @param title the title to set.
+	 * @return a future that completes when the title has been applied.
+	 * @see MDIView#setTitle(String)
+	 */
+	public CompletableFuture<Void> setTitle(MDIView view, String title){
+		synchronized(lock){
+			PendingUpdate update = pendingUpdate(view);
+			update.title = title;
+			update.titleSet = true;
+			schedule();
+			return update.future;
+		}
+	}
+
+	/**
+	 * Sets the icon of <code>view</code> on the event dispatch thread.
+	 * @param view the view whose icon is set.
+	 * @param icon the icon to set.
+	 * @return a future that completes when the icon has been applied.
+	 * @see MDIView#setIcon(MDIIcon)
+	 */
+	public CompletableFuture<Void> setIcon(MDIView view, MDIIcon icon){
+		synchronized(lock){
+			PendingUpdate update = pendingUpdate(view);
+			update.icon = icon;
+			update.iconSet = true;
+			schedule();
+			return update.future;
+		}
+	}
+
+	/**
+	 * Adds <code>view</code> to the frame on the event dispatch thread. All
+	 * views added within one batch are added with
+	 * <code>MDIFrame.addInternalViews()</code>.
+	 * @param view the view to add.
+	 * @return a future that completes with the view when it has been added.
+	 * @see MDIFrame#addInternalView(MDIView)
+	 */
+	public CompletableFuture<MDIView> addInternalView(MDIView view){
+		if(view == null)
+			throw new IllegalArgumentException("view should not be null");
+		PendingAdd add = new PendingAdd(view);
+		synchronized(lock){
+			pendingAdds.add(add);
+			schedule();
+		}
+		return add.future;
+	}
+
+	/**
+	 * Gives the number of views that have updates pending.
+	 * @return the number of views with pending updates.
+	 */
+	public int getPendingCount(){
+		synchronized(lock){
+			return pendingUpdates.size() + pendingAdds.size();
+		}
+	}
+
+	private PendingUpdate pendingUpdate(MDIView view){
+		if(view == null)
+			throw new IllegalArgumentException("view should not be null");
+		PendingUpdate update = pendingUpdates.get(view);
+		if(update == null){
+			update = new PendingUpdate();
+			pendingUpdates.put(view, update);
+		}
+		return update;
+	}
+
+	/** Must be called with <code>lock</code> held. */
+	private void schedule(){
+		if(!flushScheduled){
+			flushScheduled = true;
+			SwingUtilities.invokeLater(flusher);
+		}
+	}
+
+	/**
+	 * Applies all pending calls on the event dispatch thread.
+	 */
+	private void flush(){
+		Map<MDIView, PendingUpdate> updates;
+		List<PendingAdd> adds;
+		synchronized(lock){
+			updates = pendingUpdates;
+			adds = pendingAdds;
+			pendingUpdates = new LinkedHashMap<MDIView, PendingUpdate>();
+			pendingAdds = new ArrayList<PendingAdd>();
+			flushScheduled = false;
+		}
+
+		if(!adds.isEmpty()){
+			List<MDIView> views = new ArrayList<MDIView>(adds.size());
+			for(PendingAdd add : adds){
+				views.add(add.view);
+			}
+			try{
+				mdiFrame.addInternalViews(views);
+				for(PendingAdd add : adds){
+					add.future.complete(add.view);
+				}
+			}catch(RuntimeException ex){
+				for(PendingAdd add : adds){
+					add.future.completeExceptionally(ex);
+				}
+			}
+		}
+
+		Map<MDIView, PendingUpdate> applied = new LinkedHashMap<MDIView, PendingUpdate>();
+		Iterator<Map.Entry<MDIView, PendingUpdate>> it = updates.entrySet().iterator();
+		while(it.hasNext()){
+			Map.Entry<MDIView, PendingUpdate> entry = it.next();
+			MDIView view = entry.getKey();
+			PendingUpdate update = entry.getValue();
+			try{
+				if(update.titleSet)
+					view.setTitle(update.title);
+				if(update.iconSet)
+					view.setIcon(update.icon);
+				applied.put(view, update);
+			}catch(RuntimeException ex){
+				update.future.completeExceptionally(ex);
+			}
+		}
+
+		// the views only marked their tabs and frames dirty, show the updates
+		// before the futures complete. A frame flushes all its views at once.
+		for(Map.Entry<MDIView, PendingUpdate> entry : applied.entrySet()){
+			PendingUpdate update = entry.getValue();
+			try{
+				entry.getKey().getMdiFrame().flushViewUpdates();
+				update.future.complete(null);
+			}catch(RuntimeException ex){
+				update.future.completeExceptionally(ex);
+			}
+		}
+	}
+
+	/** The coalesced title and icon of one view. */
+	private static class PendingUpdate {
+		String title;
+		boolean titleSet;
+		MDIIcon icon;
+		boolean iconSet;
+		final CompletableFuture<Void> future = new CompletableFuture<Void>();
+	}
+
+	/** A view waiting to be added. */
+	private static class PendingAdd {
+		final MDIView view;
+		final CompletableFuture<MDIView> future = new CompletableFuture<MDIView>();
+
+		PendingAdd(MDIView view){
+			this.view = view;
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package org.aeliamdi;
+
+import java.awt.Component;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+import javax.swing.JDialog;
+import javax.swing.JPanel;
+import javax.swing.Timer;
+import javax.swing.WindowConstants;
+
+/**
+ * The top-level window that shows a <code>MDIView</code> detached from
+ * its <code>MDIFrame</code>. Like the <code>MDIInternalFrame</code> it uses
+ * the view as its content pane, so the component tree of the view is moved
+ * into the window and not rebuilt. The window is a modeless dialog owned by
+ * the <code>MDIFrame</code>: it can be moved to another screen, has no
+ * entry in the task bar and is closed together with its frame.
+ * <p>
+ * The view receives a <code>MDIViewEvent</code> activated event when the
+ * window is activated and a deactivated event when it loses the activation.
+ * For most of the common uses of the MDIFramework this class is not
+ * required to be dealt with directly, use <code>MDIFrame.detachView()</code>
+ * and <code>MDIFrame.attachView()</code>.
+ * @see MDIFrame#detachView(MDIView)
+ */
+public class MDIDetachedWindow extends JDialog{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The delay in milliseconds after the last move or resize of the window
+	 * before its bounds are journaled.
+	 */
+	private static final int BOUNDS_JOURNAL_DELAY = 300;
+
+	/** The view shown as content pane. */
+	private MDIView view;
+
+	/** The parent frame for this window. */
+	private MDIFrame parentFrame;
+
+	/** Whether the view has received an activated event from this window. */
+	private boolean viewActive = false;
+
+	/**
+	 * Journals the bounds once the window stopped moving, so that dragging
+	 * it records one change instead of one per intermediate position.
+	 */
+	private Timer boundsTimer = new Timer(BOUNDS_JOURNAL_DELAY, new ActionListener(){
+		public void actionPerformed(ActionEvent e){
+			journalBounds();
+		}
+	});
+
+	/**
+	 * Constructs the window for <code>view</code>, which is set as its
+	 * content pane.
+	 * @param parent the <code>MDIFrame</code> that owns the window.
+	 * @param aNotNullView the view, it should never be <code>null</code>.
+	 */
+	MDIDetachedWindow(MDIFrame parent, MDIView aNotNullView){
+		super(parent, aNotNullView.getTitle(), false);
+		parentFrame = parent;
+		view = aNotNullView;
+		setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+		setContentPane(view);
+		boundsTimer.setRepeats(false);
+		addWindowListener(new WindowAdapter(){
+			public void windowActivated(WindowEvent e){
+				if(view == null || viewActive)
+					return;
+				viewActive = true;
+				view.ensureContent();
+				Component comp = view.getDefaultComponent();
+				if(comp != null)
+					comp.requestFocusInWindow();
+				view.fireMDIViewEvent(MDIViewEvent.MDIVIEW_ACTIVIATED);
+			}
+
+			public void windowDeactivated(WindowEvent e){
+				if(view == null || !viewActive)
+					return;
+				viewActive = false;
+				view.fireMDIViewEvent(MDIViewEvent.MDIVIEW_DEACTIVIATED);
+			}
+
+			public void windowClosing(WindowEvent e){
+				if(view != null)
+					view.closeView();
+			}
+		});
+		addComponentListener(new ComponentAdapter(){
+			public void componentMoved(ComponentEvent e){
+				boundsTimer.restart();
+			}
+
+			public void componentResized(ComponentEvent e){
+				boundsTimer.restart();
+			}
+		});
+	}
+
+	/**
+	 * Gives the view shown by this window.
+	 * @return the view or <code>null</code> once it was attached again or closed.
+	 */
+	public MDIView getView() {
+		return view;
+	}
+
+	/**
+	 * Gives the <code>MDIFrame</code> that owns this window.
+	 * @return Returns the parentFrame.
+	 */
+	public MDIFrame getParentFrame() {
+		return parentFrame;
+	}
+
+	/**
+	 * Returns whether the view of this window is active.
+	 * @return <code>true</code> if the view received an activated event
+	 * 			and no deactivated event since.
+	 */
+	public boolean isViewActive() {
+		return viewActive;
+	}
+
+	/**
+	 * Records the new bounds of the window in the workspace journal of the
+	 * frame, if one is running.
+	 */
+	private void journalBounds(){
+		MDIWorkspaceJournal journal = parentFrame.getWorkspaceJournal();
+		if(view != null && journal != null)
+			journal.viewChanged(view);
+	}
+
+	/**
+	 * Takes the view out of this window and disposes it. The view receives
+	 * a deactivated event first if it is active.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 */
+	void releaseView(){
+		MDIView released = view;
+		view = null;
+		//attaching or closing the view journals its state
+		boundsTimer.stop();
+		setContentPane(new JPanel());
+		dispose();
+		if(viewActive){
+			viewActive = false;
+			released.fireMDIViewEvent(MDIViewEvent.MDIVIEW_DEACTIVIATED);
+		}
+	}
+}
@@ -0,0 +1,228 @@
+package org.aeliamdi;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Watches the responsiveness of the event dispatch thread and reports the
+ * stalls caused while a <code>MDIFrame</code> is in use.
+ * <p>
+ * A daemon thread posts a heartbeat to the event queue every
+ * <code>pollMillis</code> milliseconds. If a heartbeat has not run after
+ * <code>thresholdMillis</code> the event dispatch thread is considered
+ * stalled. The watchdog then captures its stack, tags the stall with the
+ * <code>MDIOperation</code> the frame is executing and the number of views,
+ * notifies the <code>MDIStallListener</code>s and keeps the report in a
+ * rolling log of the last <code>maxReports</code> stalls. A stall is
+ * reported once, however long it lasts. When the event dispatch thread
+ * responds again the report is completed with the real length of the stall,
+ * see <code>MDIStallReport.isEnded()</code>.
+ * <pre>
+ * MDIEdtWatchdog watchdog = new MDIEdtWatchdog(mdiFrame);
+ * watchdog.addStallListener(new MDIStallListener(){
+ *     public void stallDetected(MDIStallReport report){
+ *         log.warning(report.toString());
+ *     }
+ * });
+ * watchdog.start();
+ * </pre>
+ * The operations are only known for the paths that are measured, see
+ * <code>MDIOperation</code>; other stalls are reported without operation.
+ * @see MDIFrame#getCurrentOperation()
+ */
+public class MDIEdtWatchdog {
+	/** Default time after which the event dispatch thread is considered stalled. */
+	public static final long DEFAULT_THRESHOLD_MILLIS = 500;
+
+	/** Default interval of the heartbeats. */
+	public static final long DEFAULT_POLL_MILLIS = 100;
+
+	/** Default number of reports kept in the log. */
+	public static final int DEFAULT_MAX_REPORTS = 50;
+
+	/** The frame whose operations tag the stalls. */
+	private final MDIFrame mdiFrame;
+
+	private final long thresholdNanos;
+
+	private final long pollMillis;
+
+	private final int maxReports;
+
+	private final CopyOnWriteArrayList<MDIStallListener> listeners = new CopyOnWriteArrayList<MDIStallListener>();
+
+	/** The last reports, oldest first. Guarded by <code>itself</code>. */
+	private final ArrayDeque<MDIStallReport> reports = new ArrayDeque<MDIStallReport>();
+
+	/** The event dispatch thread as seen by the last heartbeat. */
+	private volatile Thread edt;
+
+	/** When the heartbeat that has not run yet was posted, 0 if there is none. */
+	private volatile long pingPostedNanos;
+
+	/** When the last heartbeat ran. */
+	private volatile long pingRanNanos;
+
+	/** The watchdog thread or <code>null</code> if stopped. */
+	private Thread thread;
+
+	/** Runs on the event dispatch thread. */
+	private final Runnable heartbeat = new Runnable(){
+		public void run(){
+			edt = Thread.currentThread();
+			pingRanNanos = System.nanoTime();
+			pingPostedNanos = 0;
+		}
+	};
+
+	/**
+	 * Constructs a watchdog with default settings.
+	 * @param mdiFrame the frame whose operations tag the stalls.
+	 */
+	public MDIEdtWatchdog(MDIFrame mdiFrame){
+		this(mdiFrame, DEFAULT_THRESHOLD_MILLIS, DEFAULT_POLL_MILLIS, DEFAULT_MAX_REPORTS);
+	}
+
+	/**
+	 * Constructs a watchdog.
+	 * @param mdiFrame the frame whose operations tag the stalls.
+	 * @param thresholdMillis the time after which the event dispatch thread
+	 * 			is considered stalled.
+	 * @param pollMillis the interval of the heartbeats, should be well
+	 * 			below <code>thresholdMillis</code>.
+	 * @param maxReports the number of reports kept in the log.
+	 */
+	public MDIEdtWatchdog(MDIFrame mdiFrame, long thresholdMillis, long pollMillis, int maxReports){
+		if(mdiFrame == null)
+			throw new IllegalArgumentException("mdiFrame should not be null");
+		if(thresholdMillis < 1 || pollMillis < 1 || maxReports < 0)
+			throw new IllegalArgumentException("thresholdMillis and pollMillis must be positive and maxReports not negative");
+		this.mdiFrame = mdiFrame;
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+		this.pollMillis = pollMillis;
+		this.maxReports = maxReports;
+	}
+
+	/**
+	 * Starts watching. Calling this method on a running watchdog has no effect.
+	 */
+	public synchronized void start(){
+		if(thread != null)
+			return;
+		thread = new Thread(new Runnable(){
+			public void run(){
+				watch();
+			}
+		}, "MDIEdtWatchdog");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops watching.
+	 */
+	public synchronized void stop(){
+		if(thread != null){
+			thread.interrupt();
+			thread = null;
+		}
+	}
+
+	/**
+	 * @return whether the watchdog is running.
+	 */
+	public synchronized boolean isRunning(){
+		return thread != null;
+	}
+
+	private void watch(){
+		MDIStallReport stall = null;
+		long lastPosted = 0;
+		try{
+			while(!Thread.currentThread().isInterrupted()){
+				long posted = pingPostedNanos;
+				if(posted == 0){
+					if(stall != null){
+						stall.stallEnded(TimeUnit.NANOSECONDS.toMillis(pingRanNanos - lastPosted));
+						stall = null;
+					}
+					lastPosted = System.nanoTime();
+					pingPostedNanos = lastPosted;
+					SwingUtilities.invokeLater(heartbeat);
+				}else if(stall == null){
+					long busy = System.nanoTime() - posted;
+					if(busy >= thresholdNanos)
+						stall = report(TimeUnit.NANOSECONDS.toMillis(busy));
+				}
+				Thread.sleep(pollMillis);
+			}
+		}catch(InterruptedException ex){
+			// stopped
+		}
+	}
+
+	private MDIStallReport report(long durationMillis){
+		MDIOperation operation = mdiFrame.getCurrentOperation();
+		int viewCount = mdiFrame.getViews().size();
+		Thread edt = this.edt;
+		StackTraceElement[] stack = edt == null ? new StackTraceElement[0] : edt.getStackTrace();
+		MDIStallReport report = new MDIStallReport(System.currentTimeMillis(), durationMillis, operation, viewCount, stack);
+		synchronized(reports){
+			if(maxReports > 0){
+				if(reports.size() == maxReports)
+					reports.removeFirst();
+				reports.addLast(report);
+			}
+		}
+		for(MDIStallListener listener : listeners){
+			try{
+				listener.stallDetected(report);
+			}catch(RuntimeException ex){
+				Thread thread = Thread.currentThread();
+				thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+			}
+		}
+		return report;
+	}
+
+	/**
+	 * Gives the last detected stalls, oldest first.
+	 * @return a copy of the rolling log.
+	 */
+	public List<MDIStallReport> getReports(){
+		synchronized(reports){
+			return new ArrayList<MDIStallReport>(reports);
+		}
+	}
+
+	/**
+	 * Clears the rolling log.
+	 */
+	public void clearReports(){
+		synchronized(reports){
+			reports.clear();
+		}
+	}
+
+	/**
+	 * Adds a listener that is notified of every detected stall.
+	 * @param listener the listener to add.
+	 */
+	public void addStallListener(MDIStallListener listener){
+		if(listener != null)
+			listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener.
+	 * @param listener the listener to remove.
+	 */
+	public void removeStallListener(MDIStallListener listener){
+		listeners.remove(listener);
+	}
+}
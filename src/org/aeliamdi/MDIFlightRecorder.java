@@ -0,0 +1,243 @@
+package org.aeliamdi;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emits the flight recorder events of the <code>MDIView</code> lifecycle:
+ * <code>org.aeliamdi.ViewOpen</code>, <code>org.aeliamdi.ViewActivate</code>,
+ * <code>org.aeliamdi.ViewClose</code>, <code>org.aeliamdi.ViewState</code>
+ * and <code>org.aeliamdi.PaneSwitch</code>. Every event carries the view
+ * title, the number of views and its duration.
+ * <p>
+ * A <code>begin</code> method returns <code>null</code> without allocating
+ * anything when its event is not enabled in a running recording, so the
+ * overhead with the flight recorder off is one check per operation.
+ */
+final class MDIFlightRecorder {
+	private static final EventType VIEW_OPEN = EventType.getEventType(ViewOpen.class);
+	private static final EventType VIEW_ACTIVATE = EventType.getEventType(ViewActivate.class);
+	private static final EventType VIEW_CLOSE = EventType.getEventType(ViewClose.class);
+	private static final EventType VIEW_STATE = EventType.getEventType(ViewState.class);
+	private static final EventType PANE_SWITCH = EventType.getEventType(PaneSwitch.class);
+
+	private MDIFlightRecorder(){
+	}
+
+	/**
+	 * Starts a <code>ViewOpen</code> event.
+	 * @return the event or <code>null</code> if it is not recorded.
+	 */
+	static Object beginViewOpen(){
+		if(!VIEW_OPEN.isEnabled())
+			return null;
+		ViewOpen event = new ViewOpen();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Starts the event that records the dispatch of a <code>MDIViewEvent</code>:
+	 * <code>ViewActivate</code> for activation and <code>ViewState</code>
+	 * for iconify, restore and maximize.
+	 * @param eventId the id of the <code>MDIViewEvent</code>.
+	 * @return the event or <code>null</code> if it is not recorded or 
+	 * 			<code>eventId</code> has no flight recorder event.
+	 */
+	static Object beginViewEvent(int eventId){
+		switch(eventId){
+			case MDIViewEvent.MDIVIEW_ACTIVIATED:
+				return beginViewActivate();
+			case MDIViewEvent.MDIVIEW_ICONIFIED:
+				return beginViewState("ICONIFIED");
+			case MDIViewEvent.MDIVIEW_RESTORED:
+				return beginViewState("RESTORED");
+			case MDIViewEvent.MDIVIEW_MAXIMIZED:
+				return beginViewState("MAXIMIZED");
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Starts a <code>ViewActivate</code> event.
+	 * @return the event or <code>null</code> if it is not recorded.
+	 */
+	static Object beginViewActivate(){
+		if(!VIEW_ACTIVATE.isEnabled())
+			return null;
+		ViewActivate event = new ViewActivate();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Starts a <code>ViewClose</code> event.
+	 * @return the event or <code>null</code> if it is not recorded.
+	 */
+	static Object beginViewClose(){
+		if(!VIEW_CLOSE.isEnabled())
+			return null;
+		ViewClose event = new ViewClose();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Starts a <code>ViewState</code> event.
+	 * @param state the state the view changed to, for example <code>"ICONIFIED"</code>.
+	 * @return the event or <code>null</code> if it is not recorded.
+	 */
+	static Object beginViewState(String state){
+		if(!VIEW_STATE.isEnabled())
+			return null;
+		ViewState event = new ViewState();
+		event.state = state;
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Starts a <code>PaneSwitch</code> event.
+	 * @param oldPane the view pane before the switch.
+	 * @return the event or <code>null</code> if it is not recorded.
+	 */
+	static Object beginPaneSwitch(String oldPane){
+		if(!PANE_SWITCH.isEnabled())
+			return null;
+		PaneSwitch event = new PaneSwitch();
+		event.oldPane = oldPane;
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Completes and commits an event returned by one of the
+	 * <code>begin</code> methods. Does nothing if <code>event</code> is
+	 * <code>null</code>. The events are handed around as <code>Object</code>
+	 * so that the callers don't depend on the event classes.
+	 * @param event the event.
+	 * @param title the title of the view, or for a pane switch the new pane.
+	 * @param viewCount the number of views of the frame.
+	 */
+	static void end(Object event, String title, int viewCount){
+		if(event == null)
+			return;
+		if(event instanceof ViewOpen){
+			ViewOpen e = (ViewOpen)event;
+			e.title = title;
+			e.viewCount = viewCount;
+			e.commit();
+		}else if(event instanceof ViewActivate){
+			ViewActivate e = (ViewActivate)event;
+			e.title = title;
+			e.viewCount = viewCount;
+			e.commit();
+		}else if(event instanceof ViewClose){
+			ViewClose e = (ViewClose)event;
+			e.title = title;
+			e.viewCount = viewCount;
+			e.commit();
+		}else if(event instanceof ViewState){
+			ViewState e = (ViewState)event;
+			e.title = title;
+			e.viewCount = viewCount;
+			e.commit();
+		}else if(event instanceof PaneSwitch){
+			PaneSwitch e = (PaneSwitch)event;
+			e.newPane = title;
+			e.viewCount = viewCount;
+			e.commit();
+		}
+	}
+
+	/**
+	 * Commits a <code>org.aeliamdi.Operation</code> event for a completed
+	 * operation if it is recorded.
+	 */
+	static void operationCompleted(MDIOperation operation, long durationNanos, int viewCount){
+		MDIOperationEvent event = new MDIOperationEvent();
+		if(event.isEnabled()){
+			event.operation = operation.name();
+			event.durationNanos = durationNanos;
+			event.viewCount = viewCount;
+			event.commit();
+		}
+	}
+
+	@Name("org.aeliamdi.ViewOpen")
+	@Label("MDI View Open")
+	@Category({"AeliaMDI"})
+	@Description("A view added to a MDIFrame")
+	@StackTrace(false)
+	static class ViewOpen extends Event {
+		@Label("Title")
+		String title;
+
+		@Label("View Count")
+		int viewCount;
+	}
+
+	@Name("org.aeliamdi.ViewActivate")
+	@Label("MDI View Activate")
+	@Category({"AeliaMDI"})
+	@Description("A view activated, including its activation listeners")
+	@StackTrace(false)
+	static class ViewActivate extends Event {
+		@Label("Title")
+		String title;
+
+		@Label("View Count")
+		int viewCount;
+	}
+
+	@Name("org.aeliamdi.ViewClose")
+	@Label("MDI View Close")
+	@Category({"AeliaMDI"})
+	@Description("A view closed and removed from its MDIFrame")
+	@StackTrace(false)
+	static class ViewClose extends Event {
+		@Label("Title")
+		String title;
+
+		@Label("View Count")
+		int viewCount;
+	}
+
+	@Name("org.aeliamdi.ViewState")
+	@Label("MDI View State")
+	@Category({"AeliaMDI"})
+	@Description("A view iconified, restored or maximized, including its listeners")
+	@StackTrace(false)
+	static class ViewState extends Event {
+		@Label("Title")
+		String title;
+
+		@Label("State")
+		String state;
+
+		@Label("View Count")
+		int viewCount;
+	}
+
+	@Name("org.aeliamdi.PaneSwitch")
+	@Label("MDI Pane Switch")
+	@Category({"AeliaMDI"})
+	@Description("A MDIFrame switched between TABS and DESKTOP")
+	@StackTrace(false)
+	static class PaneSwitch extends Event {
+		@Label("Old Pane")
+		String oldPane;
+
+		@Label("New Pane")
+		String newPane;
+
+		@Label("View Count")
+		int viewCount;
+	}
+}
@@ -30,25 +30,48 @@ import java.awt.BorderLayout;
 import java.awt.CardLayout;
 import java.awt.Color;
 import java.awt.Component;
+import java.awt.Container;
+import java.awt.Cursor;
 import java.awt.FlowLayout;
+import java.awt.Insets;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.beans.PropertyVetoException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.Executor;
 
+import javax.swing.AbstractAction;
 import javax.swing.DefaultDesktopManager;
+import javax.swing.InputMap;
+import javax.swing.JComponent;
 import javax.swing.JDesktopPane;
 import javax.swing.JFrame;
 import javax.swing.JInternalFrame;
+import javax.swing.JLayeredPane;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
+import javax.swing.JSplitPane;
+import javax.swing.JTabbedPane;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import javax.swing.event.InternalFrameAdapter;
@@ -97,6 +120,11 @@ public class MDIFrame extends JFrame {
 	public static final String DESKTOP = "desktop";
 	/** Tabbed pane view */
 	public static final String TABS = "tabs";
+	/** 
+	 * The pane of views that are shown in their own window.
+	 * @see MDIFrame#detachView(MDIView)
+	 */
+	public static final String DETACHED = "detached";
 	/** 
 	 * This variable keeps the track of the current view of the <code>MDIFrame</code>.
 	 * It will be always one of <code>MDIFrame.TABS</code> or <code>MDIFrame.DESKTOP</code>. 
@@ -116,6 +144,45 @@ public class MDIFrame extends JFrame {
 	 */
 	private boolean paneChangedInternally = false;
 	
+	/** 
+	 * The layer of the desktop pane that holds the tabbed pane with the
+	 * docked views, below the internal frames.
+	 */
+	private static final Integer DOCK_LAYER = Integer.valueOf(JLayeredPane.DEFAULT_LAYER.intValue() - 1);
+	
+	/** 
+	 * Whether maximizing a view on the desktop docks only that view as a
+	 * tab instead of switching the whole frame to <code>MDIFrame.TABS</code>.
+	 */
+	private boolean hybridLayout = false;
+	
+	/** Whether the tabbed pane is shown on the desktop pane with docked views. */
+	private boolean docked = false;
+	
+	/** The docked view that is active, <code>null</code> if an internal frame or no view is active. */
+	private MDIView dockedActiveView;
+	
+	/** Set while views are docked or undocked, so that the tab selection activates no view. */
+	private boolean dockingInternally = false;
+	
+	/** 
+	 * The tab groups shown side by side when the <code>currentViewPane</code>
+	 * is <code>MDIFrame.TABS</code>, <code>tabbedPane</code> first.
+	 */
+	private final List<MDITabbedPane> tabGroups = new ArrayList<MDITabbedPane>();
+	
+	/** The tab group whose selected view is the active view. */
+	private MDITabbedPane activeTabGroup;
+	
+	/** Set while views are moved between tab groups, so that the tab selection activates no view. */
+	private boolean tabGroupsChanging = false;
+	
+	/** 
+	 * The views shown in their own window, in the order they were detached.
+	 * They stay in the <code>viewIndex</code> but not in <code>views</code>.
+	 */
+	private final Map<MDIView, MDIDetachedWindow> detachedViews = new LinkedHashMap<MDIView, MDIDetachedWindow>();
+	
 	/** 
 	 * This panel contains minimize, maximize, and close buttons.
 	 * This panel is added to menubar when the <code>currentView</code>
@@ -157,10 +224,17 @@ public class MDIFrame extends JFrame {
 	private int windowY = 0; 
 	
 	/**
-	 * A vector holding <code>MDIFrameListener</code>s that are 
-	 * added to the <code>MDIFrame</code> object.
+	 * The <code>MDIFrameListener</code>s that are added to the <code>MDIFrame</code> 
+	 * object. The array is replaced on every change and never modified, so
+	 * that events can be dispatched without locking.
+	 */
+	private volatile MDIFrameListener[] mdiFrameListeners = new MDIFrameListener[0];
+
+	/** 
+	 * The event fired when the views changed without a view pane switch.
+	 * It carries no mutable state, so one instance is shared by all dispatches.
 	 */
-	private Vector mdiFrameListeners = new Vector();
+	private final MDIFrameEvent viewsChangedEvent = new MDIFrameEvent(this, null, null);
 	
 	/** 
 	 * This variable helps to fire MDIView activiated and deactiviated events
@@ -201,6 +275,12 @@ public class MDIFrame extends JFrame {
 	 */
 	private String closeMenuText = "Close";
 	
+	/**
+	 * This text will be set as tool tip of the button that opens the
+	 * list of the hidden tabs in tab overflow mode.
+	 */
+	private String tabOverflowToolTipText = "Show hidden tabs";
+	
 	/**
 	 * This mnemonic will be set to the system menu for restore
 	 * function.
@@ -226,6 +306,74 @@ public class MDIFrame extends JFrame {
 	 */
 	private boolean tabCloseButtonEnabled;
 
+	/**
+	 * Whether the tab groups keep their tabs in a single row with a 
+	 * dropdown of the hidden tabs.
+	 * @see MDITabbedPane#setOverflowMode(boolean)
+	 */
+	private boolean tabOverflowMode = false;
+
+	/**
+	 * The title index of all views of this <code>MDIFrame</code>. 
+	 * @see MDIQuickSwitcher
+	 */
+	private MDIViewIndex viewIndex = new MDIViewIndex();
+	
+	/** 
+	 * The executor on which the data of deferred views is loaded or 
+	 * <code>null</code> to load it on the event dispatch thread.
+	 * @see MDIView#createDeferred(MDIFrame, String, MDIIcon, MDIViewContentSupplier)
+	 */
+	private Executor contentExecutor;
+	
+	/** The background preparation pipeline, created when it is used for the first time. */
+	private MDIViewPipeline viewPipeline;
+	
+	/** 
+	 * Views whose title or icon has changed since the last flush.
+	 * @see MDIFrame#flushViewUpdates()
+	 */
+	private LinkedHashSet<MDIView> dirtyViews = new LinkedHashSet<MDIView>();
+	
+	/** Whether a flush of the dirty views has been posted to the event queue. */
+	private boolean flushScheduled = false;
+	
+	/** The thread safe facade of this frame, created when it is used for the first time. */
+	private MDIAsyncUpdater asyncUpdater;
+	
+	/** Delivers the events to the async view listeners, created when it is used for the first time. */
+	private MDIAsyncEventDispatcher asyncEventDispatcher;
+	
+	/** Receives the measurements of the operations. */
+	private volatile MDIMetrics metrics = MDIMetrics.NONE;
+	
+	/** The operations in progress, innermost last. Only used on the event dispatch thread. */
+	private MDIOperation[] operationStack = new MDIOperation[4];
+	
+	/** Number of operations in progress. */
+	private int operationDepth = 0;
+	
+	/** The innermost operation in progress, readable from any thread. */
+	private volatile MDIOperation currentOperation;
+	
+	/** The journal that records the changes of the views or <code>null</code>. */
+	private MDIWorkspaceJournal workspaceJournal;
+	
+	/** 
+	 * Greater than zero while views are added in a batch.
+	 * @see MDIFrame#addInternalViews(Collection)
+	 */
+	private int batchDepth = 0;
+	
+	/** The quick switcher popup, created when it is shown for the first time. */
+	private MDIQuickSwitcher quickSwitcher;
+	
+	/** 
+	 * The key stroke that shows the quick switcher or <code>null</code> 
+	 * if it should not be bound to a key. 
+	 */
+	private KeyStroke quickSwitcherKeyStroke = KeyStroke.getKeyStroke(KeyEvent.VK_E, InputEvent.CTRL_DOWN_MASK);
+
 
 	/**
 	 * Constructs a MDIFrame with no title and uses the minimize, maximize and close
@@ -259,19 +407,83 @@ public class MDIFrame extends JFrame {
 	public MDIFrame(String title, boolean buttonsEnabled){
 		super(title);
 		tabbedPane = new MDITabbedPane(this);
+		tabGroups.add(tabbedPane);
+		activeTabGroup = tabbedPane;
 		this.tabCloseButtonEnabled = true;
 		this.buttonsEnabled = buttonsEnabled;
+		installTabListeners(tabbedPane);
+		desktopPane = new JDesktopPane();
+		desktopManager = new MDIDesktopManager();
+		desktopPane.setDesktopManager(desktopManager);
+		desktopPane.addComponentListener(new ComponentAdapter(){
+			public void componentResized(ComponentEvent e){
+				if(docked)
+					tabbedPane.setBounds(0, 0, desktopPane.getWidth(), desktopPane.getHeight());
+			}
+		});
+		viewContainer = new JPanel(new CardLayout());
+		viewContainer.add(tabbedPane, TABS);
+		viewContainer.add(desktopPane, DESKTOP);
+		this.getContentPane().setLayout(new BorderLayout());
+		this.getContentPane().add(viewContainer, BorderLayout.CENTER);
+		windowButtons = createWindowButtons();
+		//Following line is safeguard against a NullPoniterException 
+		//which is thrown when user of MDIFrame class calls
+		//addNewInternalView() method before setting a JMenuBar for
+		//the JFrame.
+		setJMenuBar( new JMenuBar() );
+		this.setCurrentViewPane(MDIFrame.TABS);
+		
+		getRootPane().getActionMap().put("showQuickSwitcher", new AbstractAction(){
+			public void actionPerformed(ActionEvent e){
+				showQuickSwitcher();
+			}
+		});
+		setQuickSwitcherKeyStroke(quickSwitcherKeyStroke);
+	}
+	
+	/**
+	 * Registers the frame with the <code>MDIViewRegistry</code> when it
+	 * becomes displayable, that is when it is packed or shown.
+	 */
+	public void addNotify(){
+		super.addNotify();
+		MDIViewRegistry.getInstance().register(this);
+	}
+	
+	/**
+	 * Removes the frame and its views from the <code>MDIViewRegistry</code>
+	 * when it is disposed, so that the registry does not keep it alive.
+	 */
+	public void removeNotify(){
+		MDIViewRegistry.getInstance().unregister(this);
+		super.removeNotify();
+	}
+	
+	/**
+	 * Installs the listeners that fire the activation events, show the
+	 * system menu and drag tabs between groups on the tab group <code>pane</code>.
+	 */
+	private void installTabListeners(final MDITabbedPane pane){
 		//Give the focus to the defaultComoponent whenever the tab selection
 		//changes.
-		tabbedPane.addChangeListener(new ChangeListener(){
+		pane.addChangeListener(new ChangeListener(){
 			public void stateChanged(ChangeEvent e){					
-				MDIView view = (MDIView)tabbedPane.getSelectedComponent();
+				MDIView view = (MDIView)pane.getSelectedComponent();
+				//in a batch only the tab selected at its end gets its content
+				if(view != null && batchDepth == 0)
+					view.ensureContent();
+				//views moved between tab groups keep their activation
+				if(tabGroupsChanging)
+					return;
 				//System.out.println("currentViewPane: "+ currentViewPane + " paneChangedInternally: " + paneChangedInternally);
 				//fire MDIView activated and Deactivated events 
 				//if(currentViewPane.equals(MDIFrame.TABS) && paneChangedInternally == false){
 				//System.out.println("currentViewPane: "+ currentViewPane);
 				
 				if(currentViewPane.equals(MDIFrame.TABS)){
+					//the group the user or the application selects in becomes active
+					activeTabGroup = pane;
 					if(lastSelectedView == null){
 						if(view != null)
 							view.fireMDIViewEvent(MDIViewEvent.MDIVIEW_ACTIVIATED);
@@ -288,6 +500,9 @@ public class MDIFrame extends JFrame {
 					}
 					
 					suppressActiviationEvents = false;
+				}else if(docked){
+					if(view != null && !dockingInternally)
+						activateDockedView(view);
 				}else{
 					paneChangedInternally = false;
 				}
@@ -300,21 +515,54 @@ public class MDIFrame extends JFrame {
 			}
 		});
 
-		//System menu functionality
-		tabbedPane.addMouseListener(new MouseAdapter(){
+		//System menu functionality and dragging of tabs between groups
+		MouseAdapter mouseHandler = new MouseAdapter(){
+			/** The view whose tab is being dragged. */
+			private MDIView draggedView;
+			
+			public void mousePressed(MouseEvent e){
+				int index = pane.indexAtLocation(e.getX(), e.getY());
+				draggedView = index == -1 ? null : (MDIView)pane.getComponentAt(index);
+				//a click on a selected tab that is not active takes the activation
+				if(index != -1 && index == pane.getSelectedIndex()){
+					if(docked)
+						activateDockedView(draggedView);
+					else if(currentViewPane == TABS && pane != activeTabGroup)
+						activateTabGroup(pane);
+				}
+			}
+			
+			public void mouseDragged(MouseEvent e){
+				if(draggedView != null && tabGroups.size() > 1){
+					MDITabbedPane target = tabGroupAt(pane, e.getPoint());
+					pane.setCursor(target != null && target != pane ? Cursor.getPredefinedCursor(Cursor.MOVE_CURSOR) : null);
+				}
+			}
+			
 			public void mouseReleased(MouseEvent e){
+				if(draggedView != null && tabGroups.size() > 1){
+					MDITabbedPane target = tabGroupAt(pane, e.getPoint());
+					MDIView view = draggedView;
+					draggedView = null;
+					pane.setCursor(null);
+					if(target != null && target != pane && views.contains(view)){
+						moveToTabGroup(view, target);
+						return;
+					}
+				}
+				draggedView = null;
 				int x = e.getX();
 				int y = e.getY();
-				final int index = tabbedPane.indexAtLocation(x,y);
+				final int index = pane.indexAtLocation(x,y);
 				if(index != -1){
-					MDIIcon icon = (MDIIcon)tabbedPane.getIconAt(index);
+					MDIIcon icon = (MDIIcon)pane.getIconAt(index);
 					Rectangle iconArea = new Rectangle(icon.getLastX(), icon.getLastY(), icon.getIconWidth(), icon.getIconWidth());
 					if(iconArea.contains(x, y)){
 						JPopupMenu systemMenu = new JPopupMenu();
 						JMenuItem newItem = new JMenuItem(MDIFrame.this.restoreMenuText, MDIFrame.this.restoreMenuMnemonic);
 						newItem.addActionListener(new ActionListener(){
 							public void actionPerformed(ActionEvent e){
-								((MDIView)views.get(index)).setRestored();
+								((MDIView)pane.getComponentAt(index)).setRestored();
 							}
 						});
 						systemMenu.add(newItem);
@@ -322,7 +570,7 @@ public class MDIFrame extends JFrame {
 						newItem = new JMenuItem(MDIFrame.this.minimizeMenuText, MDIFrame.this.minimizeMenuMnemonic);
 						newItem.addActionListener(new ActionListener(){
 							public void actionPerformed(ActionEvent e){
-								((MDIView)views.get(index)).setIconified();
+								((MDIView)pane.getComponentAt(index)).setIconified();
 							}
 						});
 						systemMenu.add(newItem);
@@ -330,7 +578,7 @@ public class MDIFrame extends JFrame {
 						newItem = new JMenuItem(MDIFrame.this.closeMenuText, MDIFrame.this.closeMenuMnemonic);
 						newItem.addActionListener(new ActionListener(){
 							public void actionPerformed(ActionEvent e){
-								((MDIView)views.get(index)).closeView();
+								((MDIView)pane.getComponentAt(index)).closeView();
 							}
 						});
 						systemMenu.add(newItem);
@@ -339,24 +587,11 @@ public class MDIFrame extends JFrame {
 					}
 				}
 			}
-		});
+		};
+		pane.addMouseListener(mouseHandler);
+		pane.addMouseMotionListener(mouseHandler);
 		
-		tabbedPane.setFocusable(false);
-		desktopPane = new JDesktopPane();
-		desktopManager = new MDIDesktopManager();
-		desktopPane.setDesktopManager(desktopManager);
-		viewContainer = new JPanel(new CardLayout());
-		viewContainer.add(tabbedPane, TABS);
-		viewContainer.add(desktopPane, DESKTOP);
-		this.getContentPane().setLayout(new BorderLayout());
-		this.getContentPane().add(viewContainer, BorderLayout.CENTER);
-		windowButtons = createWindowButtons();
-		//Following line is safeguard against a NullPoniterException 
-		//which is thrown when user of MDIFrame class calls
-		//addNewInternalView() method before setting a JMenuBar for
-		//the JFrame.
-		setJMenuBar( new JMenuBar() );
-		this.setCurrentViewPane(MDIFrame.TABS);
+		pane.setFocusable(false);
 	}
 	
 	/** 
@@ -420,6 +655,9 @@ public class MDIFrame extends JFrame {
 	 * @param lastSelectedView The lastSelectedView to set.
 	 */
 	void setLastSelectedView(MDIView lastSelectedView) {
+		//a frame deactivated while its view is closed must not keep the view alive
+		if(lastSelectedView != null && !viewIndex.contains(lastSelectedView))
+			lastSelectedView = null;
 		this.lastSelectedView = lastSelectedView;
 	}
 	
@@ -476,29 +714,126 @@ public class MDIFrame extends JFrame {
 	 * @param view The <code>MDIView</code> tobe added 
 	 */
 	public void addInternalView(MDIView view){
+		addInternalView(view, true);
+	}
+	
+	/**
+	 * Adds all <code>views</code> to the <code>MDIFrame</code> and displays them.
+	 * This has the same effect as calling <code>addInternalView()</code> for
+	 * each view, but when the <code>currentViewPane</code> is 
+	 * <code>MDIFrame.TABS</code> only the last view is selected, and 
+	 * listeners such as <code>MDIWindowsMenu</code> update themselves only
+	 * once for the whole batch.
+	 * @param views the views to add.
+	 */
+	public void addInternalViews(Collection<? extends MDIView> views){
+		addInternalViews(views, null);
+	}
+	
+	/**
+	 * Adds all <code>views</code> to the <code>MDIFrame</code> like 
+	 * <code>addInternalViews(Collection)</code> and selects 
+	 * <code>selectedView</code>. When the <code>currentViewPane</code> is 
+	 * <code>MDIFrame.TABS</code> the content of deferred views is only created
+	 * for the tab that is selected at the end, so restoring many deferred 
+	 * views realizes just one of them.
+	 * @param views the views to add.
+	 * @param selectedView the view to select, <code>null</code> to select
+	 * 			the last view.
+	 */
+	public void addInternalViews(Collection<? extends MDIView> views, MDIView selectedView){
+		if(views.isEmpty())
+			return;
+		if(selectedView != null && !views.contains(selectedView))
+			selectedView = null;
+		batchDepth++;
+		try{
+			Iterator<? extends MDIView> it = views.iterator();
+			while(it.hasNext()){
+				MDIView view = it.next();
+				addInternalView(view, selectedView == null ? !it.hasNext() : view == selectedView);
+			}
+		}finally{
+			batchDepth--;
+		}
+		if(batchDepth == 0){
+			if(currentViewPane == TABS){
+				MDIView view = (MDIView)activeTabGroup.getSelectedComponent();
+				if(view != null)
+					view.ensureContent();
+			}else if(selectedView != null){
+				setActiveView(selectedView);
+			}
+			fireViewsChanged();
+		}
+	}
+	
+	/**
+	 * Returns whether views are currently added in a batch. Listeners
+	 * may skip expensive updates while this is <code>true</code>, a 
+	 * <code>MDIFrameEvent</code> is fired at the end of the batch.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 */
+	boolean isBatchUpdating(){
+		return batchDepth > 0;
+	}
+	
+	/**
+	 * Adds the <code>view</code> and selects it if <code>select</code>
+	 * is <code>true</code> and the <code>currentViewPane</code> is 
+	 * <code>MDIFrame.TABS</code>.
+	 */
+	private void addInternalView(MDIView view, boolean select){
+		long start = beginOperation(MDIOperation.ADD_VIEW);
+		Object flightEvent = MDIFlightRecorder.beginViewOpen();
+		try{
+			addInternalViewInternally(view, select);
+		}finally{
+			endOperation(start);
+			MDIFlightRecorder.end(flightEvent, view.getTitle(), views.size());
+		}
+	}
+	
+	private void addInternalViewInternally(MDIView view, boolean select){
 		windowCounter++;
 		if(view.getTitle() == null){
 			view.setInitTitle("Untitled" + windowCounter);
 		}
 		views.add(view);
-		
+		viewIndex.add(view);
+		showView(view, select, null);
+		view.fireMDIViewEvent(MDIViewEvent.MDIVIEW_OPENED);
+	}
+	
+	/**
+	 * Shows <code>view</code>, which has just been added to <code>views</code>,
+	 * as a tab or in a new internal frame.
+	 * @param bounds the bounds of the internal frame or <code>null</code> for
+	 * 			the next default location.
+	 */
+	private void showView(MDIView view, boolean select, Rectangle bounds){
 		if(currentViewPane.equals(TABS)){
 			if(views.size() == 1){
 				addWindowButtons();
 			}
-			tabbedPane.addTab(view.getTitle(), view.getIcon(), view);
+			activeTabGroup.addTab(view.getTitle(), view.getIcon(), view);
 			view.changeState(MDIView.MAXIMIZED);
-			tabbedPane.setSelectedComponent(view);
+			if(select)
+				activeTabGroup.setSelectedComponent(view);
 			//System.out.println("view is max " + view.isMaximized());			
 		}else{
 			MDIInternalFrame frame = new MDIInternalFrame(this, view);
-			Point location = newWindowLocation();
-			frame.setLocation(location);
-			int desktopWidth = desktopPane.getWidth();
-			int desktopHeight = desktopPane.getHeight();
-			int width = desktopWidth-100 > 100 ? desktopWidth-100 : 100;
-			int height = desktopHeight-50 > 50 ? desktopHeight-50 : 50;
-			frame.setSize(width, height);
+			if(bounds == null){
+				Point location = newWindowLocation();
+				frame.setLocation(location);
+				int desktopWidth = desktopPane.getWidth();
+				int desktopHeight = desktopPane.getHeight();
+				int width = desktopWidth-100 > 100 ? desktopWidth-100 : 100;
+				int height = desktopHeight-50 > 50 ? desktopHeight-50 : 50;
+				frame.setSize(width, height);
+			}else{
+				frame.setBounds(bounds);
+			}
 					
 			view.changeState(MDIView.RESTORED);
 			view.setFrameBounds(frame.getBounds());
@@ -507,7 +842,6 @@ public class MDIFrame extends JFrame {
 			frame.setVisible(true);
 			
 		}
-		view.fireMDIViewEvent(MDIViewEvent.MDIVIEW_OPENED);
 	}
 	
 	/**
@@ -526,13 +860,25 @@ public class MDIFrame extends JFrame {
 	 * events. It will only fire <code>MDIFrameEvent</code>s.
 	 */
 	public void changeView(){
+		long start = beginOperation(MDIOperation.CHANGE_VIEW);
+		Object flightEvent = MDIFlightRecorder.beginPaneSwitch(currentViewPane);
+		try{
+			changeViewInternally();
+		}finally{
+			endOperation(start);
+			MDIFlightRecorder.end(flightEvent, currentViewPane, views.size());
+		}
+	}
+	
+	private void changeViewInternally(){
 		if(currentViewPane == MDIFrame.TABS){
 			if(views.size() == 0){
 				this.setCurrentViewPane(MDIFrame.DESKTOP);
 			}else{
 				currentViewPane = MDIFrame.DESKTOP;
-				MDIView activeView = (MDIView)tabbedPane.getSelectedComponent();
+				MDIView activeView = getActiveView();
 				MDIInternalFrame frameToActivate = null;
+				removeTabGroups();
 				tabbedPane.removeAll();
 				for(int i=0; i<views.size(); i++){
 					MDIView view = (MDIView)views.get(i);
@@ -568,7 +914,10 @@ public class MDIFrame extends JFrame {
 						suppressIconifiedEvent = true;
 						try{frame.setIcon(true);}catch(PropertyVetoException pve){}
 					}else{
-						view.changeState(MDIView.RESTORED);						
+						view.changeState(MDIView.RESTORED);
+						//restored frames are visible on the desktop so 
+						//they need their content.
+						view.ensureContent();
 					}
 					
 					if(view == activeView){
@@ -591,13 +940,16 @@ public class MDIFrame extends JFrame {
 			MDIFrameEvent event = new MDIFrameEvent(this, MDIFrame.TABS, MDIFrame.DESKTOP);
 			this.fireMDIFrameEvent(event);
 		} else{
+			MDIView dockedActive = dockedActiveView;
+			if(docked)
+				undockAll();
 			if(views.size() == 0){
 				this.setCurrentViewPane(MDIFrame.TABS);
 			}else{
 				JInternalFrame selectedFrame = desktopPane.getSelectedFrame();
 				MDIView activeView = null;
 				if( selectedFrame == null){
-					activeView = (MDIView)views.get(0);					
+					activeView = dockedActive != null ? dockedActive : (MDIView)views.get(0);
 				}else{
 					activeView = (MDIView)selectedFrame.getContentPane();
 					((MDIInternalFrame)desktopPane.getSelectedFrame()).setDeactivatedInternally(true);	//Force to skip a unwanted Mdiview deactivated event
@@ -654,7 +1006,9 @@ public class MDIFrame extends JFrame {
 	public void setDesktopBackground(Color c){
 		desktopPane.setBackground(c);
 		desktopPane.repaint();
-		tabbedPane.repaint();		
+		for(int i=0; i<tabGroups.size(); i++){
+			tabGroups.get(i).repaint();
+		}
 	}
 	
 	
@@ -838,124 +1192,1141 @@ public class MDIFrame extends JFrame {
 	public String getCurrentViewPane() {
 		return currentViewPane;
 	}
+	
 	/**
-	 * Gives the tabbed pane that is used to show vies as tabs
-	 * when one of the views is in maximized state.
-	 * @return Returns the tabbedPane.
+	 * Returns whether the frame uses the hybrid layout, in which views can
+	 * be docked as tabs on the desktop while other views float as internal
+	 * frames.
+	 * @return <code>true</code> if the hybrid layout is used.
+	 * @see MDIFrame#dockView(MDIView)
 	 */
-	public MDITabbedPane getTabbedPane() {
-		return tabbedPane;
+	public boolean isHybridLayout() {
+		return hybridLayout;
 	}
 	
 	/**
-	 * gives the <code>JDesktopPane</code> that is used to show
-	 * <code>JInternalFrame</code>s when on of the views is in 
-	 * resotred or minimized state. 
-	 * @return Returns the dektopPane.
+	 * Sets whether the frame uses the hybrid layout. With the hybrid layout
+	 * maximizing a view when the <code>currentViewPane</code> is 
+	 * <code>MDIFrame.DESKTOP</code> docks only that view as a tab that fills 
+	 * the desktop beneath the internal frames, instead of switching all views
+	 * to <code>MDIFrame.TABS</code>. Restoring a docked view makes it float 
+	 * again. Turning the hybrid layout off floats all docked views.
+	 * @param hybridLayout <code>true</code> to use the hybrid layout.
 	 */
-	public JDesktopPane getDektopPane() {
-		return desktopPane;
+	public void setHybridLayout(boolean hybridLayout) {
+		this.hybridLayout = hybridLayout;
+		if(!hybridLayout){
+			while(docked)
+				floatView((MDIView)tabbedPane.getComponentAt(0));
+		}
 	}
 	
 	/**
-	 * Gives the custom desktop manager that is used to manages
-	 * the internal frames.
-	 * @return the desktop manager.
+	 * Docks <code>view</code> as a tab that fills the desktop beneath the
+	 * internal frames, activates it and fires a <code>MDIView</code> 
+	 * maximized event. The other views are not touched. Nothing happens 
+	 * if the view is already docked or the <code>currentViewPane</code> is 
+	 * <code>MDIFrame.TABS</code>.
+	 * @param view the view to dock.
+	 * @throws IllegalArgumentException if the <code>MDIFrame</code> does not contain the <code>view</code>.
+	 * @see MDIView#getViewPane()
 	 */
-	public MDIDesktopManager getDesktopManager() {
-		return desktopManager;
+	public void dockView(MDIView view) throws IllegalArgumentException{
+		if(!views.contains(view))
+			throw new IllegalArgumentException("The MDIFrame does not contain the specified view");
+		if(currentViewPane == TABS || isDocked(view))
+			return;
+		MDIInternalFrame frame = (MDIInternalFrame)SwingUtilities.getAncestorOfClass(MDIInternalFrame.class, view);
+		if(frame == null)
+			return;
+		view.setFrameBounds(frame.isIcon() || frame.isMaximum() ? frame.getNormalBounds() : frame.getBounds());
+		view.setWasIconified(false);
+		dockingInternally = true;
+		try{
+			if(frame.isSelected()){
+				//the view stays active as docked view, and no other frame 
+				//is activated when its frame is disposed
+				frame.setDeactivatedInternally(true);
+				try{frame.setSelected(false);}catch(PropertyVetoException pve){}
+				dockedActiveView = view;
+			}
+			frame.disposeInternally();
+			if(!docked){
+				docked = true;
+				viewContainer.remove(tabbedPane);
+				tabbedPane.setVisible(true);
+				tabbedPane.setBounds(0, 0, desktopPane.getWidth(), desktopPane.getHeight());
+				desktopPane.add(tabbedPane, DOCK_LAYER);
+			}
+			tabbedPane.addTab(view.getTitle(), view.getIcon(), view);
+			tabbedPane.setSelectedComponent(view);
+		}finally{
+			dockingInternally = false;
+		}
+		view.changeState(MDIView.MAXIMIZED);
+		view.ensureContent();
+		activateDockedView(view);
+		tabbedPane.revalidate();
+		view.fireMDIViewEvent(MDIViewEvent.MDIVIEW_MAXIMIZED);
 	}
 	
 	/**
-	 * Returns a vector containing all the views those are contained by this <code>MDIFrame</code>. 
-	 * @return Returns the views.
+	 * Makes the docked <code>view</code> float as an internal frame with 
+	 * its former bounds, activates it and fires a <code>MDIView</code> 
+	 * restored event. Nothing happens if the view is not docked.
+	 * @param view the view to float.
+	 * @see MDIFrame#dockView(MDIView)
 	 */
-	public Vector getViews() {
-		return views;
+	public void floatView(MDIView view){
+		if(floatViewInternally(view))
+			view.fireMDIViewEvent(MDIViewEvent.MDIVIEW_RESTORED);
 	}
 	
 	/**
-	 * Gives the currently active view. Note that this may return null 
-	 * if all windows are minimised and not a single one is selected.
-	 *  
-	 * @return currently active view or <code>null</code>.
-	 */
-	public MDIView getActiveView(){
-		if(currentViewPane == TABS){
-			return (MDIView)tabbedPane.getSelectedComponent();
+	 * Floats the docked <code>view</code> without firing a restored event.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 * @return <code>false</code> if the view was not docked.
+	 */
+	boolean floatViewInternally(MDIView view){
+		if(!isDocked(view))
+			return false;
+		boolean wasActive = dockedActiveView == view;
+		if(wasActive)
+			dockedActiveView = null;
+		removeDockedTab(view);
+		
+		MDIInternalFrame frame = new MDIInternalFrame(this, view);
+		Rectangle rect = view.getFrameBounds();
+		if(rect == null){
+			frame.setLocation(newWindowLocation());
+			int width = desktopPane.getWidth()-100 > 100 ? desktopPane.getWidth()-100 : 100;
+			int height = desktopPane.getHeight()-50 > 50 ? desktopPane.getHeight()-50 : 50;
+			frame.setSize(width, height);
 		}else{
-			//this may return null if all windows are minimised and 
-			//not a single one is selected.
-			JInternalFrame selectedFrame = desktopPane.getSelectedFrame();
-			if(selectedFrame != null)
-				return (MDIView)selectedFrame.getContentPane();
-			else
-				return null;
+			frame.setBounds(rect);
 		}
+		view.changeState(MDIView.RESTORED);
+		view.setFrameBounds(frame.getBounds());
+		frame.addInternalFrameListener(new FrameListener());
+		desktopPane.add(frame);
+		frame.show();
+		if(wasActive)
+			frame.activateInternally();
+		else
+			try{frame.setSelected(true);}catch(PropertyVetoException pve){}
+		return true;
 	}
 	
 	/**
-	 * Sets <code>view</code> as currently active view if it is not 
-	 * currently active and sends MDIView selected and deselected 
-	 * events to corrosponding views. Note that no events are generated
-	 * if <code>view</code> is already active.
-	 * 
-	 * @param view <code>view</code> to set active.
-	 * @throws IllegalArgumentException if <code>view </code> equals to <code>null</code>
-	 * or the <code>MDIFrame</code> does not contain the <code>view</code>.
+	 * Returns whether <code>view</code> is docked as a tab on the desktop.
 	 */
-	public void setActiveView(MDIView view) throws IllegalArgumentException{
-		if(view == null){
-			throw new IllegalArgumentException("view should not be null");
-		}			
-			
-		if(views.contains(view) == false){
-			throw new IllegalArgumentException("The MDIFrame does not contain the specified view");
-		}
-		
-		if(currentViewPane == MDIFrame.TABS){
-			tabbedPane.setSelectedComponent(view);
-		}else{
-			JInternalFrame[] frames = desktopPane.getAllFrames();
-			for(int i=0; i<frames.length; i++){
-				if(frames[i].getContentPane() == view){
-					try{frames[i].setSelected(true);}catch(PropertyVetoException pve){}
-					break;
-				}					
-			}
-		}		
+	boolean isDocked(MDIView view){
+		return docked && view.getParent() == tabbedPane;
 	}
 	
-
-	
 	/**
-	 * Gives the view which should get the focus after <code>aView</code>.
-	 * <p>The next focusable view returneed by this method is the next element
-	 * after <code>aView</code> in the <code>views</code> 
-	 * (can be obtained by <code>mdiFrameObj.getViews()</code>) vector. Note 
-	 * that this is inconsistant with default <code>JDesktopPane</code> implementation
-	 * where always the topmost available internal frame would get the focus. 
-	 * 
-	 * @param aView the specified <code>MDIView</code> 
-	 * @return the next view which should get focus.
-	 * @throws IllegalArgumentException if <code>aView</code> is null or if 
-	 * the <code>MDIFrame</code> does not contain <code>aView</code>.
-	 * @see javax.swing.JDesktopPane
-	 * @see javax.swing.JLayeredPane
-	 * @see MDIFrame#getViews()
+	 * Removes the tab of the docked <code>view</code> and the tabbed pane
+	 * from the desktop if it was the last docked view.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
 	 */
-	public MDIView nextFocusableView(MDIView aView) throws IllegalArgumentException{
-		if(aView == null){
-			throw new IllegalArgumentException("aView should not be null");
-		}else{
-			int index = views.indexOf(aView);
-			if(index == -1){
-				throw new IllegalArgumentException("The MDIFrame doesnot contain the View");
-			}
-			if(index < views.size() - 1){
-				return (MDIView)views.get(index + 1);
-			}else{
-				return (MDIView)views.get(0);
+	void removeDockedTab(MDIView view){
+		dockingInternally = true;
+		try{
+			tabbedPane.remove(view);
+			if(tabbedPane.getTabCount() == 0){
+				desktopPane.remove(tabbedPane);
+				viewContainer.add(tabbedPane, TABS);
+				docked = false;
+			}
+		}finally{
+			dockingInternally = false;
+		}
+		desktopPane.repaint();
+	}
+	
+	/**
+	 * Removes all docked views from the desktop, their tabs are recreated 
+	 * by <code>changeView()</code>.
+	 */
+	private void undockAll(){
+		dockingInternally = true;
+		try{
+			tabbedPane.removeAll();
+			desktopPane.remove(tabbedPane);
+			viewContainer.add(tabbedPane, TABS);
+		}finally{
+			dockingInternally = false;
+		}
+		docked = false;
+		dockedActiveView = null;
+	}
+	
+	/**
+	 * Makes the docked <code>view</code> the active view: the selected 
+	 * internal frame is deactivated and the view receives a activated event
+	 * unless it is already active.
+	 */
+	private void activateDockedView(MDIView view){
+		JInternalFrame selectedFrame = desktopPane.getSelectedFrame();
+		if(selectedFrame != null){
+			try{selectedFrame.setSelected(false);}catch(PropertyVetoException pve){}
+		}
+		if(dockedActiveView != view){
+			MDIView previous = dockedActiveView;
+			dockedActiveView = view;
+			if(previous != null)
+				previous.fireMDIViewEvent(MDIViewEvent.MDIVIEW_DEACTIVIATED);
+			view.fireMDIViewEvent(MDIViewEvent.MDIVIEW_ACTIVIATED);
+		}
+		Component comp = view.getDefaultComponent();
+		if(comp != null)
+			comp.requestFocusInWindow();
+	}
+	
+	/**
+	 * Called when an internal frame is activated. The active docked view,
+	 * if any, receives a deactivated event.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 */
+	void dockedViewDeactivated(){
+		if(dockedActiveView != null){
+			MDIView view = dockedActiveView;
+			dockedActiveView = null;
+			view.fireMDIViewEvent(MDIViewEvent.MDIVIEW_DEACTIVIATED);
+		}
+	}
+	
+	/**
+	 * Closes the docked <code>view</code> and activates the selected docked
+	 * view, or the first internal frame if no view is docked any more.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 */
+	void closeDockedView(MDIView view){
+		boolean wasActive = dockedActiveView == view;
+		if(wasActive)
+			dockedActiveView = null;
+		removeDockedTab(view);
+		removeView(view);
+		view.fireMDIViewEvent(MDIViewEvent.MDIVIEW_CLOSED);
+		if(wasActive){
+			view.fireMDIViewEvent(MDIViewEvent.MDIVIEW_DEACTIVIATED);
+			if(docked){
+				activateDockedView((MDIView)tabbedPane.getSelectedComponent());
+			}else{
+				JInternalFrame[] frames = desktopPane.getAllFrames();
+				if(frames.length > 0)
+					try{frames[0].setSelected(true);}catch(PropertyVetoException pve){}
+			}
+		}
+	}
+	/**
+	 * Moves <code>view</code> out of the <code>MDIFrame</code> into its own
+	 * top-level window at the place it is currently shown on the screen.
+	 * @param view the view to detach.
+	 * @return the window that shows the view.
+	 * @throws IllegalArgumentException if the <code>MDIFrame</code> does not contain the <code>view</code>.
+	 * @see MDIFrame#detachView(MDIView, Rectangle)
+	 */
+	public MDIDetachedWindow detachView(MDIView view) throws IllegalArgumentException{
+		return detachView(view, null);
+	}
+	
+	/**
+	 * Moves <code>view</code> out of the <code>MDIFrame</code> into its own
+	 * top-level window. The components of the view are moved, not 
+	 * recreated, and its listeners stay registered. If the view was active
+	 * it receives a deactivated event and the next view of the frame is 
+	 * activated, the view is activated again when its window is activated.
+	 * <p>
+	 * A detached view is not contained in <code>getViews()</code> any more, 
+	 * its <code>getViewPane()</code> is <code>MDIFrame.DETACHED</code>. It 
+	 * stays in the <code>getViewIndex()</code> so that it is found by the 
+	 * quick switcher, and it is closed with <code>closeView()</code> or 
+	 * the close button of its window as usual. Nothing happens if the view
+	 * is already detached. <code>MDIWorkspace</code> and the 
+	 * <code>MDIWorkspaceJournal</code> save a detached view with the screen
+	 * bounds of its window.
+	 * @param view the view to detach.
+	 * @param bounds the bounds of the window in screen coordinates, or 
+	 * 			<code>null</code> to keep the view where it is on the screen.
+	 * @return the window that shows the view.
+	 * @throws IllegalArgumentException if the <code>MDIFrame</code> does not contain the <code>view</code>.
+	 * @see MDIFrame#attachView(MDIView)
+	 */
+	public MDIDetachedWindow detachView(MDIView view, Rectangle bounds) throws IllegalArgumentException{
+		MDIDetachedWindow window = detachedViews.get(view);
+		if(window != null)
+			return window;
+		if(!views.contains(view))
+			throw new IllegalArgumentException("The MDIFrame does not contain the specified view");
+		Rectangle screenBounds = bounds;
+		if(screenBounds == null && view.isShowing())
+			screenBounds = new Rectangle(view.getLocationOnScreen(), view.getSize());
+		
+		removeFromViewPane(view);
+		views.remove(view);
+		if(views.size() == 0)
+			removeWindowButtons();
+		if(lastSelectedView == view)
+			lastSelectedView = null;
+		view.changeState(MDIView.RESTORED);
+		view.setWasIconified(false);
+		
+		window = new MDIDetachedWindow(this, view);
+		detachedViews.put(view, window);
+		window.pack();
+		if(screenBounds != null){
+			Insets insets = window.getInsets();
+			if(bounds == null)
+				window.setBounds(screenBounds.x - insets.left, screenBounds.y - insets.top,
+						screenBounds.width + insets.left + insets.right, screenBounds.height + insets.top + insets.bottom);
+			else
+				window.setBounds(screenBounds);
+		}else{
+			window.setLocationRelativeTo(this);
+		}
+		view.ensureContent();
+		window.setVisible(true);
+		
+		//the journal keeps the view, as detached with the bounds of its window
+		MDIWorkspaceJournal journal = workspaceJournal;
+		if(journal != null)
+			journal.viewEventFired(view, MDIViewEvent.MDIVIEW_OPENED);
+		fireViewsChanged();
+		return window;
+	}
+	
+	/**
+	 * Moves the detached <code>view</code> back into the <code>MDIFrame</code>
+	 * and activates it. It is shown as a tab or, on the desktop, as 
+	 * internal frame with the bounds it had before it was detached. Nothing
+	 * happens if the view is not detached.
+	 * @param view the view to attach.
+	 * @see MDIFrame#detachView(MDIView)
+	 */
+	public void attachView(MDIView view){
+		MDIDetachedWindow window = detachedViews.remove(view);
+		if(window == null)
+			return;
+		window.releaseView();
+		views.add(view);
+		showView(view, true, view.getFrameBounds());
+		
+		MDIWorkspaceJournal journal = workspaceJournal;
+		if(journal != null)
+			journal.viewEventFired(view, MDIViewEvent.MDIVIEW_OPENED);
+		fireViewsChanged();
+		setActiveView(view);
+	}
+	
+	/**
+	 * Returns whether <code>view</code> is detached from this <code>MDIFrame</code>.
+	 * @param view the view.
+	 * @return <code>true</code> if the view is shown in its own window.
+	 * @see MDIFrame#detachView(MDIView)
+	 */
+	public boolean isDetached(MDIView view){
+		return detachedViews.containsKey(view);
+	}
+	
+	/**
+	 * Gives the views that are detached from this <code>MDIFrame</code>.
+	 * @return the detached views in the order they were detached.
+	 */
+	public List<MDIView> getDetachedViews(){
+		return new ArrayList<MDIView>(detachedViews.keySet());
+	}
+	
+	/**
+	 * Gives the window that shows the detached <code>view</code>.
+	 * @param view the view.
+	 * @return the window or <code>null</code> if the view is not detached.
+	 */
+	public MDIDetachedWindow getDetachedWindow(MDIView view){
+		return detachedViews.get(view);
+	}
+	
+	/**
+	 * Takes <code>view</code> out of this frame for a move to another frame,
+	 * without closing it.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 * @see MDIViewRegistry#moveView(MDIView, MDIFrame)
+	 */
+	void transferOut(MDIView view){
+		MDIDetachedWindow window = detachedViews.remove(view);
+		if(window != null){
+			window.releaseView();
+		}else{
+			removeFromViewPane(view);
+			views.remove(view);
+			if(views.size() == 0)
+				removeWindowButtons();
+			if(lastSelectedView == view)
+				lastSelectedView = null;
+		}
+		viewIndex.remove(view);
+		dirtyViews.remove(view);
+		
+		MDIWorkspaceJournal journal = workspaceJournal;
+		if(journal != null)
+			journal.viewEventFired(view, MDIViewEvent.MDIVIEW_CLOSED);
+		fireViewsChanged();
+	}
+	
+	/**
+	 * Adds <code>view</code>, which was taken out of another frame, to this
+	 * frame and activates it.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 * @see MDIViewRegistry#moveView(MDIView, MDIFrame)
+	 */
+	void transferIn(MDIView view){
+		view.setMdiFrame(this);
+		view.setWasIconified(false);
+		views.add(view);
+		viewIndex.add(view);
+		showView(view, true, view.getFrameBounds());
+		
+		MDIWorkspaceJournal journal = workspaceJournal;
+		if(journal != null)
+			journal.viewEventFired(view, MDIViewEvent.MDIVIEW_OPENED);
+		fireViewsChanged();
+		setActiveView(view);
+	}
+	
+	/**
+	 * Closes the detached <code>view</code> and disposes its window.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 */
+	void closeDetachedView(MDIView view){
+		MDIDetachedWindow window = detachedViews.remove(view);
+		if(window == null)
+			return;
+		window.releaseView();
+		removeView(view);
+		view.fireMDIViewEvent(MDIViewEvent.MDIVIEW_CLOSED);
+	}
+	
+	/**
+	 * Removes <code>view</code> from its tab or internal frame without 
+	 * closing it. If it was the active view it receives a deactivated event
+	 * and another view of the frame is activated.
+	 */
+	private void removeFromViewPane(MDIView view){
+		if(currentViewPane == TABS){
+			MDITabbedPane group = getTabGroup(view);
+			boolean wasActive = view == lastSelectedView;
+			tabGroupsChanging = true;
+			try{
+				group.removeTabAt(group.indexOfComponent(view));
+			}finally{
+				tabGroupsChanging = false;
+			}
+			MDITabbedPane active = removeEmptyTabGroup(group, activeTabGroup);
+			if(wasActive){
+				lastSelectedView = null;
+				view.fireMDIViewEvent(MDIViewEvent.MDIVIEW_DEACTIVIATED);
+				activateTabGroup(active);
+			}
+		}else if(isDocked(view)){
+			boolean wasActive = dockedActiveView == view;
+			if(wasActive)
+				dockedActiveView = null;
+			removeDockedTab(view);
+			if(wasActive){
+				view.fireMDIViewEvent(MDIViewEvent.MDIVIEW_DEACTIVIATED);
+				if(docked)
+					activateDockedView((MDIView)tabbedPane.getSelectedComponent());
+			}
+		}else{
+			MDIInternalFrame frame = (MDIInternalFrame)SwingUtilities.getAncestorOfClass(MDIInternalFrame.class, view);
+			view.setFrameBounds(frame.isIcon() || frame.isMaximum() ? frame.getNormalBounds() : frame.getBounds());
+			boolean wasSelected = frame.isSelected();
+			if(wasSelected){
+				//fires the deactivated event, no other frame is selected by 
+				//the desktop manager when the frame is disposed
+				try{frame.setSelected(false);}catch(PropertyVetoException pve){}
+			}
+			frame.disposeInternally();
+			if(wasSelected){
+				JInternalFrame[] frames = desktopPane.getAllFrames();
+				if(frames.length > 0)
+					try{frames[0].setSelected(true);}catch(PropertyVetoException pve){}
+			}
+		}
+	}
+	
+	/**
+	 * Gives the tabbed pane that is used to show vies as tabs
+	 * when one of the views is in maximized state.
+	 * @return Returns the tabbedPane.
+	 */
+	public MDITabbedPane getTabbedPane() {
+		return tabbedPane;
+	}
+	
+	/**
+	 * Gives the tab groups shown side by side when the 
+	 * <code>currentViewPane</code> is <code>MDIFrame.TABS</code>. The first 
+	 * group is the tabbed pane returned by <code>getTabbedPane()</code>.
+	 * @return a copy of the list of tab groups.
+	 * @see MDIFrame#splitTabGroup(MDIView, int)
+	 */
+	public List<MDITabbedPane> getTabGroups() {
+		return new ArrayList<MDITabbedPane>(tabGroups);
+	}
+	
+	/**
+	 * Gives the tab group that shows <code>view</code>.
+	 * @param view the view.
+	 * @return the tab group or <code>null</code> if the view is not shown as a tab.
+	 */
+	public MDITabbedPane getTabGroup(MDIView view) {
+		Container parent = view.getParent();
+		return parent instanceof MDITabbedPane ? (MDITabbedPane)parent : null;
+	}
+	
+	/**
+	 * Moves <code>view</code> into a new tab group that is shown next to
+	 * its current group, and activates it. The space of the current group is 
+	 * split between both groups.
+	 * @param view the view to move.
+	 * @param orientation <code>JSplitPane.HORIZONTAL_SPLIT</code> to show 
+	 * 			the new group on the right, <code>JSplitPane.VERTICAL_SPLIT</code>
+	 * 			to show it below.
+	 * @return the new tab group, or the current group of the view if it is
+	 * 			the only view of its group.
+	 * @throws IllegalArgumentException if the <code>MDIFrame</code> does not
+	 * 			contain the <code>view</code> or the orientation is invalid.
+	 * @throws IllegalStateException if the <code>currentViewPane</code> is not 
+	 * 			<code>MDIFrame.TABS</code>.
+	 */
+	public MDITabbedPane splitTabGroup(MDIView view, int orientation) throws IllegalArgumentException{
+		if(orientation != JSplitPane.HORIZONTAL_SPLIT && orientation != JSplitPane.VERTICAL_SPLIT)
+			throw new IllegalArgumentException("orientation must be one of JSplitPane.HORIZONTAL_SPLIT or JSplitPane.VERTICAL_SPLIT");
+		MDITabbedPane group = checkTabGroup(view);
+		if(group.getTabCount() == 1)
+			return group;
+		
+		MDITabbedPane newGroup = new MDITabbedPane(this);
+		installTabListeners(newGroup);
+		newGroup.setOverflowMode(tabOverflowMode);
+		newGroup.setFocusable(false);
+		int size = orientation == JSplitPane.HORIZONTAL_SPLIT ? group.getWidth() : group.getHeight();
+		JSplitPane split = new JSplitPane(orientation, true);
+		split.setBorder(null);
+		split.setResizeWeight(0.5);
+		replaceTabGroupNode(group, split);
+		split.setLeftComponent(group);
+		split.setRightComponent(newGroup);
+		if(size > 0)
+			split.setDividerLocation(size / 2);
+		tabGroups.add(newGroup);
+		split.revalidate();
+		moveTab(view, group, newGroup);
+		return newGroup;
+	}
+	
+	/**
+	 * Moves <code>view</code> into the tab group <code>group</code> and 
+	 * activates it. A group that has no views left is removed and its space
+	 * is given to the neighbouring group.
+	 * @param view the view to move.
+	 * @param group the target group, one of <code>getTabGroups()</code>.
+	 * @throws IllegalArgumentException if the <code>MDIFrame</code> does not
+	 * 			contain the <code>view</code> or the <code>group</code>.
+	 * @throws IllegalStateException if the <code>currentViewPane</code> is not 
+	 * 			<code>MDIFrame.TABS</code>.
+	 */
+	public void moveToTabGroup(MDIView view, MDITabbedPane group) throws IllegalArgumentException{
+		MDITabbedPane source = checkTabGroup(view);
+		if(!tabGroups.contains(group))
+			throw new IllegalArgumentException("The MDIFrame does not contain the specified tab group");
+		if(source != group)
+			moveTab(view, source, group);
+	}
+	
+	/**
+	 * Moves all views back into the first tab group and removes the others.
+	 */
+	public void mergeTabGroups(){
+		if(tabGroups.size() == 1)
+			return;
+		MDIView activeView = currentViewPane == TABS ? getActiveView() : null;
+		tabGroupsChanging = true;
+		try{
+			while(tabGroups.size() > 1){
+				MDITabbedPane group = tabGroups.get(tabGroups.size() - 1);
+				while(group.getTabCount() > 0){
+					MDIView view = (MDIView)group.getComponentAt(0);
+					group.removeTabAt(0);
+					tabbedPane.addTab(view.getTitle(), view.getIcon(), view);
+				}
+				removeTabGroup(group);
+			}
+			if(activeView != null)
+				tabbedPane.setSelectedComponent(activeView);
+		}finally{
+			tabGroupsChanging = false;
+		}
+		activeTabGroup = tabbedPane;
+		fireViewsChanged();
+	}
+	
+	/**
+	 * Gives the tab group of <code>view</code> after checking that tab 
+	 * groups can be used.
+	 */
+	private MDITabbedPane checkTabGroup(MDIView view){
+		if(!views.contains(view))
+			throw new IllegalArgumentException("The MDIFrame does not contain the specified view");
+		if(currentViewPane != TABS)
+			throw new IllegalStateException("Tab groups can only be used when the currentViewPane is MDIFrame.TABS");
+		return getTabGroup(view);
+	}
+	
+	/**
+	 * Moves the tab of <code>view</code> from <code>source</code> to 
+	 * <code>target</code>, removes <code>source</code> if it is empty and
+	 * activates the view. Only the two groups are laid out again.
+	 */
+	private void moveTab(MDIView view, MDITabbedPane source, MDITabbedPane target){
+		tabGroupsChanging = true;
+		try{
+			source.removeTabAt(source.indexOfComponent(view));
+			target.addTab(view.getTitle(), view.getIcon(), view);
+			target.setSelectedComponent(view);
+			if(source.getTabCount() == 0)
+				target = removeEmptyTabGroup(source, target);
+		}finally{
+			tabGroupsChanging = false;
+		}
+		activateTabGroup(target);
+		fireViewsChanged();
+	}
+	
+	/**
+	 * Removes the empty tab group <code>group</code> unless it is the only 
+	 * one. The first group is never removed, the views of its neighbour
+	 * are moved into it instead.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 * @param group the empty group.
+	 * @param activeGroup the group that should be active afterwards.
+	 * @return the group that shows the views of <code>activeGroup</code> afterwards.
+	 */
+	MDITabbedPane removeEmptyTabGroup(MDITabbedPane group, MDITabbedPane activeGroup){
+		if(tabGroups.size() == 1 || group.getTabCount() > 0)
+			return activeGroup;
+		boolean changing = tabGroupsChanging;
+		tabGroupsChanging = true;
+		try{
+			if(group == tabbedPane){
+				//the first group stays, it takes the views of its neighbour
+				JSplitPane split = (JSplitPane)group.getParent();
+				Component sibling = split.getLeftComponent() == group ? split.getRightComponent() : split.getLeftComponent();
+				MDITabbedPane neighbour = sibling instanceof MDITabbedPane ? (MDITabbedPane)sibling : firstTabGroupIn(sibling);
+				MDIView selected = (MDIView)neighbour.getSelectedComponent();
+				while(neighbour.getTabCount() > 0){
+					MDIView view = (MDIView)neighbour.getComponentAt(0);
+					neighbour.removeTabAt(0);
+					tabbedPane.addTab(view.getTitle(), view.getIcon(), view);
+				}
+				if(selected != null)
+					tabbedPane.setSelectedComponent(selected);
+				if(activeGroup == neighbour)
+					activeGroup = tabbedPane;
+				group = neighbour;
+			}
+			removeTabGroup(group);
+		}finally{
+			tabGroupsChanging = changing;
+		}
+		if(activeTabGroup == group)
+			activeTabGroup = tabbedPane;
+		return activeGroup == group ? tabbedPane : activeGroup;
+	}
+	
+	/**
+	 * Removes the tab of <code>view</code> without any activation if it is 
+	 * shown in a tab group that is not active, and removes the group if it
+	 * is empty afterwards.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 * @param view the view being closed.
+	 * @return <code>true</code> if the tab was removed, <code>false</code> if
+	 * 			the view is in the active group.
+	 */
+	boolean removeFromInactiveTabGroup(MDIView view){
+		MDITabbedPane group = getTabGroup(view);
+		if(group == null || group == activeTabGroup)
+			return false;
+		tabGroupsChanging = true;
+		try{
+			group.removeTabAt(group.indexOfComponent(view));
+		}finally{
+			tabGroupsChanging = false;
+		}
+		removeEmptyTabGroup(group, activeTabGroup);
+		return true;
+	}
+	
+	/**
+	 * Called after a tab of the active tab group was closed. If the group is
+	 * empty it is removed and the group that takes its place is activated.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 * @param group the group of the closed view.
+	 */
+	void tabGroupEmptied(MDITabbedPane group){
+		if(group.getTabCount() > 0 || tabGroups.size() == 1)
+			return;
+		MDITabbedPane next = tabGroups.get(group == tabbedPane ? 1 : 0);
+		activateTabGroup(removeEmptyTabGroup(group, next));
+	}
+	
+	/** Gives the first tab group in the split tree <code>node</code>. */
+	private MDITabbedPane firstTabGroupIn(Component node){
+		while(node instanceof JSplitPane){
+			node = ((JSplitPane)node).getLeftComponent();
+		}
+		return (MDITabbedPane)node;
+	}
+	
+	/** 
+	 * Removes the empty <code>group</code> and the split pane that holds it,
+	 * which is replaced by the other side of the split.
+	 */
+	private void removeTabGroup(MDITabbedPane group){
+		JSplitPane split = (JSplitPane)group.getParent();
+		Component sibling = split.getLeftComponent() == group ? split.getRightComponent() : split.getLeftComponent();
+		split.remove(group);
+		split.remove(sibling);
+		replaceTabGroupNode(split, sibling);
+		tabGroups.remove(group);
+		Container parent = sibling.getParent();
+		parent.validate();
+		parent.repaint();
+	}
+	
+	/** Removes all tab groups except the first one, with their tabs. */
+	private void removeTabGroups(){
+		tabGroupsChanging = true;
+		try{
+			while(tabGroups.size() > 1){
+				MDITabbedPane group = tabGroups.get(tabGroups.size() - 1);
+				group.removeAll();
+				removeTabGroup(group);
+			}
+		}finally{
+			tabGroupsChanging = false;
+		}
+		activeTabGroup = tabbedPane;
+	}
+	
+	/**
+	 * Puts <code>replacement</code> where <code>node</code> is in the split
+	 * tree of the tab groups, which is the <code>MDIFrame.TABS</code> card of
+	 * the <code>viewContainer</code> or one side of a split pane.
+	 */
+	private void replaceTabGroupNode(Component node, Component replacement){
+		Container parent = node.getParent();
+		if(parent instanceof JSplitPane){
+			JSplitPane split = (JSplitPane)parent;
+			if(split.getLeftComponent() == node)
+				split.setLeftComponent(replacement);
+			else
+				split.setRightComponent(replacement);
+		}else{
+			viewContainer.remove(node);
+			viewContainer.add(replacement, TABS);
+			if(currentViewPane == TABS)
+				((CardLayout)viewContainer.getLayout()).show(viewContainer, TABS);
+		}
+	}
+	
+	/**
+	 * Makes <code>group</code> the active tab group and fires the 
+	 * activation events if its selected view was not active.
+	 */
+	private void activateTabGroup(MDITabbedPane group){
+		activeTabGroup = group;
+		MDIView view = (MDIView)group.getSelectedComponent();
+		if(view != lastSelectedView){
+			if(view != null)
+				view.fireMDIViewEvent(MDIViewEvent.MDIVIEW_ACTIVIATED);
+			if(lastSelectedView != null)
+				lastSelectedView.fireMDIViewEvent(MDIViewEvent.MDIVIEW_DEACTIVIATED);
+			lastSelectedView = view;
+		}
+		if(view != null){
+			Component comp = view.getDefaultComponent();
+			if(comp != null)
+				comp.requestFocusInWindow();
+		}
+	}
+	
+	/**
+	 * Gives the tab group under the point <code>p</code> of <code>source</code>.
+	 */
+	private MDITabbedPane tabGroupAt(Component source, Point p){
+		Point point = SwingUtilities.convertPoint(source, p, viewContainer);
+		Component comp = SwingUtilities.getDeepestComponentAt(viewContainer, point.x, point.y);
+		while(comp != null && comp != viewContainer){
+			if(comp instanceof MDITabbedPane && tabGroups.contains(comp))
+				return (MDITabbedPane)comp;
+			comp = comp.getParent();
+		}
+		return null;
+	}
+	
+	/**
+	 * gives the <code>JDesktopPane</code> that is used to show
+	 * <code>JInternalFrame</code>s when on of the views is in 
+	 * resotred or minimized state. 
+	 * @return Returns the dektopPane.
+	 */
+	public JDesktopPane getDektopPane() {
+		return desktopPane;
+	}
+	
+	/**
+	 * Gives the custom desktop manager that is used to manages
+	 * the internal frames.
+	 * @return the desktop manager.
+	 */
+	public MDIDesktopManager getDesktopManager() {
+		return desktopManager;
+	}
+	
+	/**
+	 * Returns a vector containing all the views those are contained by this <code>MDIFrame</code>. 
+	 * @return Returns the views.
+	 */
+	public Vector getViews() {
+		return views;
+	}
+	
+	/**
+	 * Gives the currently active view. Note that this may return null 
+	 * if all windows are minimised and not a single one is selected.
+	 *  
+	 * @return currently active view or <code>null</code>.
+	 */
+	public MDIView getActiveView(){
+		if(currentViewPane == TABS){
+			return (MDIView)activeTabGroup.getSelectedComponent();
+		}else{
+			//this may return null if all windows are minimised and 
+			//not a single one is selected.
+			JInternalFrame selectedFrame = desktopPane.getSelectedFrame();
+			if(selectedFrame != null)
+				return (MDIView)selectedFrame.getContentPane();
+			else
+				return dockedActiveView;
+		}
+	}
+	
+	/**
+	 * Sets <code>view</code> as currently active view if it is not 
+	 * currently active and sends MDIView selected and deselected 
+	 * events to corrosponding views. Note that no events are generated
+	 * if <code>view</code> is already active.
+	 * A detached view is activated by bringing its window to the front.
+	 * 
+	 * @param view <code>view</code> to set active.
+	 * @throws IllegalArgumentException if <code>view </code> equals to <code>null</code>
+	 * or the <code>MDIFrame</code> does not contain the <code>view</code>.
+	 */
+	public void setActiveView(MDIView view) throws IllegalArgumentException{
+		if(view == null){
+			throw new IllegalArgumentException("view should not be null");
+		}			
+		
+		MDIDetachedWindow window = detachedViews.get(view);
+		if(window != null){
+			view.ensureContent();
+			window.toFront();
+			window.requestFocus();
+			return;
+		}
+			
+		if(views.contains(view) == false){
+			throw new IllegalArgumentException("The MDIFrame does not contain the specified view");
+		}
+		
+		view.ensureContent();
+		if(currentViewPane == MDIFrame.TABS){
+			MDITabbedPane group = getTabGroup(view);
+			if(group.getSelectedComponent() == view)
+				activateTabGroup(group);
+			else
+				group.setSelectedComponent(view);
+		}else if(isDocked(view)){
+			dockingInternally = true;
+			try{
+				tabbedPane.setSelectedComponent(view);
+			}finally{
+				dockingInternally = false;
+			}
+			activateDockedView(view);
+		}else{
+			JInternalFrame[] frames = desktopPane.getAllFrames();
+			for(int i=0; i<frames.length; i++){
+				if(frames[i].getContentPane() == view){
+					try{frames[i].setSelected(true);}catch(PropertyVetoException pve){}
+					break;
+				}					
+			}
+		}		
+	}
+	
+
+	
+	/**
+	 * Gives the executor on which the data of deferred views is loaded.
+	 * @return the content executor or <code>null</code> if the data is 
+	 * 			loaded on the event dispatch thread.
+	 */
+	public Executor getContentExecutor() {
+		return contentExecutor;
+	}
+	
+	/**
+	 * Sets the executor on which <code>MDIViewContentSupplier.loadData()</code>
+	 * of deferred views is invoked. The content itself is always created
+	 * on the event dispatch thread.
+	 * @param contentExecutor the executor to set or <code>null</code> to load 
+	 * 			the data on the event dispatch thread.
+	 * @see MDIViewContentSupplier
+	 */
+	public void setContentExecutor(Executor contentExecutor) {
+		this.contentExecutor = contentExecutor;
+	}
+	
+	/**
+	 * Prepares a view in the background and adds it to this 
+	 * <code>MDIFrame</code> once it is ready, see <code>MDIViewPipeline</code>
+	 * for details.
+	 * @param task the task that prepares the view.
+	 * @return a handle that can be used to wait for or cancel the preparation.
+	 * @throws java.util.concurrent.RejectedExecutionException if called on 
+	 * 			the event dispatch thread while too many views are pending.
+	 */
+	public MDIViewPreparation prepareView(MDIViewPreparationTask task){
+		return getViewPipeline().submit(task);
+	}
+	
+	/**
+	 * Gives the pipeline used by <code>prepareView()</code>. A pipeline with
+	 * default settings is created when this method is called for the first time.
+	 * @return the view pipeline.
+	 */
+	public MDIViewPipeline getViewPipeline() {
+		if(viewPipeline == null)
+			viewPipeline = new MDIViewPipeline(this);
+		return viewPipeline;
+	}
+	
+	/**
+	 * Sets the pipeline used by <code>prepareView()</code>.
+	 * @param viewPipeline the pipeline to set.
+	 */
+	public void setViewPipeline(MDIViewPipeline viewPipeline) {
+		this.viewPipeline = viewPipeline;
+	}
+	
+	/**
+	 * Marks the title or icon of <code>view</code> as changed. The change
+	 * is shown at the end of the current event dispatch.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 */
+	void markViewDirty(MDIView view){
+		dirtyViews.add(view);
+		if(!flushScheduled){
+			flushScheduled = true;
+			SwingUtilities.invokeLater(new Runnable(){
+				public void run(){
+					flushViewUpdates();
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Shows the changed titles and icons of all views in their tabs or
+	 * internal frames. This is done automatically at the end of the event 
+	 * dispatch in which they were changed, so that many changes cause only
+	 * one relayout. Call this method if the change must be visible right away.
+	 */
+	public void flushViewUpdates(){
+		flushScheduled = false;
+		if(dirtyViews.isEmpty())
+			return;
+		MDIView[] dirty = dirtyViews.toArray(new MDIView[dirtyViews.size()]);
+		dirtyViews.clear();
+		for(int i=0; i<dirty.length; i++){
+			dirty[i].applyTitleAndIcon();
+		}
+	}
+	
+	/**
+	 * Gives the facade through which other threads than the event dispatch
+	 * thread can add views and update their titles and icons. 
+	 * @return the async updater of this frame.
+	 * @see MDIAsyncUpdater
+	 */
+	public synchronized MDIAsyncUpdater getAsyncUpdater() {
+		if(asyncUpdater == null)
+			asyncUpdater = new MDIAsyncUpdater(this);
+		return asyncUpdater;
+	}
+	
+	/**
+	 * Gives the metrics that receive the measurements of the operations of
+	 * this frame.
+	 * @return the metrics, <code>MDIMetrics.NONE</code> by default.
+	 */
+	public MDIMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Sets the metrics that receive the measurements of the operations of
+	 * this frame, for example a <code>MDIMetricsRecorder</code>.
+	 * @param metrics the metrics, <code>null</code> for <code>MDIMetrics.NONE</code>.
+	 */
+	public void setMetrics(MDIMetrics metrics) {
+		this.metrics = metrics == null ? MDIMetrics.NONE : metrics;
+	}
+	
+	/**
+	 * Gives the innermost operation this frame is executing. It can be called
+	 * from any thread, for example to tell what the event dispatch thread
+	 * was doing when it stalled.
+	 * @return the operation or <code>null</code> if no operation is in progress.
+	 */
+	public MDIOperation getCurrentOperation() {
+		return currentOperation;
+	}
+	
+	/**
+	 * Marks the start of <code>operation</code>. Must be paired with 
+	 * <code>endOperation()</code> in a finally block.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 * @return the start time to pass to <code>endOperation()</code>, 
+	 * 			<code>0</code> if the operation is not timed.
+	 */
+	long beginOperation(MDIOperation operation){
+		if(operationDepth == operationStack.length)
+			operationStack = Arrays.copyOf(operationStack, operationDepth * 2);
+		operationStack[operationDepth++] = operation;
+		currentOperation = operation;
+		return metrics == MDIMetrics.NONE ? 0 : System.nanoTime();
+	}
+	
+	/**
+	 * Marks the end of the innermost operation and reports it to the metrics.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 * @param start the value returned by <code>beginOperation()</code>.
+	 */
+	void endOperation(long start){
+		MDIOperation operation = operationStack[--operationDepth];
+		operationStack[operationDepth] = null;
+		currentOperation = operationDepth == 0 ? null : operationStack[operationDepth - 1];
+		if(start != 0)
+			metrics.operationCompleted(operation, System.nanoTime() - start, views.size());
+	}
+	
+	/**
+	 * Gives the journal that records the changes of the views.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 * @return the journal or <code>null</code> if none is running.
+	 */
+	MDIWorkspaceJournal getWorkspaceJournal() {
+		return workspaceJournal;
+	}
+	
+	/**
+	 * Sets the journal that records the changes of the views.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 * @see MDIWorkspaceJournal#start()
+	 */
+	void setWorkspaceJournal(MDIWorkspaceJournal workspaceJournal) {
+		this.workspaceJournal = workspaceJournal;
+	}
+	
+	/**
+	 * Gives the dispatcher that delivers the events to the asynchronous 
+	 * listeners of the views. A dispatcher with its own thread is created
+	 * when this method is called for the first time.
+	 * @return the async event dispatcher.
+	 * @see MDIView#addAsyncMDIViewListener(MDIViewListener, int)
+	 */
+	public synchronized MDIAsyncEventDispatcher getAsyncEventDispatcher() {
+		if(asyncEventDispatcher == null)
+			asyncEventDispatcher = new MDIAsyncEventDispatcher();
+		return asyncEventDispatcher;
+	}
+	
+	/**
+	 * Sets the dispatcher that delivers the events to the asynchronous 
+	 * listeners of the views, for example to use an application wide executor.
+	 * @param asyncEventDispatcher the dispatcher to set.
+	 */
+	public synchronized void setAsyncEventDispatcher(MDIAsyncEventDispatcher asyncEventDispatcher) {
+		this.asyncEventDispatcher = asyncEventDispatcher;
+	}
+	
+	/**
+	 * Hibernates all views that are not visible to the user i.e. all views
+	 * except the selected tab when the <code>currentViewPane</code> is
+	 * <code>MDIFrame.TABS</code> and all iconified views when it is
+	 * <code>MDIFrame.DESKTOP</code>. Views without a 
+	 * <code>MDIViewHibernator</code> are left alone. 
+	 * @return the number of views that were hibernated.
+	 * @see MDIView#hibernate()
+	 */
+	public int hibernateInactiveViews(){
+		int count = 0;
+		MDIView activeView = getActiveView();
+		for(int i=0; i<views.size(); i++){
+			MDIView view = (MDIView)views.get(i);
+			if(view == activeView)
+				continue;
+			//tabs other than the selected one are hidden
+			if((view.getViewPane() == MDIFrame.TABS && ((JTabbedPane)view.getParent()).getSelectedComponent() != view) || view.isIconified()){
+				if(view.hibernate())
+					count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Gives the view which should get the focus after <code>aView</code>.
+	 * <p>The next focusable view returneed by this method is the next element
+	 * after <code>aView</code> in the <code>views</code> 
+	 * (can be obtained by <code>mdiFrameObj.getViews()</code>) vector. Note 
+	 * that this is inconsistant with default <code>JDesktopPane</code> implementation
+	 * where always the topmost available internal frame would get the focus. 
+	 * 
+	 * @param aView the specified <code>MDIView</code> 
+	 * @return the next view which should get focus.
+	 * @throws IllegalArgumentException if <code>aView</code> is null or if 
+	 * the <code>MDIFrame</code> does not contain <code>aView</code>.
+	 * @see javax.swing.JDesktopPane
+	 * @see javax.swing.JLayeredPane
+	 * @see MDIFrame#getViews()
+	 */
+	public MDIView nextFocusableView(MDIView aView) throws IllegalArgumentException{
+		if(aView == null){
+			throw new IllegalArgumentException("aView should not be null");
+		}else{
+			int index = views.indexOf(aView);
+			if(index == -1){
+				throw new IllegalArgumentException("The MDIFrame doesnot contain the View");
+			}
+			if(index < views.size() - 1){
+				return (MDIView)views.get(index + 1);
+			}else{
+				return (MDIView)views.get(0);
 			}
 		}
 	}
@@ -973,6 +2344,17 @@ public class MDIFrame extends JFrame {
 	 */
 	protected void removeView(Component component){
 		views.remove(component);
+		if(component instanceof MDIView){
+			MDIView view = (MDIView)component;
+			viewIndex.remove(view);
+			view.cancelContentLoad();
+			dirtyViews.remove(view);
+			if(lastSelectedView == view)
+				lastSelectedView = null;
+			if(dockedActiveView == view)
+				dockedActiveView = null;
+			MDIViewLeakTracker.getInstance().viewClosed(view);
+		}
 		/*
 		if(views.size() <= 1){
 			//nextViewAction.setEnabled(false);
@@ -980,13 +2362,46 @@ public class MDIFrame extends JFrame {
 		}*/
 	}
 	
+	/**
+	 * Gives the category of the reference of this frame that keeps the
+	 * closed <code>view</code> alive.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 * @return one of the <code>MDIViewLeak</code> constants or <code>null</code>
+	 * 			if the frame does not reference the view.
+	 * @see MDIViewLeakTracker
+	 */
+	String findRetainer(MDIView view){
+		if(views.contains(view) || viewIndex.contains(view) || detachedViews.containsKey(view)
+				|| lastSelectedView == view || dockedActiveView == view || dirtyViews.contains(view))
+			return MDIViewLeak.FRAME;
+		JMenuBar menuBar = getJMenuBar();
+		if(menuBar != null){
+			for(int i=0; i<menuBar.getMenuCount(); i++){
+				if(menuBar.getMenu(i) instanceof MDIWindowsMenu && ((MDIWindowsMenu)menuBar.getMenu(i)).retains(view))
+					return MDIViewLeak.WINDOWS_MENU;
+			}
+		}
+		if(quickSwitcher != null && quickSwitcher.retains(view))
+			return MDIViewLeak.QUICK_SWITCHER;
+		return null;
+	}
+	
 	/**
 	 * Gives a vector containing the <code>MDIFrameListerer</code>s that are 
 	 * added to <code>the MDIFrame</code> object.
+	 * Note that the returned vector is a copy, use <code>addMDIFrameListener()</code>
+	 * and <code>removeMDIFrameListener()</code> to change the listeners.
 	 * @return a <code>Vector</code> containg <code>MDIFrameListerer</code>s
 	 */
 	public Vector getMDIFrameListeners() {
-		return mdiFrameListeners;
+		MDIFrameListener[] listeners = mdiFrameListeners;
+		Vector result = new Vector(listeners.length);
+		for(int i=0; i<listeners.length; i++){
+			Object listener = MDIWeakListener.unwrap(listeners[i]);
+			if(listener != null)
+				result.add(listener);
+		}
+		return result;
 	}	
 	
 	/**
@@ -1043,6 +2458,29 @@ public class MDIFrame extends JFrame {
 		this.restoreMenuText = restoreMenuText;
 	}
 	
+	/**
+	 * Gives text that is set as tool tip of the button that opens the
+	 * list of the hidden tabs in tab overflow mode.
+	 * @return Returns the tabOverflowToolTipText.
+	 * @see MDIFrame#setTabOverflowMode(boolean)
+	 */
+	public String getTabOverflowToolTipText() {
+		return tabOverflowToolTipText;
+	}
+	
+	/**
+	 * Sets text that is set as tool tip of the button that opens the
+	 * list of the hidden tabs in tab overflow mode.
+	 * @param tabOverflowToolTipText The tabOverflowToolTipText to set.
+	 * @see MDIFrame#setTabOverflowMode(boolean)
+	 */
+	public void setTabOverflowToolTipText(String tabOverflowToolTipText) {
+		this.tabOverflowToolTipText = tabOverflowToolTipText;
+		for(MDITabbedPane group : tabGroups){
+			group.updateOverflowToolTipText();
+		}
+	}
+	
 	
 	/**
 	 * Gives the mnemonic that is set to the system menu for close
@@ -1102,18 +2540,55 @@ public class MDIFrame extends JFrame {
 	 * object so that it can receive <code>MDIFrameEvent</code>s
 	 * @param listener the <code>MDIFrameListener</code> to add
 	 */
-	public void addMDIFrameListener(MDIFrameListener listener){
-		mdiFrameListeners.add(listener);
+	public synchronized void addMDIFrameListener(MDIFrameListener listener){
+		if(listener == null)
+			return;
+		MDIFrameListener[] listeners = new MDIFrameListener[mdiFrameListeners.length + 1];
+		int count = 0;
+		for(int i=0; i<mdiFrameListeners.length; i++){
+			//the registrations of collected weak listeners are dropped
+			if(mdiFrameListeners[i] instanceof MDIWeakListener && ((MDIWeakListener)mdiFrameListeners[i]).isCleared())
+				continue;
+			listeners[count++] = mdiFrameListeners[i];
+		}
+		listeners[count++] = listener;
+		mdiFrameListeners = count == listeners.length ? listeners : Arrays.copyOf(listeners, count);
+	}
+	
+	/**
+	 * Adds the <code>lisener</code> to the <code>MDIFrame</code> without
+	 * keeping it alive: the frame only holds a weak reference to the 
+	 * listener, so a short lived panel that listens to the frame can be 
+	 * garbage collected without removing its listener. The registration is
+	 * removed by the first event after the listener was collected. The 
+	 * caller must hold the listener as long as it should receive events, an
+	 * anonymous listener that is referenced nowhere else may be collected
+	 * at once.
+	 * @param listener the <code>MDIFrameListener</code> to add
+	 */
+	public void addWeakMDIFrameListener(MDIFrameListener listener){
+		if(listener != null)
+			addMDIFrameListener(new MDIWeakListener(listener, this));
 	}
 	
 	/**
 	 * Removes the <code>listener</code> from the <code>MDIFrame</code>
 	 * object so that it no longer receives the <code>MDIFrameEvent</code>s.
+	 * This removes weak registrations as well.
 	 *  
 	 * @param listener the <code>MDIFrameListener</code> to remove.
 	 */
-	public void removeMDIFrameListener(MDIFrameListener listener){
-		mdiFrameListeners.remove(listener);
+	public synchronized void removeMDIFrameListener(MDIFrameListener listener){
+		MDIFrameListener[] listeners = mdiFrameListeners;
+		for(int i=0; i<listeners.length; i++){
+			if(listeners[i].equals(listener) || (listeners[i] instanceof MDIWeakListener && ((MDIWeakListener)listeners[i]).isFor(listener))){
+				MDIFrameListener[] newListeners = new MDIFrameListener[listeners.length - 1];
+				System.arraycopy(listeners, 0, newListeners, 0, i);
+				System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+				mdiFrameListeners = newListeners;
+				return;
+			}
+		}
 	}
 	
 	/**
@@ -1123,11 +2598,22 @@ public class MDIFrame extends JFrame {
 	 * Invoke it only when you are sure about what are you doing.
 	 */
 	public void fireMDIFrameEvent(MDIFrameEvent event){
-		for(int i=0; i<mdiFrameListeners.size(); i++){
-			((MDIFrameListener)mdiFrameListeners.get(i)).viewPaneChanged(event);
+		MDIFrameListener[] listeners = mdiFrameListeners;
+		for(int i=0; i<listeners.length; i++){
+			listeners[i].viewPaneChanged(event);
 		}
 	}
 
+	/**
+	 * Fires the <code>MDIFrameEvent</code> with <code>null</code> view panes
+	 * that tells the listeners that the views changed. Nothing is allocated,
+	 * the event instance is shared, and nothing is done without listeners.
+	 */
+	void fireViewsChanged(){
+		if(mdiFrameListeners.length > 0)
+			fireMDIFrameEvent(viewsChangedEvent);
+	}
+
 	/**
 	 * @return true if this MDIFrame will add a close button to its tabbed panes
 	 */
@@ -1146,6 +2632,76 @@ public class MDIFrame extends JFrame {
 		this.tabCloseButtonEnabled = tabCloseButtonEnabled;
 	}
 
+	/**
+	 * @return true if the tab groups of this MDIFrame keep their tabs in a 
+	 * 			single row with a dropdown of the hidden tabs.
+	 */
+	public boolean isTabOverflowMode()
+	{
+		return tabOverflowMode;
+	}
+
+	/**
+	 * Sets whether the tab groups of this MDIFrame keep their tabs in a 
+	 * single scrolling row with a dropdown listing the tabs that are 
+	 * scrolled out of sight, instead of wrapping them into several rows.
+	 * With hundreds of views this keeps the tab strip to one row and the 
+	 * dropdown lets the user filter the hidden tabs by title. The mode 
+	 * applies to the existing and to new tab groups.
+	 * @param tabOverflowMode <code>true</code> to use the overflow mode.
+	 * @see MDITabOverflowPopup
+	 */
+	public void setTabOverflowMode( boolean tabOverflowMode )
+	{
+		this.tabOverflowMode = tabOverflowMode;
+		for( MDITabbedPane group : tabGroups )
+			group.setOverflowMode( tabOverflowMode );
+	}
+
+	/**
+	 * Gives the title index of the views of this <code>MDIFrame</code>.
+	 * @return the view index.
+	 * @see MDIViewIndex#search(String, int)
+	 */
+	public MDIViewIndex getViewIndex() {
+		return viewIndex;
+	}
+	
+	/**
+	 * Shows the quick switcher popup that lets the user activate a view
+	 * by typing a part of its title. Nothing happens if there are no views.
+	 */
+	public void showQuickSwitcher(){
+		if(views.size() == 0 || !isShowing())
+			return;
+		if(quickSwitcher == null)
+			quickSwitcher = new MDIQuickSwitcher(this);
+		quickSwitcher.showSwitcher();
+	}
+	
+	/**
+	 * Gives the key stroke that shows the quick switcher.
+	 * @return the key stroke or <code>null</code> if it is not bound.
+	 */
+	public KeyStroke getQuickSwitcherKeyStroke() {
+		return quickSwitcherKeyStroke;
+	}
+	
+	/**
+	 * Sets the key stroke that shows the quick switcher. The default is
+	 * <code>Ctrl+E</code>.
+	 * @param keyStroke the key stroke to set or <code>null</code> to 
+	 * 			remove the key binding.
+	 */
+	public void setQuickSwitcherKeyStroke(KeyStroke keyStroke) {
+		InputMap inputMap = getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+		if(this.quickSwitcherKeyStroke != null)
+			inputMap.remove(this.quickSwitcherKeyStroke);
+		this.quickSwitcherKeyStroke = keyStroke;
+		if(keyStroke != null)
+			inputMap.put(keyStroke, "showQuickSwitcher");
+	}
+
 	/**
 	 * The main purpose of this class is to change the behaviour of
 	 * <code>DefaultDesktopManager</code> according to the needs of 
@@ -1168,6 +2724,15 @@ public class MDIFrame extends JFrame {
 		 * @see javax.swing.DesktopManager.maximizeFrame() 
 		 */		
 		public void maximizeFrame(JInternalFrame f) {
+			if(hybridLayout && f instanceof MDIInternalFrame){
+				//dock only this view
+				if(f.isIcon()){
+					supressRestoreEvent = true;
+					try{f.setIcon(false);}catch(PropertyVetoException pve){}
+				}
+				dockView(((MDIInternalFrame)f).getView());
+				return;
+			}
 			if(f.isIcon()){
 				try{ f.setSelected(true);} catch(PropertyVetoException pve){}
 				//super.deiconifyFrame(f);
@@ -1255,23 +2820,58 @@ public class MDIFrame extends JFrame {
 		public void closeFrame(JInternalFrame f) {
 			MDIInternalFrame mdiif = (MDIInternalFrame)f;
 			if(!mdiif.getDisposedInternally()){
-				MDIView view = (MDIView)mdiif.getContentPane();
-				MDIView nextView = MDIFrame.this.nextFocusableView(view);
-				removeView(view);
-				view.fireMDIViewEvent(MDIViewEvent.MDIVIEW_CLOSED);
-				if(mdiif.isSelected()){
-					JInternalFrame[] frames = desktopPane.getAllFrames();
-					for(int i=0; i<frames.length; i++){
-						if(frames[i].getContentPane() == nextView){
-							try {frames[i].setSelected(true); }catch(PropertyVetoException pve){}
-							break;
-						}
-					}
+				long start = beginOperation(MDIOperation.CLOSE_VIEW);
+				Object flightEvent = MDIFlightRecorder.beginViewClose();
+				try{
+					closeFrameInternally(mdiif);
+				}finally{
+					endOperation(start);
+					MDIFlightRecorder.end(flightEvent, mdiif.getView().getTitle(), views.size());
 				}
 			}else{
 				super.closeFrame(mdiif);
 			}			
+		}
+		
+		private void closeFrameInternally(MDIInternalFrame mdiif){
+			MDIView view = (MDIView)mdiif.getContentPane();
+			MDIView nextView = MDIFrame.this.nextFocusableView(view);
+			removeView(view);
+			view.fireMDIViewEvent(MDIViewEvent.MDIVIEW_CLOSED);
+			if(mdiif.isSelected()){
+				JInternalFrame[] frames = desktopPane.getAllFrames();
+				for(int i=0; i<frames.length; i++){
+					if(frames[i].getContentPane() == nextView){
+						try {frames[i].setSelected(true); }catch(PropertyVetoException pve){}
+						break;
+					}
+				}
+			}
 		}	
+		/**
+		 * Ends moving the Frame and records its new bounds in the
+		 * workspace journal.
+		 */
+		public void endDraggingFrame(JComponent f){
+			super.endDraggingFrame(f);
+			boundsChanged(f);
+		}
+		
+		/**
+		 * Ends resizing the Frame and records its new bounds in the
+		 * workspace journal.
+		 */
+		public void endResizingFrame(JComponent f){
+			super.endResizingFrame(f);
+			boundsChanged(f);
+		}
+		
+		private void boundsChanged(JComponent f){
+			MDIWorkspaceJournal journal = workspaceJournal;
+			if(journal != null && f instanceof MDIInternalFrame)
+				journal.viewChanged(((MDIInternalFrame)f).getView());
+		}
+		
 		/**
 		 * gives the value of supressRestoreEvent.
 		 * @return value of supressRestoreEvent
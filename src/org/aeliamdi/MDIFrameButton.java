@@ -35,10 +35,8 @@ import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.beans.PropertyVetoException;
-import java.net.URL;
 
 import javax.swing.Icon;
-import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
@@ -136,25 +134,20 @@ public class MDIFrameButton extends JButton{
 		this.addActionListener(new TheActionListener());
 		this.setFocusable(false);
 		
-		//precatch AquaIcons
+		//precatch AquaIcons, they are shared by the buttons of all frames
+		MDIViewRegistry registry = MDIViewRegistry.getInstance();
 		switch(this.buttonType){
 		case MDIFrameButton.ICONIFY_BUTTON:
- 			URL imageURL= this.getClass().getResource( "/res/images/aqua-orange.gif" );
-			aquaIcon = new ImageIcon(imageURL);	
-			URL imageURL1= this.getClass().getResource( "/res/images/aqua-orange-mouseover.gif" );
-			aquaMouseOverIcon = new ImageIcon(imageURL1);	
+			aquaIcon = registry.getResourceIcon("/res/images/aqua-orange.gif");	
+			aquaMouseOverIcon = registry.getResourceIcon("/res/images/aqua-orange-mouseover.gif");	
 			break;
 		case MDIFrameButton.RESTORE_BUTTON:
-			URL imageURL2= this.getClass().getResource( "/res/images/aqua-green.gif" );
-			aquaIcon = new ImageIcon(imageURL2);		
-			URL imageURL3= this.getClass().getResource( "/res/images/aqua-green-mouseover.gif" );
-			aquaMouseOverIcon = new ImageIcon(imageURL3);
+			aquaIcon = registry.getResourceIcon("/res/images/aqua-green.gif");		
+			aquaMouseOverIcon = registry.getResourceIcon("/res/images/aqua-green-mouseover.gif");
 			break;				
 		case MDIFrameButton.CLOSE_BUTTON:
-			URL imageURL4= this.getClass().getResource( "/res/images/aqua-red.gif" );
-			aquaIcon = new ImageIcon(imageURL4);	
-			URL imageURL5= this.getClass().getResource( "/res/images/aqua-red-mouseover.gif" );
-			aquaMouseOverIcon = new ImageIcon(imageURL5);
+			aquaIcon = registry.getResourceIcon("/res/images/aqua-red.gif");	
+			aquaMouseOverIcon = registry.getResourceIcon("/res/images/aqua-red-mouseover.gif");
 			break;	
 		}
 		
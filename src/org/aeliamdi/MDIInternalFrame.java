@@ -71,6 +71,8 @@ public class MDIInternalFrame extends JInternalFrame{
 		// activiated.
 		this.addInternalFrameListener(new InternalFrameAdapter(){
 				public void internalFrameActivated(InternalFrameEvent e) {
+					parentFrame.dockedViewDeactivated();
+					view.ensureContent();
 					if(view.getDefaultComponent() != null){
 						view.getDefaultComponent().requestFocusInWindow();
 					}
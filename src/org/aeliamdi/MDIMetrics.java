@@ -0,0 +1,38 @@
+package org.aeliamdi;
+
+/**
+ * Receives the measurements of the operations of a <code>MDIFrame</code>.
+ * <p>
+ * The methods are invoked on the event dispatch thread, inside the measured
+ * operation, so implementations must be fast and must not block. The
+ * default of a frame is <code>MDIMetrics.NONE</code>, in which case the
+ * operations are not even timed.
+ * @see MDIFrame#setMetrics(MDIMetrics)
+ * @see MDIMetricsRecorder
+ */
+public interface MDIMetrics {
+	/** Metrics that discard all measurements. */
+	public static final MDIMetrics NONE = new MDIMetrics(){
+		public void operationCompleted(MDIOperation operation, long durationNanos, int viewCount){
+		}
+		public void eventDispatched(MDIView view, int eventId, int listenerCount){
+		}
+	};
+
+	/**
+	 * Invoked when an operation has completed.
+	 * @param operation the operation.
+	 * @param durationNanos how long the operation took.
+	 * @param viewCount the number of views of the frame when the operation completed.
+	 */
+	public void operationCompleted(MDIOperation operation, long durationNanos, int viewCount);
+
+	/**
+	 * Invoked when a <code>MDIViewEvent</code> is fired.
+	 * @param view the view that fired the event.
+	 * @param eventId the id of the event.
+	 * @param listenerCount the number of synchronous and asynchronous 
+	 * 			listeners the event was delivered to.
+	 */
+	public void eventDispatched(MDIView view, int eventId, int listenerCount);
+}
@@ -0,0 +1,364 @@
+package org.aeliamdi;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.swing.SwingUtilities;
+
+/**
+ * <code>MDIMetrics</code> that keeps call counts, latency histograms, view
+ * counts and event fan-out in memory.
+ * <p>
+ * Latencies are recorded in a histogram with one bucket per power of two
+ * nanoseconds, which makes recording a few atomic increments and makes the
+ * percentiles accurate within a factor of two. The measurements can be read
+ * through the getters, over JMX after <code>register()</code>, and every
+ * operation is also committed as a <code>org.aeliamdi.Operation</code>
+ * flight recorder event when a recording has enabled it. The counts of the
+ * <code>MDIViewLeakTracker</code> are exposed over JMX as well.
+ * <pre>
+ * MDIMetricsRecorder recorder = new MDIMetricsRecorder();
+ * recorder.register("main");
+ * mdiFrame.setMetrics(recorder);
+ * </pre>
+ */
+public class MDIMetricsRecorder implements MDIMetrics, MDIMetricsRecorderMXBean {
+	/** Number of histogram buckets, one per bit of a <code>long</code>. */
+	private static final int BUCKETS = 64;
+
+	/** Names of the event types, indexed by type. */
+	private static final String[] EVENT_NAMES = {
+		"MDIVIEW_ACTIVIATED", "MDIVIEW_DEACTIVIATED", "MDIVIEW_OPENED", "MDIVIEW_CLOSED",
+		"MDIVIEW_ICONIFIED", "MDIVIEW_RESTORED", "MDIVIEW_MAXIMIZED", "MDIVIEW_CLOSING"
+	};
+
+	/** The statistics per operation, indexed by ordinal. */
+	private final OperationStats[] stats;
+
+	/** Number of fired events per event type. */
+	private final LongAdder[] eventCounts = new LongAdder[MDIViewListenerList.TYPE_COUNT];
+
+	/** Number of listener invocations per event type. */
+	private final LongAdder[] listenerCalls = new LongAdder[MDIViewListenerList.TYPE_COUNT];
+
+	/** The name this recorder is registered with or <code>null</code>. */
+	private ObjectName objectName;
+
+	/**
+	 * Constructs an empty recorder.
+	 */
+	public MDIMetricsRecorder(){
+		MDIOperation[] operations = MDIOperation.values();
+		stats = new OperationStats[operations.length];
+		for(int i=0; i<operations.length; i++){
+			stats[i] = new OperationStats();
+		}
+		for(int i=0; i<eventCounts.length; i++){
+			eventCounts[i] = new LongAdder();
+			listenerCalls[i] = new LongAdder();
+		}
+	}
+
+	public void operationCompleted(MDIOperation operation, long durationNanos, int viewCount){
+		stats[operation.ordinal()].record(durationNanos, viewCount);
+
+		MDIFlightRecorder.operationCompleted(operation, durationNanos, viewCount);
+	}
+
+	public void eventDispatched(MDIView view, int eventId, int listenerCount){
+		int type = MDIViewListenerList.typeIndex(eventId);
+		if(type == -1)
+			return;
+		eventCounts[type].increment();
+		listenerCalls[type].add(listenerCount);
+	}
+
+	/**
+	 * Gives the number of completed calls of <code>operation</code>.
+	 * @param operation the operation.
+	 * @return the call count.
+	 */
+	public long getCount(MDIOperation operation){
+		return stats[operation.ordinal()].count.sum();
+	}
+
+	/**
+	 * Gives the mean duration of <code>operation</code>.
+	 * @param operation the operation.
+	 * @return the mean duration in nanoseconds, <code>0</code> if it was never called.
+	 */
+	public long getMeanNanos(MDIOperation operation){
+		OperationStats s = stats[operation.ordinal()];
+		long count = s.count.sum();
+		return count == 0 ? 0 : s.totalNanos.sum() / count;
+	}
+
+	/**
+	 * Gives the longest duration of <code>operation</code>.
+	 * @param operation the operation.
+	 * @return the longest duration in nanoseconds.
+	 */
+	public long getMaxNanos(MDIOperation operation){
+		return stats[operation.ordinal()].maxNanos.get();
+	}
+
+	/**
+	 * Gives an upper bound of the given percentile of the durations of
+	 * <code>operation</code>, i.e. the upper bound of the histogram bucket
+	 * the percentile falls into, at most the longest duration.
+	 * @param operation the operation.
+	 * @param percentile the percentile between 0 and 100.
+	 * @return the duration in nanoseconds, <code>0</code> if it was never called.
+	 */
+	public long getPercentileNanos(MDIOperation operation, double percentile){
+		OperationStats s = stats[operation.ordinal()];
+		long[] histogram = getHistogram(operation);
+		long total = 0;
+		for(int i=0; i<BUCKETS; i++){
+			total += histogram[i];
+		}
+		if(total == 0)
+			return 0;
+		long rank = (long)Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100);
+		long seen = 0;
+		for(int i=0; i<BUCKETS; i++){
+			seen += histogram[i];
+			if(seen >= rank && histogram[i] > 0)
+				return Math.min(bucketLimit(i), s.maxNanos.get());
+		}
+		return s.maxNanos.get();
+	}
+
+	/**
+	 * Gives a copy of the latency histogram of <code>operation</code>.
+	 * Bucket <code>i</code> counts the durations <code>d</code> with
+	 * <code>2^(i-1) &lt;= d &lt; 2^i</code> nanoseconds, bucket 0 the
+	 * durations of 0.
+	 * @param operation the operation.
+	 * @return the bucket counts.
+	 */
+	public long[] getHistogram(MDIOperation operation){
+		AtomicLongArray buckets = stats[operation.ordinal()].buckets;
+		long[] histogram = new long[BUCKETS];
+		for(int i=0; i<BUCKETS; i++){
+			histogram[i] = buckets.get(i);
+		}
+		return histogram;
+	}
+
+	/**
+	 * Gives the number of views of the frame when <code>operation</code>
+	 * completed for the last time.
+	 * @param operation the operation.
+	 * @return the view count.
+	 */
+	public int getLastViewCount(MDIOperation operation){
+		return stats[operation.ordinal()].lastViewCount;
+	}
+
+	/**
+	 * Gives the largest number of views seen when <code>operation</code> completed.
+	 * @param operation the operation.
+	 * @return the view count.
+	 */
+	public int getMaxViewCount(MDIOperation operation){
+		return stats[operation.ordinal()].maxViewCount.get();
+	}
+
+	/**
+	 * Gives the number of fired events of type <code>eventId</code>.
+	 * @param eventId the event id, for example <code>MDIViewEvent.MDIVIEW_CLOSED</code>.
+	 * @return the event count.
+	 */
+	public long getEventCount(int eventId){
+		int type = MDIViewListenerList.typeIndex(eventId);
+		return type == -1 ? 0 : eventCounts[type].sum();
+	}
+
+	/**
+	 * Gives the number of listener invocations for events of type
+	 * <code>eventId</code>. Divided by <code>getEventCount()</code> it gives
+	 * the mean fan-out of the event.
+	 * @param eventId the event id, for example <code>MDIViewEvent.MDIVIEW_CLOSED</code>.
+	 * @return the number of listener invocations.
+	 */
+	public long getListenerCalls(int eventId){
+		int type = MDIViewListenerList.typeIndex(eventId);
+		return type == -1 ? 0 : listenerCalls[type].sum();
+	}
+
+	public Map<String, Long> getCallCounts(){
+		Map<String, Long> map = new LinkedHashMap<String, Long>();
+		for(MDIOperation operation : MDIOperation.values()){
+			map.put(operation.name(), Long.valueOf(getCount(operation)));
+		}
+		return map;
+	}
+
+	public Map<String, Long> getMeanMicros(){
+		Map<String, Long> map = new LinkedHashMap<String, Long>();
+		for(MDIOperation operation : MDIOperation.values()){
+			map.put(operation.name(), Long.valueOf(getMeanNanos(operation) / 1000));
+		}
+		return map;
+	}
+
+	public Map<String, Long> getP99Micros(){
+		Map<String, Long> map = new LinkedHashMap<String, Long>();
+		for(MDIOperation operation : MDIOperation.values()){
+			map.put(operation.name(), Long.valueOf(getPercentileNanos(operation, 99) / 1000));
+		}
+		return map;
+	}
+
+	public Map<String, Long> getMaxMicros(){
+		Map<String, Long> map = new LinkedHashMap<String, Long>();
+		for(MDIOperation operation : MDIOperation.values()){
+			map.put(operation.name(), Long.valueOf(getMaxNanos(operation) / 1000));
+		}
+		return map;
+	}
+
+	public Map<String, Integer> getMaxViewCounts(){
+		Map<String, Integer> map = new LinkedHashMap<String, Integer>();
+		for(MDIOperation operation : MDIOperation.values()){
+			map.put(operation.name(), Integer.valueOf(getMaxViewCount(operation)));
+		}
+		return map;
+	}
+
+	public Map<String, Long> getEventCounts(){
+		Map<String, Long> map = new LinkedHashMap<String, Long>();
+		for(int i=0; i<EVENT_NAMES.length; i++){
+			map.put(EVENT_NAMES[i], Long.valueOf(eventCounts[i].sum()));
+		}
+		return map;
+	}
+
+	public Map<String, Long> getListenerCalls(){
+		Map<String, Long> map = new LinkedHashMap<String, Long>();
+		for(int i=0; i<EVENT_NAMES.length; i++){
+			map.put(EVENT_NAMES[i], Long.valueOf(listenerCalls[i].sum()));
+		}
+		return map;
+	}
+
+	public int getTrackedClosedViews(){
+		return MDIViewLeakTracker.getInstance().getTrackedCount();
+	}
+
+	public long getCollectedClosedViews(){
+		return MDIViewLeakTracker.getInstance().getCollectedCount();
+	}
+
+	public Map<String, Long> getLeakedViews(){
+		return new LinkedHashMap<String, Long>(MDIViewLeakTracker.getInstance().getLeakCounts());
+	}
+
+	public String[] checkLeaks(){
+		final List<MDIViewLeak> leaks = new ArrayList<MDIViewLeak>();
+		Runnable check = new Runnable(){
+			public void run(){
+				leaks.addAll(MDIViewLeakTracker.getInstance().check());
+			}
+		};
+		try{
+			if(SwingUtilities.isEventDispatchThread())
+				check.run();
+			else
+				SwingUtilities.invokeAndWait(check);
+		}catch(InterruptedException ex){
+			Thread.currentThread().interrupt();
+		}catch(InvocationTargetException ex){
+			throw new IllegalStateException("The leak check failed", ex.getCause());
+		}
+		String[] result = new String[leaks.size()];
+		for(int i=0; i<result.length; i++){
+			result[i] = leaks.get(i).toString();
+		}
+		return result;
+	}
+
+	public void reset(){
+		for(int i=0; i<stats.length; i++){
+			stats[i] = new OperationStats();
+		}
+		for(int i=0; i<eventCounts.length; i++){
+			eventCounts[i].reset();
+			listenerCalls[i].reset();
+		}
+	}
+
+	/**
+	 * Registers this recorder with the platform MBean server as
+	 * <code>org.aeliamdi:type=MDIMetrics,name=</code><i>name</i>.
+	 * @param name the name that distinguishes this recorder from the
+	 * 			recorders of other frames.
+	 * @throws IllegalStateException if the registration failed.
+	 */
+	public synchronized void register(String name){
+		unregister();
+		try{
+			ObjectName objectName = new ObjectName("org.aeliamdi:type=MDIMetrics,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			this.objectName = objectName;
+		}catch(JMException ex){
+			throw new IllegalStateException("Could not register the metrics as " + name, ex);
+		}
+	}
+
+	/**
+	 * Removes this recorder from the platform MBean server if it is registered.
+	 */
+	public synchronized void unregister(){
+		if(objectName == null)
+			return;
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try{
+			if(server.isRegistered(objectName))
+				server.unregisterMBean(objectName);
+		}catch(JMException ex){
+			// it is gone anyway
+		}
+		objectName = null;
+	}
+
+	/** Gives the exclusive upper limit of histogram bucket <code>i</code>. */
+	private static long bucketLimit(int i){
+		return i >= 63 ? Long.MAX_VALUE : 1L << i;
+	}
+
+	/** The measurements of one operation. */
+	private static class OperationStats {
+		final LongAdder count = new LongAdder();
+		final LongAdder totalNanos = new LongAdder();
+		final AtomicLong maxNanos = new AtomicLong();
+		final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+		final AtomicInteger maxViewCount = new AtomicInteger();
+		volatile int lastViewCount;
+
+		void record(long durationNanos, int viewCount){
+			if(durationNanos < 0)
+				durationNanos = 0;
+			count.increment();
+			totalNanos.add(durationNanos);
+			buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(durationNanos));
+			long max;
+			while(durationNanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, durationNanos));
+			int maxViews;
+			while(viewCount > (maxViews = maxViewCount.get()) && !maxViewCount.compareAndSet(maxViews, viewCount));
+			lastViewCount = viewCount;
+		}
+	}
+}
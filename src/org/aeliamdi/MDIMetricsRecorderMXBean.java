@@ -0,0 +1,50 @@
+package org.aeliamdi;
+
+import java.util.Map;
+
+/**
+ * The management interface of a <code>MDIMetricsRecorder</code>. The maps
+ * are keyed by <code>MDIOperation</code> name or, for the event maps, by
+ * <code>MDIViewEvent</code> type name.
+ * @see MDIMetricsRecorder#register(String)
+ */
+public interface MDIMetricsRecorderMXBean {
+	/** @return the number of calls per operation. */
+	public Map<String, Long> getCallCounts();
+
+	/** @return the mean duration per operation in microseconds. */
+	public Map<String, Long> getMeanMicros();
+
+	/** @return the approximate 99th percentile duration per operation in microseconds. */
+	public Map<String, Long> getP99Micros();
+
+	/** @return the longest duration per operation in microseconds. */
+	public Map<String, Long> getMaxMicros();
+
+	/** @return the largest view count seen per operation. */
+	public Map<String, Integer> getMaxViewCounts();
+
+	/** @return the number of fired events per event type. */
+	public Map<String, Long> getEventCounts();
+
+	/** @return the number of listener invocations per event type. */
+	public Map<String, Long> getListenerCalls();
+
+	/** @return the number of closed views tracked by the <code>MDIViewLeakTracker</code> that were not collected yet. */
+	public int getTrackedClosedViews();
+
+	/** @return the number of closed views that were collected since the <code>MDIViewLeakTracker</code> was enabled. */
+	public long getCollectedClosedViews();
+
+	/** @return the number of leaked views per retainer found by the last leak check. */
+	public Map<String, Long> getLeakedViews();
+
+	/**
+	 * Runs a leak check of the <code>MDIViewLeakTracker</code>.
+	 * @return the leaked views found, as text.
+	 */
+	public String[] checkLeaks();
+
+	/** Clears all measurements. */
+	public void reset();
+}
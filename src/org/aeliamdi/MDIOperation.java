@@ -0,0 +1,21 @@
+package org.aeliamdi;
+
+/**
+ * The operations of the framework that are measured by the
+ * <code>MDIMetrics</code> of a <code>MDIFrame</code>.
+ * @see MDIFrame#setMetrics(MDIMetrics)
+ */
+public enum MDIOperation {
+	/** Toggling the view pane with <code>MDIFrame.changeView()</code>. */
+	CHANGE_VIEW,
+	/** Adding a view with <code>MDIFrame.addInternalView()</code>. */
+	ADD_VIEW,
+	/** Closing a view, by <code>MDIView.closeView()</code> or a frame's close button. */
+	CLOSE_VIEW,
+	/** Rebuilding the window list of a <code>MDIWindowsMenu</code>. */
+	UPDATE_WINDOWS_LIST,
+	/** Tiling the internal frames, in any of the tile layouts. */
+	TILE,
+	/** Cascading the internal frames. */
+	CASCADE
+}
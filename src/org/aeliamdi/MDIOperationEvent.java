@@ -0,0 +1,31 @@
+package org.aeliamdi;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event committed by <code>MDIMetricsRecorder</code> for
+ * every measured operation, so that UI freezes in a recording can be
+ * matched with the MDI operation that caused them.
+ */
+@Name("org.aeliamdi.Operation")
+@Label("MDI Operation")
+@Category({"AeliaMDI"})
+@Description("An operation of a MDIFrame on the event dispatch thread")
+@StackTrace(false)
+class MDIOperationEvent extends Event {
+	@Label("Operation")
+	String operation;
+
+	@Label("Duration")
+	@Timespan(Timespan.NANOSECONDS)
+	long durationNanos;
+
+	@Label("View Count")
+	int viewCount;
+}
@@ -0,0 +1,209 @@
+package org.aeliamdi;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.List;
+
+import javax.swing.AbstractAction;
+import javax.swing.BorderFactory;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.DefaultListModel;
+import javax.swing.JComponent;
+import javax.swing.JDialog;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.KeyStroke;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+/**
+ * A small undecorated popup that lets the user jump to any view of a
+ * <code>MDIFrame</code> by typing a part of its title. The matches are
+ * looked up in the <code>MDIViewIndex</code> of the frame, so the popup stays
+ * responsive with thousands of views.
+ * <p>
+ * The popup is normally shown with the key stroke set by
+ * <code>MDIFrame.setQuickSwitcherKeyStroke()</code> or programmatically with
+ * <code>MDIFrame.showQuickSwitcher()</code>. <code>Enter</code> activates the
+ * selected view, <code>Escape</code> closes the popup.
+ * @see MDIViewIndex
+ */
+public class MDIQuickSwitcher extends JDialog {
+	private static final long serialVersionUID = 1L;
+
+	/** The maximum number of matches shown in the list. */
+	public static final int MAX_RESULTS = 50;
+
+	/** The frame whose views are searched. */
+	private MDIFrame mdiFrame;
+
+	/** The text field where the user types the query. */
+	private JTextField queryField = new JTextField();
+
+	/** The model of the result list. */
+	private DefaultListModel<MDIView> resultModel = new DefaultListModel<MDIView>();
+
+	/** The list showing the matching views. */
+	private JList<MDIView> resultList = new JList<MDIView>(resultModel);
+
+	/**
+	 * Constructs the quick switcher for the specified <code>MDIFrame</code>.
+	 * @param mdiFrame the frame whose views are searched.
+	 */
+	public MDIQuickSwitcher(MDIFrame mdiFrame){
+		super(mdiFrame, false);
+		this.mdiFrame = mdiFrame;
+		setUndecorated(true);
+
+		resultList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		resultList.setFocusable(false);
+		// A fixed cell height keeps the list from measuring every row.
+		resultList.setFixedCellHeight(20);
+		resultList.setCellRenderer(new DefaultListCellRenderer(){
+			public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+					boolean isSelected, boolean cellHasFocus){
+				super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+				MDIView view = (MDIView)value;
+				setIcon(view.getIcon());
+				return this;
+			}
+		});
+		resultList.addMouseListener(new MouseAdapter(){
+			public void mouseClicked(MouseEvent e){
+				if(e.getClickCount() == 2)
+					activateSelection();
+			}
+		});
+
+		queryField.getDocument().addDocumentListener(new DocumentListener(){
+			public void insertUpdate(DocumentEvent e){ updateResults(); }
+			public void removeUpdate(DocumentEvent e){ updateResults(); }
+			public void changedUpdate(DocumentEvent e){ updateResults(); }
+		});
+		bind(KeyEvent.VK_ESCAPE, "close", new AbstractAction(){
+			public void actionPerformed(ActionEvent e){ setVisible(false); }
+		});
+		bind(KeyEvent.VK_ENTER, "activate", new AbstractAction(){
+			public void actionPerformed(ActionEvent e){ activateSelection(); }
+		});
+		bind(KeyEvent.VK_DOWN, "next", new AbstractAction(){
+			public void actionPerformed(ActionEvent e){ moveSelection(1); }
+		});
+		bind(KeyEvent.VK_UP, "previous", new AbstractAction(){
+			public void actionPerformed(ActionEvent e){ moveSelection(-1); }
+		});
+
+		addWindowListener(new WindowAdapter(){
+			public void windowDeactivated(WindowEvent e){
+				setVisible(false);
+			}
+		});
+
+		JPanel content = new JPanel(new BorderLayout(0, 2));
+		content.setBorder(BorderFactory.createEtchedBorder());
+		content.add(queryField, BorderLayout.NORTH);
+		content.add(new JScrollPane(resultList), BorderLayout.CENTER);
+		setContentPane(content);
+		setSize(new Dimension(360, 300));
+	}
+
+	/**
+	 * Shows the popup centered over the <code>MDIFrame</code> with an empty
+	 * query, i.e. with the most recently used views.
+	 */
+	public void showSwitcher(){
+		queryField.setText("");
+		updateResults();
+		Point location = mdiFrame.getLocationOnScreen();
+		setLocation(location.x + (mdiFrame.getWidth() - getWidth()) / 2,
+				location.y + (mdiFrame.getHeight() - getHeight()) / 3);
+		setVisible(true);
+		queryField.requestFocusInWindow();
+	}
+
+	/**
+	 * Hides the popup and forgets the views it listed, so that they can be
+	 * garbage collected once they are closed.
+	 */
+	public void setVisible(boolean visible){
+		super.setVisible(visible);
+		if(!visible)
+			resultModel.clear();
+	}
+	
+	/**
+	 * Returns whether the result list shows <code>view</code>.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 */
+	boolean retains(MDIView view){
+		return resultModel.contains(view);
+	}
+	
+	/**
+	 * Gives the text field in which the query is typed.
+	 * @return the query field.
+	 */
+	public JTextField getQueryField() {
+		return queryField;
+	}
+
+	/**
+	 * Gives the list that shows the matching views.
+	 * @return the result list.
+	 */
+	public JList<MDIView> getResultList() {
+		return resultList;
+	}
+
+	/**
+	 * Runs the current query against the index of the frame.
+	 */
+	private void updateResults(){
+		List<MDIView> matches = mdiFrame.getViewIndex().search(queryField.getText(), MAX_RESULTS);
+		resultModel.clear();
+		for(MDIView view : matches){
+			resultModel.addElement(view);
+		}
+		if(!resultModel.isEmpty())
+			resultList.setSelectedIndex(0);
+	}
+
+	private void moveSelection(int delta){
+		int size = resultModel.getSize();
+		if(size == 0)
+			return;
+		int index = (resultList.getSelectedIndex() + delta + size) % size;
+		resultList.setSelectedIndex(index);
+		resultList.ensureIndexIsVisible(index);
+	}
+
+	/**
+	 * Activates the selected view and hides the popup.
+	 */
+	private void activateSelection(){
+		MDIView view = resultList.getSelectedValue();
+		setVisible(false);
+		if(view == null || !(mdiFrame.getViews().contains(view) || mdiFrame.isDetached(view)))
+			return;
+		if(view.isIconified())
+			view.setRestored();
+		else
+			mdiFrame.setActiveView(view);
+	}
+
+	private void bind(int keyCode, String name, AbstractAction action){
+		queryField.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke(keyCode, 0), name);
+		queryField.getActionMap().put(name, action);
+	}
+}
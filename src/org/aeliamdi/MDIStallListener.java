@@ -0,0 +1,16 @@
+package org.aeliamdi;
+
+/**
+ * Listener interface to receive the stalls of the event dispatch thread
+ * detected by a <code>MDIEdtWatchdog</code>.
+ * @see MDIEdtWatchdog#addStallListener(MDIStallListener)
+ */
+public interface MDIStallListener {
+	/**
+	 * Invoked when the event dispatch thread has not processed an event for
+	 * longer than the threshold of the watchdog. This method is invoked on
+	 * the watchdog thread, not on the event dispatch thread.
+	 * @param report the description of the stall.
+	 */
+	public void stallDetected(MDIStallReport report);
+}
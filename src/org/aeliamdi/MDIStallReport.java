@@ -0,0 +1,120 @@
+package org.aeliamdi;
+
+import java.util.Date;
+
+/**
+ * Describes a stall of the event dispatch thread: when it was detected, how
+ * long it lasted, the <code>MDIOperation</code> the <code>MDIFrame</code>
+ * was executing and the stack of the thread.
+ * <p>
+ * A report is created when the stall is detected, at which time only the
+ * length of the stall so far is known. The watchdog completes it with the
+ * real length once the event dispatch thread responds again.
+ * @see MDIEdtWatchdog
+ */
+public class MDIStallReport {
+	private final long timeMillis;
+	private volatile long durationMillis;
+	private volatile boolean ended;
+	private final MDIOperation operation;
+	private final int viewCount;
+	private final StackTraceElement[] stackTrace;
+
+	/**
+	 * Constructs a report.
+	 * @param timeMillis when the stall was detected, as by <code>System.currentTimeMillis()</code>.
+	 * @param durationMillis how long the event dispatch thread had been busy
+	 * 			when the stall was detected.
+	 * @param operation the operation in progress or <code>null</code>.
+	 * @param viewCount the number of views of the frame.
+	 * @param stackTrace the stack of the event dispatch thread.
+	 */
+	public MDIStallReport(long timeMillis, long durationMillis, MDIOperation operation, int viewCount, StackTraceElement[] stackTrace){
+		this.timeMillis = timeMillis;
+		this.durationMillis = durationMillis;
+		this.operation = operation;
+		this.viewCount = viewCount;
+		this.stackTrace = stackTrace;
+	}
+
+	/**
+	 * @return when the stall was detected, as by <code>System.currentTimeMillis()</code>.
+	 */
+	public long getTimeMillis() {
+		return timeMillis;
+	}
+
+	/**
+	 * @return how long the event dispatch thread was stalled. While the 
+	 * 			stall has not ended, how long it had been busy when the stall
+	 * 			was detected.
+	 * @see #isEnded()
+	 */
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+
+	/**
+	 * @return whether the event dispatch thread has responded again, so
+	 * 			that <code>getDurationMillis()</code> gives the whole stall.
+	 */
+	public boolean isEnded() {
+		return ended;
+	}
+
+	/**
+	 * Records the real length of the stall once it has ended.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 * @param durationMillis the time from the stalled heartbeat being posted
+	 * 			to it being run.
+	 */
+	void stallEnded(long durationMillis){
+		this.durationMillis = durationMillis;
+		ended = true;
+	}
+
+	/**
+	 * @return the operation the frame was executing or <code>null</code> if
+	 * 			the stall happened outside of the measured operations.
+	 */
+	public MDIOperation getOperation() {
+		return operation;
+	}
+
+	/**
+	 * @return the number of views of the frame when the stall was detected.
+	 */
+	public int getViewCount() {
+		return viewCount;
+	}
+
+	/**
+	 * @return the stack of the event dispatch thread when the stall was detected.
+	 */
+	public StackTraceElement[] getStackTrace() {
+		return stackTrace.clone();
+	}
+
+	/**
+	 * Gives a one line summary, for example 
+	 * <code>EDT stalled 850 ms in CHANGE_VIEW with 180 views</code>.
+	 * @return the summary.
+	 */
+	public String getSummary(){
+		return "EDT stalled " + durationMillis + " ms in "
+			+ (operation == null ? "unknown operation" : operation.name())
+			+ " with " + viewCount + " views";
+	}
+
+	/**
+	 * Gives the summary followed by the stack trace.
+	 */
+	public String toString(){
+		StringBuilder sb = new StringBuilder();
+		sb.append(new Date(timeMillis)).append(": ").append(getSummary());
+		for(int i=0; i<stackTrace.length; i++){
+			sb.append("\n\tat ").append(stackTrace[i]);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,234 @@
+package org.aeliamdi;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.swing.AbstractAction;
+import javax.swing.AbstractListModel;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.JComponent;
+import javax.swing.JList;
+import javax.swing.JPopupMenu;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.KeyStroke;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+/**
+ * The dropdown of a <code>MDITabbedPane</code> in overflow mode that lists
+ * the views whose tabs are scrolled out of the tab strip. Typing filters
+ * the list by title, <code>Enter</code> or a click selects the tab of the
+ * chosen view and <code>Escape</code> closes the dropdown.
+ * <p>
+ * The list has a fixed cell size, so only the visible rows are measured
+ * and painted however many tabs are hidden.
+ * @see MDIFrame#setTabOverflowMode(boolean)
+ */
+public class MDITabOverflowPopup extends JPopupMenu {
+	private static final long serialVersionUID = 1L;
+
+	/** The height of a row of the list. */
+	public static final int CELL_HEIGHT = 20;
+
+	/** The width of the list. */
+	public static final int CELL_WIDTH = 280;
+
+	/** The maximum number of rows visible without scrolling. */
+	public static final int MAX_VISIBLE_ROWS = 15;
+
+	/** The tab group whose hidden tabs are listed. */
+	private MDITabbedPane tabbedPane;
+
+	/** The views whose tabs were hidden when the dropdown was shown. */
+	private List<MDIView> hiddenViews = Collections.emptyList();
+
+	/** The text field where the user types the filter. */
+	private JTextField filterField = new JTextField();
+
+	/** The model of the list, the hidden views that match the filter. */
+	private ViewListModel matchModel = new ViewListModel();
+
+	/** The list showing the matching views. */
+	private JList<MDIView> matchList = new JList<MDIView>(matchModel);
+
+	/**
+	 * Constructs the dropdown for the specified tab group.
+	 * @param tabbedPane the tab group whose hidden tabs are listed.
+	 */
+	public MDITabOverflowPopup(MDITabbedPane tabbedPane){
+		this.tabbedPane = tabbedPane;
+		setLayout(new BorderLayout(0, 2));
+
+		matchList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		matchList.setFocusable(false);
+		// Fixed cell sizes keep the list from measuring every row.
+		matchList.setFixedCellHeight(CELL_HEIGHT);
+		matchList.setFixedCellWidth(CELL_WIDTH);
+		matchList.setCellRenderer(new DefaultListCellRenderer(){
+			public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+					boolean isSelected, boolean cellHasFocus){
+				super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+				MDIView view = (MDIView)value;
+				setIcon(view.getIcon());
+				return this;
+			}
+		});
+		matchList.addMouseListener(new MouseAdapter(){
+			public void mouseClicked(MouseEvent e){
+				if(matchList.locationToIndex(e.getPoint()) != -1)
+					selectMatch();
+			}
+		});
+
+		filterField.getDocument().addDocumentListener(new DocumentListener(){
+			public void insertUpdate(DocumentEvent e){ updateMatches(); }
+			public void removeUpdate(DocumentEvent e){ updateMatches(); }
+			public void changedUpdate(DocumentEvent e){ updateMatches(); }
+		});
+		bind(KeyEvent.VK_ESCAPE, "close", new AbstractAction(){
+			public void actionPerformed(ActionEvent e){ setVisible(false); }
+		});
+		bind(KeyEvent.VK_ENTER, "select", new AbstractAction(){
+			public void actionPerformed(ActionEvent e){ selectMatch(); }
+		});
+		bind(KeyEvent.VK_DOWN, "next", new AbstractAction(){
+			public void actionPerformed(ActionEvent e){ moveSelection(1); }
+		});
+		bind(KeyEvent.VK_UP, "previous", new AbstractAction(){
+			public void actionPerformed(ActionEvent e){ moveSelection(-1); }
+		});
+
+		add(filterField, BorderLayout.NORTH);
+		add(new JScrollPane(matchList), BorderLayout.CENTER);
+	}
+
+	/**
+	 * Shows the dropdown below <code>invoker</code> with the views whose
+	 * tabs are currently hidden. Nothing happens if no tab is hidden.
+	 * @param invoker the component below which the dropdown is shown,
+	 * 			normally the overflow button of the tab group.
+	 */
+	public void showHiddenTabs(Component invoker){
+		hiddenViews = tabbedPane.getHiddenViews();
+		if(hiddenViews.isEmpty())
+			return;
+		filterField.setText("");
+		updateMatches();
+		matchList.setVisibleRowCount(Math.min(hiddenViews.size(), MAX_VISIBLE_ROWS));
+		show(invoker, invoker.getWidth() - getPreferredSize().width, invoker.getHeight());
+		filterField.requestFocusInWindow();
+	}
+
+	/**
+	 * Hides the dropdown and forgets the views it listed, so that they can
+	 * be garbage collected once they are closed.
+	 */
+	public void setVisible(boolean visible){
+		super.setVisible(visible);
+		if(!visible){
+			hiddenViews = Collections.emptyList();
+			matchModel.setViews(hiddenViews);
+		}
+	}
+
+	/**
+	 * Gives the text field in which the filter is typed.
+	 * @return the filter field.
+	 */
+	public JTextField getFilterField() {
+		return filterField;
+	}
+
+	/**
+	 * Gives the list that shows the matching views.
+	 * @return the list.
+	 */
+	public JList<MDIView> getMatchList() {
+		return matchList;
+	}
+
+	/**
+	 * Filters the hidden views by the text of the filter field.
+	 */
+	private void updateMatches(){
+		String filter = filterField.getText().trim().toLowerCase(Locale.ROOT);
+		List<MDIView> matches;
+		if(filter.length() == 0){
+			matches = hiddenViews;
+		}else{
+			matches = new ArrayList<MDIView>();
+			for(int i=0; i<hiddenViews.size(); i++){
+				MDIView view = hiddenViews.get(i);
+				if(view.toString().toLowerCase(Locale.ROOT).indexOf(filter) != -1)
+					matches.add(view);
+			}
+		}
+		matchModel.setViews(matches);
+		if(matches.isEmpty()){
+			matchList.clearSelection();
+		}else{
+			matchList.setSelectedIndex(0);
+			matchList.ensureIndexIsVisible(0);
+		}
+	}
+
+	private void moveSelection(int delta){
+		int size = matchModel.getSize();
+		if(size == 0)
+			return;
+		int index = (matchList.getSelectedIndex() + delta + size) % size;
+		matchList.setSelectedIndex(index);
+		matchList.ensureIndexIsVisible(index);
+	}
+
+	/**
+	 * Selects the tab of the selected view and hides the dropdown.
+	 */
+	private void selectMatch(){
+		MDIView view = matchList.getSelectedValue();
+		setVisible(false);
+		if(view != null && tabbedPane.indexOfComponent(view) != -1)
+			tabbedPane.setSelectedComponent(view);
+	}
+
+	private void bind(int keyCode, String name, AbstractAction action){
+		filterField.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke(keyCode, 0), name);
+		filterField.getActionMap().put(name, action);
+	}
+
+	/**
+	 * A list model over a list of views that is replaced as a whole, so a
+	 * new filter fires one event instead of one per row.
+	 */
+	private static class ViewListModel extends AbstractListModel<MDIView> {
+		private static final long serialVersionUID = 1L;
+
+		private List<MDIView> views = Collections.emptyList();
+
+		void setViews(List<MDIView> views){
+			int oldSize = this.views.size();
+			this.views = views;
+			int size = Math.max(oldSize, views.size());
+			if(size > 0)
+				fireContentsChanged(this, 0, size - 1);
+		}
+
+		public int getSize(){
+			return views.size();
+		}
+
+		public MDIView getElementAt(int index){
+			return views.get(index);
+		}
+	}
+}
@@ -2,15 +2,10 @@ package org.aeliamdi;
 
 import org.aeliamdi.util.LinesBorder;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.beans.PropertyChangeEvent;
-import java.beans.PropertyChangeListener;
-import java.io.IOException;
-import java.net.URL;
 
 /**
  * <p>TODO: This class needs a description!</p>
@@ -19,11 +14,11 @@ import java.net.URL;
  *
  * @author Jennifer Gohlke
  */
-public class MDITabTitle extends JPanel implements PropertyChangeListener, MouseListener
+public class MDITabTitle extends JPanel implements MouseListener
 {
 	private MDITabbedPane mdiTabbedPane;
 	private Component component;
-	private JLabel myLabel;
+	private TitleLabel myLabel;
 	private JLabel closeLabel;
 	private Icon hoverIcon;
 	private Icon closeIcon;
@@ -36,25 +31,16 @@ public class MDITabTitle extends JPanel implements PropertyChangeListener, Mouse
 		this.mdiTabbedPane = mdiTabbedPane;
 		this.component = component;
 
-		try
-		{
-			URL closeURL = this.getClass().getResource( "/res/images/tab-close.gif" );
-			URL mouseoverURL = this.getClass().getResource( "/res/images/tab-close-mouseover.gif" );
-			Image closeImage = ImageIO.read( closeURL );
-			Image mouseoverImage = ImageIO.read( mouseoverURL );
-			closeIcon = new ImageIcon( closeImage );
-			hoverIcon = new ImageIcon( mouseoverImage );
-		}
-		catch( IOException e )
-		{
-			e.printStackTrace();
-		}
+		// The close icons are loaded once and shared by the tabs of all frames
+		closeIcon = MDIViewRegistry.getInstance().getResourceIcon( "/res/images/tab-close.gif" );
+		hoverIcon = MDIViewRegistry.getInstance().getResourceIcon( "/res/images/tab-close-mouseover.gif" );
 
-		mdiTabbedPane.addPropertyChangeListener( this );
+		// MDITabbedPane.setTitleAt() forwards the title to the tab component
+		// it belongs to.
 
 		setOpaque( false );
 
-		myLabel = new JLabel( title, icon, SwingConstants.TRAILING );
+		myLabel = new TitleLabel( title, icon );
 		myLabel.setLabelFor( component );
 		myLabel.setOpaque( false );
 		myLabel.setIconTextGap( UIManager.getInt( "TabbedPane.textIconGap" ) );
@@ -77,19 +63,32 @@ public class MDITabTitle extends JPanel implements PropertyChangeListener, Mouse
 		}
 	}
 
-	@Override
-	public void propertyChange( PropertyChangeEvent evt )
+	/**
+	 * Sets the title shown in the tab. The label is not laid out again while
+	 * <code>MDITabbedPane.updateTitleAt()</code> replaces the title by one
+	 * of the same width.
+	 * @param title the title to show.
+	 */
+	public void setTitle( String title )
 	{
-		if( evt.getPropertyName().equals( "indexForTitle" ) )
-		{
-			Component theTabComp = mdiTabbedPane.getTabComponentAt( Integer.parseInt( String.valueOf( evt.getNewValue() ) ) );
+		myLabel.setText( title );
+	}
 
-			if( theTabComp.equals( this ) )
-			{
-				String title = mdiTabbedPane.getTitleAt( Integer.parseInt( String.valueOf( evt.getNewValue() ) ) );
-				myLabel.setText( title );
-			}
-		}
+	/**
+	 * Sets the icon shown in the tab.
+	 * @param icon the icon to show.
+	 */
+	public void setIcon( Icon icon )
+	{
+		myLabel.setIcon( icon );
+	}
+
+	/**
+	 * @return the font used to paint the title
+	 */
+	public Font getTitleFont()
+	{
+		return myLabel.getFont();
 	}
 
 	@Override
@@ -141,4 +140,22 @@ public class MDITabTitle extends JPanel implements PropertyChangeListener, Mouse
 		closeLabel.setIcon( closeIcon );
 		closeLabel.revalidate();
 	}
+
+	/**
+	 * Label that skips the relayout while its tabbed pane suppresses it.
+	 */
+	private class TitleLabel extends JLabel
+	{
+		TitleLabel( String title, Icon icon )
+		{
+			super( title, icon, SwingConstants.TRAILING );
+		}
+
+		@Override
+		public void revalidate()
+		{
+			if( !mdiTabbedPane.isRelayoutSuppressed() )
+				super.revalidate();
+		}
+	}
 }
@@ -29,7 +29,14 @@ package org.aeliamdi;
 
 
 import javax.swing.*;
+import javax.swing.plaf.UIResource;
+import javax.swing.plaf.basic.BasicArrowButton;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Sole purpose to extend this class from <code>JTabbedPane</code> is to 
@@ -43,6 +50,21 @@ import java.awt.*;
 public class MDITabbedPane extends JTabbedPane{
 	private MDIFrame parentFrame;
 	
+	/** 
+	 * Set while a title of the same width is replaced, so that the tab strip
+	 * is repainted but not laid out again.
+	 */
+	private boolean relayoutSuppressed = false;
+	
+	/**
+	 * The button at the end of the tab strip that opens the list of the 
+	 * hidden tabs, <code>null</code> if the overflow mode is off.
+	 */
+	private JButton overflowButton;
+	
+	/** The dropdown of the overflow button, created when it is first shown. */
+	private MDITabOverflowPopup overflowPopup;
+	
 	/**
 	 * Constructs the tabbed pane with specified parent.
 	 * @param parent The <code>MDIFrame</code> to which this tabbed pane
@@ -65,6 +87,257 @@ public class MDITabbedPane extends JTabbedPane{
 		setTabComponentAt( indexOfComponent( component ), newComponent );
 	}
 
+	/**
+	 * Sets the title at <code>index</code> and forwards it to the
+	 * <code>MDITabTitle</code> of the tab, if there is one.
+	 */
+	@Override
+	public void setTitleAt( int index, String title )
+	{
+		super.setTitleAt( index, title );
+		Component tabComponent = getTabComponentAt( index );
+		if( tabComponent instanceof MDITabTitle )
+			( (MDITabTitle)tabComponent ).setTitle( title );
+	}
+
+	/**
+	 * Sets the icon at <code>index</code> and forwards it to the
+	 * <code>MDITabTitle</code> of the tab, if there is one.
+	 */
+	@Override
+	public void setIconAt( int index, Icon icon )
+	{
+		super.setIconAt( index, icon );
+		Component tabComponent = getTabComponentAt( index );
+		if( tabComponent instanceof MDITabTitle )
+			( (MDITabTitle)tabComponent ).setIcon( icon );
+	}
+
+	/**
+	 * Updates the title at <code>index</code>. Unlike <code>setTitleAt()</code>
+	 * this does nothing if the title did not change, and if the new title
+	 * is as wide as the old one the tab is only repainted instead of 
+	 * laying out the whole tab strip again.
+	 * @param index the index of the tab.
+	 * @param title the new title.
+	 */
+	public void updateTitleAt( int index, String title )
+	{
+		String oldTitle = getTitleAt( index );
+		if( oldTitle == null ? title == null : oldTitle.equals( title ) )
+			return;
+
+		if( oldTitle == null || title == null )
+		{
+			setTitleAt( index, title );
+			return;
+		}
+
+		Component tabComponent = getTabComponentAt( index );
+		Font font = tabComponent instanceof MDITabTitle ? ( (MDITabTitle)tabComponent ).getTitleFont() : getFont();
+		FontMetrics metrics = getFontMetrics( font );
+		if( metrics.stringWidth( oldTitle ) != metrics.stringWidth( title ) )
+		{
+			setTitleAt( index, title );
+			return;
+		}
+
+		relayoutSuppressed = true;
+		try
+		{
+			setTitleAt( index, title );
+		}
+		finally
+		{
+			relayoutSuppressed = false;
+		}
+		Rectangle bounds = getBoundsAt( index );
+		if( bounds != null )
+			repaint( bounds );
+	}
+
+	/**
+	 * Returns whether a relayout is currently suppressed by 
+	 * <code>updateTitleAt()</code>, which also holds for the 
+	 * <code>MDITabTitle</code> of the tab.
+	 */
+	boolean isRelayoutSuppressed()
+	{
+		return relayoutSuppressed;
+	}
+
+	@Override
+	public void revalidate()
+	{
+		if( !relayoutSuppressed )
+			super.revalidate();
+	}
+
+	/**
+	 * The size of a tab group is always given by the split pane or the
+	 * <code>MDIFrame</code> that holds it, so adding, removing or selecting
+	 * a tab only lays out this group and not the other groups of the frame.
+	 */
+	@Override
+	public boolean isValidateRoot()
+	{
+		return true;
+	}
+
+	/**
+	 * Turns the overflow mode on or off. In overflow mode the tabs are kept
+	 * in a single scrolling row and a button at the end of the row opens a
+	 * <code>MDITabOverflowPopup</code> listing the tabs that are scrolled
+	 * out of sight. Otherwise the tabs wrap into as many rows as they need.
+	 * @param overflowMode <code>true</code> to use the overflow mode.
+	 * @see MDIFrame#setTabOverflowMode(boolean)
+	 */
+	public void setOverflowMode( boolean overflowMode )
+	{
+		if( overflowMode == isOverflowMode() )
+			return;
+
+		if( overflowMode )
+		{
+			overflowButton = new OverflowButton();
+			overflowButton.setToolTipText( parentFrame.getTabOverflowToolTipText() );
+			overflowButton.setVisible( false );
+			overflowButton.addActionListener( new ActionListener()
+			{
+				public void actionPerformed( ActionEvent e )
+				{
+					showOverflowPopup();
+				}
+			} );
+			setTabLayoutPolicy( SCROLL_TAB_LAYOUT );
+			addImpl( overflowButton, null, -1 );
+		}
+		else
+		{
+			if( overflowPopup != null )
+				overflowPopup.setVisible( false );
+			remove( overflowButton );
+			overflowButton = null;
+			overflowPopup = null;
+			setTabLayoutPolicy( WRAP_TAB_LAYOUT );
+		}
+		revalidate();
+		repaint();
+	}
+
+	/**
+	 * Sets the tool tip of the overflow button to the text of the parent
+	 * frame.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 * @see MDIFrame#setTabOverflowToolTipText(String)
+	 */
+	void updateOverflowToolTipText()
+	{
+		if( overflowButton != null )
+			overflowButton.setToolTipText( parentFrame.getTabOverflowToolTipText() );
+	}
+
+	/**
+	 * Returns whether the tabs are kept in a single row with a dropdown 
+	 * for the hidden tabs.
+	 * @return <code>true</code> if the overflow mode is on.
+	 */
+	public boolean isOverflowMode()
+	{
+		return overflowButton != null;
+	}
+
+	/**
+	 * Gives the views whose tabs are not completely visible in the tab 
+	 * strip. Only the overflow mode hides tabs, in the wrapping layout 
+	 * this is always empty.
+	 * @return the views of the hidden tabs in tab order.
+	 */
+	public List<MDIView> getHiddenViews()
+	{
+		JViewport viewport = getTabViewport();
+		if( !isOverflowMode() || viewport == null )
+			return Collections.emptyList();
+
+		Rectangle visible = viewport.getBounds();
+		List<MDIView> hidden = new ArrayList<MDIView>();
+		for( int i = 0; i < getTabCount(); i++ )
+		{
+			Rectangle bounds = getBoundsAt( i );
+			if( bounds != null && !visible.contains( bounds ) )
+				hidden.add( (MDIView)getComponentAt( i ) );
+		}
+		return hidden;
+	}
+
+	/**
+	 * Shows the dropdown listing the hidden tabs below the overflow button.
+	 */
+	public void showOverflowPopup()
+	{
+		if( overflowButton == null || !overflowButton.isShowing() )
+			return;
+		if( overflowPopup == null )
+			overflowPopup = new MDITabOverflowPopup( this );
+		overflowPopup.showHiddenTabs( overflowButton );
+	}
+
+	/**
+	 * Lays out the tabbed pane and, in overflow mode, takes the space of 
+	 * the overflow button from the end of the tab strip when the tabs do 
+	 * not fit into it.
+	 */
+	@Override
+	public void doLayout()
+	{
+		super.doLayout();
+		if( overflowButton == null )
+			return;
+
+		JViewport viewport = getTabViewport();
+		Component tabs = viewport == null ? null : viewport.getView();
+		if( tabs == null || getTabCount() == 0 )
+		{
+			overflowButton.setVisible( false );
+			return;
+		}
+
+		Rectangle strip = viewport.getBounds();
+		Dimension size = tabs.getPreferredSize();
+		boolean horizontal = getTabPlacement() == TOP || getTabPlacement() == BOTTOM;
+		boolean overflows = horizontal ? size.width > strip.width : size.height > strip.height;
+		overflowButton.setVisible( overflows );
+		if( !overflows )
+			return;
+
+		if( horizontal )
+		{
+			int width = Math.min( strip.height, strip.width / 2 );
+			viewport.setBounds( strip.x, strip.y, strip.width - width, strip.height );
+			overflowButton.setBounds( strip.x + strip.width - width, strip.y, width, strip.height );
+		}
+		else
+		{
+			int height = Math.min( strip.width, strip.height / 2 );
+			viewport.setBounds( strip.x, strip.y, strip.width, strip.height - height );
+			overflowButton.setBounds( strip.x, strip.y + strip.height - height, strip.width, height );
+		}
+	}
+
+	/**
+	 * Gives the viewport in which the UI scrolls the tabs, <code>null</code>
+	 * in the wrapping layout.
+	 */
+	private JViewport getTabViewport()
+	{
+		for( Component child : getComponents() )
+		{
+			if( child instanceof JViewport )
+				return (JViewport)child;
+		}
+		return null;
+	}
+
 	/**
 	 * Regular paint method from <code>Component</code> class.
 	 */
@@ -87,4 +360,17 @@ public class MDITabbedPane extends JTabbedPane{
 	public MDIFrame getParentFrame() {
 		return parentFrame;
 	}
+
+	/**
+	 * The arrow button that opens the overflow dropdown. It is a 
+	 * <code>UIResource</code>, so the UI of the tabbed pane does not take it
+	 * for the component of a tab.
+	 */
+	private static class OverflowButton extends BasicArrowButton implements UIResource
+	{
+		OverflowButton()
+		{
+			super( SOUTH );
+		}
+	}
 }
\ No newline at end of file
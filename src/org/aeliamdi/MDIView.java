@@ -26,14 +26,20 @@ For more information, contact pritam_g_barhate@rediffmail.com
  */
 package org.aeliamdi;
 
+import java.awt.BorderLayout;
 import java.awt.Component;
 import java.awt.Rectangle;
 import java.beans.PropertyVetoException;
 import java.util.Vector;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.swing.JInternalFrame;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
-import javax.swing.JTabbedPane;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 
 /**
  * This class extends <code>javax.swing.JPanel</code> class and acts 
@@ -100,10 +106,62 @@ public class MDIView extends JPanel {
 	 */
 	private Rectangle frameBounds;
 	
+	/** 
+	 * The id of the <code>MDIViewFactory</code> that recreates this view 
+	 * when a workspace is restored.
+	 */
+	private String factoryId;
+	
+	/** 
+	 * The key that identifies the content of this view for its factory, 
+	 * <code>null</code> if the view is not saved in workspaces.
+	 */
+	private String persistenceKey;
+	
 	/**
-	 * a vector holding <code>MDIViewListerer</code>s that are added to the <code>MDIView</code> object.
+	 * The <code>MDIViewListerer</code>s that are added to the <code>MDIView</code> object.
+	 */
+	private final MDIViewListenerList mdiViewListeners = new MDIViewListenerList();
+	
+	/** The listeners that receive the events on the async event dispatcher. */
+	private final MDIViewListenerList asyncMDIViewListeners = new MDIViewListenerList();
+	
+	/** The events of this view waiting for the async listeners. */
+	private MDIAsyncEventDispatcher.ViewQueue asyncEventQueue;
+	
+	/** 
+	 * The events fired by this view, created on first use and indexed by 
+	 * type. An <code>MDIViewEvent</code> only carries its source and id so 
+	 * the instances are reused by every dispatch.
+	 */
+	private final MDIViewEvent[] events = new MDIViewEvent[MDIViewListenerList.TYPE_COUNT];
+	
+	/** 
+	 * The hibernator that saves and restores the content of the view or 
+	 * <code>null</code> if the view can not be hibernated.
 	 */
-	private Vector mdiViewListeners = new Vector();
+	private MDIViewHibernator hibernator;
+	
+	/** Whether the child components of the view are currently released. */
+	private boolean hibernated;
+	
+	/** The state returned by the hibernator when the view was hibernated. */
+	private Object hibernatedState;
+	
+	/** 
+	 * The supplier that creates the content of the view on its first 
+	 * activation or <code>null</code> if the content has been created.
+	 */
+	private MDIViewContentSupplier contentSupplier;
+	
+	/** Whether the data of a deferred view is being loaded in the background. */
+	private boolean contentLoading;
+	
+	/** 
+	 * The background load of a deferred view, if the content executor is
+	 * a <code>ExecutorService</code>. It is cancelled when the view is closed.
+	 */
+	private Future<?> contentLoad;
 	
 	/**
 	 * Constructs a <code>MDIView</code> with specified parent
@@ -126,6 +184,49 @@ public class MDIView extends JPanel {
 		this.title = title;
 		this.icon = icon;		
 	}
+	/**
+	 * Creates a <code>MDIView</code> whose content is created lazily by
+	 * <code>contentSupplier</code>. The view can be added to the 
+	 * <code>MDIFrame</code> right away and shows a lightweight placeholder
+	 * until it is activated for the first time.
+	 * @param parentFrame the <code>MDIFrame</code> the view will be added to.
+	 * @param title the title of the view.
+	 * @param icon the icon of the view.
+	 * @param contentSupplier creates the content of the view.
+	 * @return the view showing a placeholder.
+	 * @see MDIViewContentSupplier
+	 * @see MDIFrame#setContentExecutor(java.util.concurrent.Executor)
+	 */
+	public static MDIView createDeferred(MDIFrame parentFrame, String title, MDIIcon icon, MDIViewContentSupplier contentSupplier){
+		if(contentSupplier == null)
+			throw new IllegalArgumentException("contentSupplier should not be null");
+		MDIView view = new MDIView(parentFrame, null, title, icon);
+		view.contentSupplier = contentSupplier;
+		view.setLayout(new BorderLayout());
+		view.add(view.createPlaceholder(), BorderLayout.CENTER);
+		return view;
+	}
+	
+	/**
+	 * Creates the placeholder that is shown by a deferred view until its 
+	 * content is created. Override this method to provide a custom
+	 * placeholder.
+	 * @return the placeholder component.
+	 */
+	protected Component createPlaceholder(){
+		return new JLabel("Loading...", SwingConstants.CENTER);
+	}
+	
+	/**
+	 * Returns whether the content of this view has been created. This is
+	 * always <code>true</code> for views that were not created with 
+	 * <code>MDIView.createDeferred()</code>.
+	 * @return <code>true</code> if the content has been created.
+	 */
+	public boolean isContentCreated() {
+		return contentSupplier == null;
+	}
+	
 	/**
 	 * Returns the icon of this view. This method will return null if the 
 	 * icon is not assigned.
@@ -138,10 +239,12 @@ public class MDIView extends JPanel {
 	
 	/**
 	 * Gives the <code>MDIViewListener</code>s added to the <code>MDIView</code> Object. 
-	 * @return Returns the mdiViewListeners.
+	 * Note that the returned vector is a copy, use <code>addMDIViewListener()</code>
+	 * and <code>removeMDIViewListener()</code> to change the listeners.
+	 * @return a copy of the mdiViewListeners.
 	 */
 	public Vector getMDIViewListeners() {
-		return mdiViewListeners;
+		return mdiViewListeners.getListeners();
 	}
 	/**
 	 * For internal purpose only
@@ -178,6 +281,44 @@ public class MDIView extends JPanel {
 		this.frameBounds = frameBounds;
 	}
 	
+	/**
+	 * Gives the id of the factory that recreates this view when a 
+	 * workspace is restored.
+	 * @return the factory id or <code>null</code>.
+	 * @see MDIWorkspace
+	 */
+	public String getFactoryId() {
+		return factoryId;
+	}
+	
+	/**
+	 * Sets the id of the factory that recreates this view when a 
+	 * workspace is restored.
+	 * @param factoryId the factory id to set.
+	 */
+	public void setFactoryId(String factoryId) {
+		this.factoryId = factoryId;
+	}
+	
+	/**
+	 * Gives the key that identifies the content of this view for its 
+	 * factory, for example the path of the edited file.
+	 * @return the key or <code>null</code> if the view is not saved in workspaces.
+	 * @see MDIWorkspace
+	 */
+	public String getPersistenceKey() {
+		return persistenceKey;
+	}
+	
+	/**
+	 * Sets the key that identifies the content of this view for its factory.
+	 * Only views with a key are saved in workspaces.
+	 * @param persistenceKey the key to set.
+	 */
+	public void setPersistenceKey(String persistenceKey) {
+		this.persistenceKey = persistenceKey;
+	}
+	
 	/**
 	 * For internal purpose only.
 	 * Sets the <code>MDIView.state</code> of the view to <code>state</code>
@@ -208,12 +349,32 @@ public class MDIView extends JPanel {
 	 * 			or <code>MDIView.MAXIMIZED</code>
 	 */
 	public int getState() {
-		if(mdiFrame.getCurrentViewPane() == MDIFrame.TABS)
+		if(getViewPane() == MDIFrame.TABS)
 			return MDIView.MAXIMIZED; //In this stage all windows are maximized.
 		else
 			return state;
 	}
 	
+	/**
+	 * Gives the pane that shows this view. It is the 
+	 * <code>currentViewPane</code> of the <code>MDIFrame</code>, except 
+	 * for views that are docked as tabs on the desktop with the hybrid 
+	 * layout and for views that are detached into their own window.
+	 * @return <code>MDIFrame.TABS</code> if the view is shown as a tab,
+	 * 			<code>MDIFrame.DESKTOP</code> if it is shown as internal frame,
+	 * 			<code>MDIFrame.DETACHED</code> if it is shown in its own window.
+	 * @see MDIFrame#dockView(MDIView)
+	 * @see MDIFrame#detachView(MDIView)
+	 */
+	public String getViewPane() {
+		if(mdiFrame.isDetached(this))
+			return MDIFrame.DETACHED;
+		if(mdiFrame.getCurrentViewPane() == MDIFrame.TABS || mdiFrame.isDocked(this))
+			return MDIFrame.TABS;
+		else
+			return MDIFrame.DESKTOP;
+	}
+	
 	/**
 	 * Returns the defaultCloseOperation. It is one of the 
 	 * <ul>
@@ -269,26 +430,13 @@ public class MDIView extends JPanel {
 	
 	/**
 	 * Sets the icon for the view and reflects the necessary changes in
-	 * the <code>MDIFrame</code> that contains the view. 
+	 * the <code>MDIFrame</code> that contains the view. The tab or internal
+	 * frame is updated at the end of the current event dispatch. 
 	 * @param icon The icon to set.
 	 */
 	public void setIcon(MDIIcon icon) {
 		this.icon = icon;
-		if(mdiFrame.getCurrentViewPane() == MDIFrame.TABS){
-			MDITabbedPane tabpane = mdiFrame.getTabbedPane();
-			int index = tabpane.indexOfComponent(this);
-			if(index != -1){
-				tabpane.setIconAt(index, icon);
-			}
-		}else{
-			JInternalFrame frames[] = mdiFrame.getDektopPane().getAllFrames();
-			for(int i=0; i<frames.length; i++){
-				if(frames[i].getContentPane() == this){
-					frames[i].setFrameIcon(icon);			
-					break;
-				}
-			}	
-		}
+		mdiFrame.markViewDirty(this);
 	}
 	
 	/**
@@ -311,30 +459,54 @@ public class MDIView extends JPanel {
 	
 	/**
 	 * Sets the title for the view and reflects the title change
-	 * in the <code>MDIFrame</code> that contians this view.
+	 * in the <code>MDIFrame</code> that contians this view. The tab or 
+	 * internal frame is updated at the end of the current event dispatch,
+	 * use <code>MDIFrame.flushViewUpdates()</code> to update it right away.
 	 * @param title The title to set.
 	 */
 	public void setTitle(String title) {
 		this.title = title;
-		if(mdiFrame.getCurrentViewPane() == MDIFrame.TABS){
-			MDITabbedPane tabpane = mdiFrame.getTabbedPane();
-			int index = tabpane.indexOfComponent(this);
+		mdiFrame.getViewIndex().titleChanged(this);
+		mdiFrame.markViewDirty(this);
+		MDIWorkspaceJournal journal = mdiFrame.getWorkspaceJournal();
+		if(journal != null)
+			journal.viewChanged(this);
+	}
+	
+	/**
+	 * Shows the current title and icon of the view in its tab or internal 
+	 * frame. This is called by the <code>MDIFrame</code> once per event
+	 * dispatch for views whose title or icon has changed, so that a view
+	 * updating its title many times a second causes a single relayout.
+	 * @see MDIFrame#flushViewUpdates()
+	 */
+	void applyTitleAndIcon(){
+		if(getViewPane() == MDIFrame.TABS){
+			MDITabbedPane tabpane = mdiFrame.getTabGroup(this);
+			int index = tabpane == null ? -1 : tabpane.indexOfComponent(this);
 			if(index != -1){
-				tabpane.setTitleAt(index, title);
-			}			
+				tabpane.updateTitleAt(index, title);
+				if(tabpane.getIconAt(index) != icon)
+					tabpane.setIconAt(index, icon);
+			}
+		}else if(mdiFrame.isDetached(this)){
+			MDIDetachedWindow window = mdiFrame.getDetachedWindow(this);
+			String windowTitle = window.getTitle();
+			if(windowTitle == null ? title != null : !windowTitle.equals(title))
+				window.setTitle(title);
 		}else{
-			JInternalFrame frames[] = mdiFrame.getDektopPane().getAllFrames();
-			for(int i=0; i<frames.length; i++){
-				if(frames[i].getContentPane() == this){
-					frames[i].setTitle(title);			
-					break;
-				}
-			}	
+			//the view is the content pane of its internal frame.
+			JInternalFrame frame = (JInternalFrame)SwingUtilities.getAncestorOfClass(JInternalFrame.class, this);
+			if(frame != null){
+				String frameTitle = frame.getTitle();
+				if(frameTitle == null ? title != null : !frameTitle.equals(title))
+					frame.setTitle(title);
+				if(frame.getFrameIcon() != icon)
+					frame.setFrameIcon(icon);
+			}
 		}
 	}
 	
-	
-	
 	/**
 	 * Returns the <code>MDIFrame</code> that contains this view.
 	 * @return the mdiFrame.
@@ -343,12 +515,22 @@ public class MDIView extends JPanel {
 		return mdiFrame;
 	}
 	
+	/**
+	 * Sets the <code>MDIFrame</code> that contains this view, when it is 
+	 * moved to another frame.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 * @see MDIViewRegistry#moveView(MDIView, MDIFrame)
+	 */
+	void setMdiFrame(MDIFrame mdiFrame) {
+		this.mdiFrame = mdiFrame;
+	}
+	
 	/**
 	 * Returns whether the <code>MDIView</code> is maximized.
 	 * @return <code>true</code> if the frame is maximized, <code>false</code> otherwise.
 	 */
 	public boolean isMaximized(){
-		if(mdiFrame.getCurrentViewPane() == MDIFrame.TABS)
+		if(getViewPane() == MDIFrame.TABS)
 			return true; //In this stage all windows are maximized.		
 		else 
 			return false;
@@ -360,10 +542,18 @@ public class MDIView extends JPanel {
 	 * Note that if active view pane is tabbed pane the view will
 	 * be only set selected. Also in this case only <code>MDIView</code> 
 	 * activiated event will be fired.
+	 * With the hybrid layout only this view is docked as a tab.
+	 * A detached view is attached to its <code>MDIFrame</code> first.
+	 * @see MDIFrame#setHybridLayout(boolean)
 	 */
 	public void setMaximized(){
+		mdiFrame.attachView(this);
 		if(this.isMaximized() == false){
 			mdiFrame.setActiveView(this);
+			if(mdiFrame.isHybridLayout()){
+				mdiFrame.dockView(this);
+				return;
+			}
 			mdiFrame.changeView();
 			this.fireMDIViewEvent(MDIViewEvent.MDIVIEW_MAXIMIZED);
 		}else{
@@ -377,7 +567,7 @@ public class MDIView extends JPanel {
 	 * 			<code>false</code> otherwise.
 	 */
 	public boolean isIconified(){
-		if(mdiFrame.getCurrentViewPane() == MDIFrame.TABS){
+		if(getViewPane() == MDIFrame.TABS){
 			return false;
 		}else{
 			if(state == MDIView.ICONIFIED)
@@ -389,10 +579,14 @@ public class MDIView extends JPanel {
 	
 	/**
 	 * Sets the view to iconified state and fires appropriate <code>MDIView</code> events. 
+	 * A detached view is attached to its <code>MDIFrame</code> first.
 	 */
 	public void setIconified(){
+		mdiFrame.attachView(this);
 		if(mdiFrame.getCurrentViewPane() == MDIFrame.TABS){
 			mdiFrame.changeView();
+		}else{
+			mdiFrame.floatViewInternally(this);
 		}
 		JInternalFrame frames[] = mdiFrame.getDektopPane().getAllFrames();
 		for(int i=0; i<frames.length; i++){
@@ -412,7 +606,7 @@ public class MDIView extends JPanel {
 	 * @return true if the <code>MDIView</code> is restored, <code>false</code> otherwise.
 	 */
 	public boolean isRestored(){
-		if(mdiFrame.getCurrentViewPane() == MDIFrame.TABS){
+		if(getViewPane() == MDIFrame.TABS){
 			return false;
 		}else{
 			if(state == MDIView.RESTORED)
@@ -430,9 +624,13 @@ public class MDIView extends JPanel {
 	 * and <code>MDIView</code> activiated events.
 	 * Note that that if the view is already in restored state
 	 * then it is only activiated. Also in this case only <code>MDIView</code> 
-	 * activiated event will be fired.
+	 * activiated event will be fired. A detached view is only activated.
 	 */
 	public void setRestored(){
+		if(mdiFrame.isDetached(this)){
+			mdiFrame.setActiveView(this);
+			return;
+		}
 		//if the view is already in restored state just set it 
 		//active.
 		if(this.isRestored()){
@@ -458,6 +656,9 @@ public class MDIView extends JPanel {
 				mdiFrame.changeView();
 				this.fireMDIViewEvent(MDIViewEvent.MDIVIEW_RESTORED);
 			}
+		}else if(mdiFrame.isDocked(this)){
+			mdiFrame.floatView(this);
+			return;
 		}
 		JInternalFrame frames[] = mdiFrame.getDektopPane().getAllFrames();
 		for(int i=0; i<frames.length; i++){
@@ -478,6 +679,9 @@ public class MDIView extends JPanel {
 	 * @return <code>true</code> if the <code>MDIView</code> is "selected" or active.
 	 */
 	public boolean isSelected(){
+		MDIDetachedWindow window = mdiFrame.getDetachedWindow(this);
+		if(window != null)
+			return window.isViewActive();
 		return mdiFrame.getActiveView() == this ? true : false; 
 	}
 	
@@ -499,6 +703,7 @@ public class MDIView extends JPanel {
 	 */
 	public void setSelected(boolean selected){
 		if(selected){
+			ensureContent();
 			mdiFrame.setActiveView(this);
 		}else{
 			if( this == mdiFrame.getActiveView()){
@@ -536,11 +741,32 @@ public class MDIView extends JPanel {
 	 * @see MDIView#disposeView()
 	 */
 	public void closeView(){
-		if(mdiFrame.getCurrentViewPane() == MDIFrame.TABS){
+		long start = mdiFrame.beginOperation(MDIOperation.CLOSE_VIEW);
+		Object flightEvent = MDIFlightRecorder.beginViewClose();
+		try{
+			closeViewInternally();
+		}finally{
+			mdiFrame.endOperation(start);
+			MDIFlightRecorder.end(flightEvent, title, mdiFrame.getViews().size());
+		}
+	}
+	
+	private void closeViewInternally(){
+		if(mdiFrame.isDetached(this)){
+			this.fireMDIViewEvent(MDIViewEvent.MDIVIEW_CLOSING);
+			if(this.getDefaultCloseOperation() == MDIView.DISPOSE_ON_CLOSE){
+				mdiFrame.closeDetachedView(this);
+			}
+		}else if(mdiFrame.getCurrentViewPane() == MDIFrame.TABS){
 			this.fireMDIViewEvent(MDIViewEvent.MDIVIEW_CLOSING);
 			if(this.getDefaultCloseOperation() == MDIView.DISPOSE_ON_CLOSE){
 				this.removeTabbedView();
 			}		
+		}else if(mdiFrame.isDocked(this)){
+			this.fireMDIViewEvent(MDIViewEvent.MDIVIEW_CLOSING);
+			if(this.getDefaultCloseOperation() == MDIView.DISPOSE_ON_CLOSE){
+				mdiFrame.closeDockedView(this);
+			}
 		}else{
 			this.fireMDIViewEvent(MDIViewEvent.MDIVIEW_CLOSING);
 			JInternalFrame frames[] = mdiFrame.getDektopPane().getAllFrames();
@@ -593,11 +819,19 @@ public class MDIView extends JPanel {
 	 * </b>
 	 */
 	public void disposeView(){				
-		if(mdiFrame.getCurrentViewPane() == MDIFrame.TABS){
+		if(mdiFrame.isDetached(this)){
+			if(this.getDefaultCloseOperation() == MDIView.DISPOSE_ON_CLOSE){
+				mdiFrame.closeDetachedView(this);
+			}
+		}else if(mdiFrame.getCurrentViewPane() == MDIFrame.TABS){
 			//this.fireMDIViewEvent(MDIViewEvent.MDIVIEW_CLOSING);
 			if(this.getDefaultCloseOperation() == MDIView.DISPOSE_ON_CLOSE){
 				this.removeTabbedView();
 			}		
+		}else if(mdiFrame.isDocked(this)){
+			if(this.getDefaultCloseOperation() == MDIView.DISPOSE_ON_CLOSE){
+				mdiFrame.closeDockedView(this);
+			}
 		}else{
 			//this.fireMDIViewEvent(MDIViewEvent.MDIVIEW_CLOSING);
 			JInternalFrame frames[] = mdiFrame.getDektopPane().getAllFrames();
@@ -628,11 +862,19 @@ public class MDIView extends JPanel {
 	 *
 	 */
 	private void removeTabbedView(){
-		JTabbedPane tabbedPane = mdiFrame.getTabbedPane();
+		MDITabbedPane tabbedPane = mdiFrame.getTabGroup(this);
+		if(mdiFrame.removeFromInactiveTabGroup(this)){
+			mdiFrame.removeView(this);
+			this.fireMDIViewEvent(MDIViewEvent.MDIVIEW_CLOSED);
+			if(mdiFrame.getViews().size() == 0){
+				mdiFrame.removeWindowButtons();
+			}
+			return;
+		}
 		int tabCount = tabbedPane.getTabCount();
 		MDIView lastActiveView = mdiFrame.getActiveView();
 		int index = tabbedPane.indexOfComponent(this);
-		int selectedIndex = mdiFrame.getTabbedPane().getSelectedIndex();
+		int selectedIndex = tabbedPane.getSelectedIndex();
 		
 		if(index < selectedIndex){			
 			mdiFrame.setSuppressActiviationEvents(true);
@@ -644,6 +886,7 @@ public class MDIView extends JPanel {
 		
 		tabbedPane.removeTabAt(index);
 		mdiFrame.removeView(this);
+		mdiFrame.tabGroupEmptied(tabbedPane);
 		
 		if(index < selectedIndex){
 			tabbedPane.setSelectedIndex(selectedIndex - 1);
@@ -667,6 +910,158 @@ public class MDIView extends JPanel {
 		}
 	}
 	
+	/**
+	 * Gives the hibernator of this view.
+	 * @return the hibernator or <code>null</code> if the view can not be hibernated.
+	 */
+	public MDIViewHibernator getHibernator() {
+		return hibernator;
+	}
+	
+	/**
+	 * Sets the hibernator that saves and restores the content of this
+	 * view. A view without hibernator is never hibernated.
+	 * @param hibernator The hibernator to set or <code>null</code>.
+	 */
+	public void setHibernator(MDIViewHibernator hibernator) {
+		this.hibernator = hibernator;
+	}
+	
+	/**
+	 * Returns whether the child components of this view are currently
+	 * released.
+	 * @return <code>true</code> if the view is hibernated.
+	 */
+	public boolean isHibernated() {
+		return hibernated;
+	}
+	
+	/**
+	 * Hibernates the view i.e. saves its state through its 
+	 * <code>MDIViewHibernator</code> and removes all of its child 
+	 * components. The title, icon and frame bounds of the view are kept.
+	 * The view is rehydrated automatically when it is activated.
+	 * <p>
+	 * Nothing happens if the view has no hibernator, is already hibernated
+	 * or is the active view of its <code>MDIFrame</code>.
+	 * @return <code>true</code> if the view was hibernated.
+	 */
+	public boolean hibernate(){
+		if(hibernator == null || hibernated || contentSupplier != null || isSelected())
+			return false;
+		hibernatedState = hibernator.saveState(this);
+		hibernated = true;
+		defaultComponent = null;
+		removeAll();
+		revalidate();
+		repaint();
+		return true;
+	}
+	
+	/**
+	 * Makes sure the content of the view is present. This is called whenever
+	 * the view is about to be activated or shown. It creates the content 
+	 * of a deferred view and rehydrates a hibernated view, otherwise nothing
+	 * happens.
+	 */
+	void ensureContent(){
+		if(contentSupplier != null){
+			createContent();
+		}else if(hibernated){
+			Object state = hibernatedState;
+			hibernatedState = null;
+			hibernated = false;
+			hibernator.restoreState(this, state);
+			revalidate();
+			repaint();
+		}
+	}
+	
+	/**
+	 * Creates the content of a deferred view, on the content executor of the
+	 * <code>MDIFrame</code> if there is one.
+	 */
+	private void createContent(){
+		if(contentLoading)
+			return;
+		final MDIViewContentSupplier supplier = contentSupplier;
+		Executor executor = mdiFrame.getContentExecutor();
+		if(executor == null){
+			Object data;
+			try{
+				data = supplier.loadData(this);
+			}catch(Exception ex){
+				showContent(supplier, null, ex);
+				return;
+			}
+			showContent(supplier, data, null);
+			return;
+		}
+		contentLoading = true;
+		Runnable load = new Runnable(){
+			public void run(){
+				Object data = null;
+				Exception error = null;
+				try{
+					data = supplier.loadData(MDIView.this);
+				}catch(Exception ex){
+					error = ex;
+				}
+				final Object loadedData = data;
+				final Exception loadError = error;
+				SwingUtilities.invokeLater(new Runnable(){
+					public void run(){
+						if(!contentLoading)
+							return; //the view has been closed in the meantime.
+						contentLoading = false;
+						contentLoad = null;
+						if(contentSupplier == supplier && (mdiFrame.getViews().contains(MDIView.this) || mdiFrame.isDetached(MDIView.this)))
+							showContent(supplier, loadedData, loadError);
+					}
+				});
+			}
+		};
+		if(executor instanceof ExecutorService)
+			contentLoad = ((ExecutorService)executor).submit(load);
+		else
+			executor.execute(load);
+	}
+	
+	/**
+	 * Cancels the background load of a deferred view. This is called when
+	 * the view is removed from its <code>MDIFrame</code>.
+	 */
+	void cancelContentLoad(){
+		if(!contentLoading)
+			return;
+		contentLoading = false;
+		if(contentLoad != null){
+			contentLoad.cancel(true);
+			contentLoad = null;
+		}
+	}
+	
+	/**
+	 * Replaces the placeholder with the content built by the supplier, or
+	 * with the message of <code>error</code> if the data could not be loaded.
+	 */
+	private void showContent(MDIViewContentSupplier supplier, Object data, Exception error){
+		contentSupplier = null;
+		removeAll();
+		if(error == null){
+			supplier.createContent(this, data);
+		}else{
+			//the stack trace goes where the application handles uncaught exceptions
+			Thread thread = Thread.currentThread();
+			thread.getUncaughtExceptionHandler().uncaughtException(thread, error);
+			add(new JLabel(String.valueOf(error.getMessage()), SwingConstants.CENTER), BorderLayout.CENTER);
+		}
+		revalidate();
+		repaint();
+		if(isSelected() && defaultComponent != null)
+			defaultComponent.requestFocusInWindow();
+	}
+	
 	/**
 	 * Adds the specified <code>MDIViewListener</code> to the <code>MDIView</code> object
 	 * so that it can recive the <code>MDIViewEvents</code> fired by the <code>MDIView</code>
@@ -676,13 +1071,98 @@ public class MDIView extends JPanel {
 		mdiViewListeners.add(listener);		
 	}
 	
+	/**
+	 * Adds the specified <code>MDIViewListener</code> to the <code>MDIView</code> object
+	 * so that it recives only the <code>MDIViewEvents</code> selected by <code>eventMask</code>,
+	 * for example <code>MDIViewEvent.MDIVIEW_CLOSED_MASK | MDIViewEvent.MDIVIEW_ACTIVIATED_MASK</code>.
+	 * The other methods of the listener are never invoked.
+	 * @param listener the MDIViewListener to add
+	 * @param eventMask the bitwise or of the <code>MDIViewEvent.XXX_MASK</code> 
+	 * 			constants of the events to receive.
+	 * @see MDIViewEvent#maskFor(int)
+	 */
+	public void addMDIViewListener(MDIViewListener listener, int eventMask){
+		mdiViewListeners.add(listener, eventMask);
+	}
+	
+	/**
+	 * Adds the specified <code>MDIViewListener</code> to the <code>MDIView</code> object
+	 * without keeping it alive: the view only holds a weak reference to the
+	 * listener, so a short lived panel that listens to a long lived view 
+	 * can be garbage collected without removing its listener. The 
+	 * registration is removed by the first event after the listener was 
+	 * collected. The caller must hold the listener as long as it should
+	 * receive events, an anonymous listener that is referenced nowhere else
+	 * may be collected at once.
+	 * @param listener the MDIViewListener to add
+	 * @see MDIView#addWeakMDIViewListener(MDIViewListener, int)
+	 */
+	public void addWeakMDIViewListener(MDIViewListener listener){
+		mdiViewListeners.addWeak(listener, MDIViewListenerList.ALL_TYPES, this);
+	}
+	
+	/**
+	 * Adds the specified <code>MDIViewListener</code> without keeping it 
+	 * alive so that it recives only the <code>MDIViewEvents</code> selected
+	 * by <code>eventMask</code>.
+	 * @param listener the MDIViewListener to add
+	 * @param eventMask the bitwise or of the <code>MDIViewEvent.XXX_MASK</code> 
+	 * 			constants of the events to receive.
+	 * @see MDIView#addWeakMDIViewListener(MDIViewListener)
+	 */
+	public void addWeakMDIViewListener(MDIViewListener listener, int eventMask){
+		mdiViewListeners.addWeak(listener, eventMask, this);
+	}
+	
 	/**
 	 * Removes the specified <code>MDIViewListener</code> from the <code>MDIView</code>
-	 * so that it no longer recives the <code>MDIViewEvents</code> fired by the <code>MDIView</code>
+	 * so that it no longer recives the <code>MDIViewEvents</code> fired by the <code>MDIView</code>.
+	 * This removes weak registrations as well.
 	 * @param listener the MDIViewListener to to remove
 	 */
 	public void removeMDIViewListener(MDIViewListener listener){
 		mdiViewListeners.remove(listener);
+	}
+	
+	/**
+	 * Adds the specified <code>MDIViewListener</code> to the <code>MDIView</code> object
+	 * so that it recives the <code>MDIViewEvents</code> selected by <code>eventMask</code>
+	 * on the async event dispatcher of the <code>MDIFrame</code> instead of the event
+	 * dispatch thread. The events of this view are delivered in the order in which 
+	 * they were fired, but the listener runs after <code>fireMDIViewEvent()</code> 
+	 * has returned. So it must not touch Swing components directly.
+	 * <p>
+	 * <code>MDIVIEW_CLOSING</code> can't be received asynchronously, because the
+	 * listener must be able to veto the closing before the view is closed.
+	 * @param listener the MDIViewListener to add
+	 * @param eventMask the bitwise or of the <code>MDIViewEvent.XXX_MASK</code> 
+	 * 			constants of the events to receive.
+	 * @throws IllegalArgumentException if <code>eventMask</code> contains
+	 * 			<code>MDIViewEvent.MDIVIEW_CLOSING_MASK</code>.
+	 * @see MDIFrame#getAsyncEventDispatcher()
+	 */
+	public void addAsyncMDIViewListener(MDIViewListener listener, int eventMask){
+		if((eventMask & MDIViewEvent.MDIVIEW_CLOSING_MASK) != 0)
+			throw new IllegalArgumentException("MDIVIEW_CLOSING can only be received synchronously");
+		asyncMDIViewListeners.add(listener, eventMask);
+	}
+	
+	/**
+	 * Removes the specified asynchronous <code>MDIViewListener</code>. Events 
+	 * that are already queued are still delivered to it.
+	 * @param listener the MDIViewListener to to remove
+	 */
+	public void removeAsyncMDIViewListener(MDIViewListener listener){
+		asyncMDIViewListeners.remove(listener);
+	}
+	
+	/**
+	 * Gives the queue of the events of this view on <code>dispatcher</code>.
+	 */
+	synchronized MDIAsyncEventDispatcher.ViewQueue getAsyncEventQueue(MDIAsyncEventDispatcher dispatcher){
+		if(asyncEventQueue == null || asyncEventQueue.getDispatcher() != dispatcher)
+			asyncEventQueue = dispatcher.new ViewQueue();
+		return asyncEventQueue;
 	}	
 	
 	
@@ -712,44 +1192,46 @@ public class MDIView extends JPanel {
 	 * If the event id is not one of the above nothing happens.
 	 */
 	public void fireMDIViewEvent(int eventId){
+		if(eventId == MDIViewEvent.MDIVIEW_ACTIVIATED)
+			mdiFrame.getViewIndex().touch(this);
+		
 		//Trigger the viewPaneChanged Event on our parent!
-		this.getMdiFrame().fireMDIFrameEvent( new MDIFrameEvent( this.getMdiFrame(), null, null ) );
+		this.getMdiFrame().fireViewsChanged();
 
-		MDIViewEvent event = new MDIViewEvent(this, eventId);
-		for(int i=0; i<mdiViewListeners.size(); i++){
-			switch(eventId){
-				case MDIViewEvent.MDIVIEW_ACTIVIATED:
-					((MDIViewListener)mdiViewListeners.get(i)).MDIViewActivated( event );
-					break;
-				
-				case MDIViewEvent.MDIVIEW_DEACTIVIATED:
-					((MDIViewListener)mdiViewListeners.get(i)).MDIViewDeactivated( event );
-					break;
-				
-				case MDIViewEvent.MDIVIEW_OPENED:
-					((MDIViewListener)mdiViewListeners.get(i)).MDIViewOpened(event);			
-					break;
-					
-				case MDIViewEvent.MDIVIEW_CLOSED:
-					((MDIViewListener)mdiViewListeners.get(i)).MDIViewClosed(event);
-					break;
-					
-				case MDIViewEvent.MDIVIEW_ICONIFIED:
-					((MDIViewListener)mdiViewListeners.get(i)).MDIViewIconified(event);
-					break;
-					
-				case MDIViewEvent.MDIVIEW_RESTORED:
-					((MDIViewListener)mdiViewListeners.get(i)).MDIViewRestored(event);
-					break;
-					
-				case MDIViewEvent.MDIVIEW_MAXIMIZED:
-					((MDIViewListener)mdiViewListeners.get(i)).MDIViewMaximized(event);
-					break;
-					
-				case MDIViewEvent.MDIVIEW_CLOSING:
-					((MDIViewListener)mdiViewListeners.get(i)).MDIViewClosing(event);
-					break;					
-			}
+		MDIViewListener[] targets = mdiViewListeners.getListeners(eventId);
+		Object flightEvent = MDIFlightRecorder.beginViewEvent(eventId);
+		try{
+			if(targets.length > 0)
+				MDIViewListenerList.dispatch(getEvent(eventId), targets);
+		}finally{
+			MDIFlightRecorder.end(flightEvent, title, mdiFrame.getViews().size());
+		}
+		
+		MDIViewListener[] asyncTargets = asyncMDIViewListeners.getListeners(eventId);
+		if(asyncTargets.length > 0)
+			mdiFrame.getAsyncEventDispatcher().post(this, getEvent(eventId), asyncTargets);
+		
+		MDIMetrics metrics = mdiFrame.getMetrics();
+		if(metrics != MDIMetrics.NONE)
+			metrics.eventDispatched(this, eventId, targets.length + asyncTargets.length);
+		
+		MDIWorkspaceJournal journal = mdiFrame.getWorkspaceJournal();
+		if(journal != null)
+			journal.viewEventFired(this, eventId);
+	}
+	
+	/**
+	 * Gives the shared event instance of this view for <code>eventId</code>,
+	 * which must be a <code>MDIViewEvent</code> id.
+	 */
+	MDIViewEvent getEvent(int eventId){
+		int type = MDIViewListenerList.typeIndex(eventId);
+		MDIViewEvent event = events[type];
+		if(event == null){
+			//a race only creates an equal instance twice
+			event = new MDIViewEvent(this, eventId);
+			events[type] = event;
 		}
+		return event;
 	}	
 }
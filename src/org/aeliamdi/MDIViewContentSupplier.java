@@ -0,0 +1,36 @@
+package org.aeliamdi;
+
+/**
+ * Supplies the content of a <code>MDIView</code> that is created lazily.
+ * <p>
+ * A view created with <code>MDIView.createDeferred()</code> can be added to
+ * a <code>MDIFrame</code> right away. It shows a lightweight placeholder
+ * until it is activated for the first time, at which point its content is
+ * built by this supplier. If the <code>MDIFrame</code> has a content executor
+ * (see <code>MDIFrame.setContentExecutor()</code>), <code>loadData()</code>
+ * is run on that executor and <code>createContent()</code> is invoked on
+ * the event dispatch thread once the data is available. Otherwise both
+ * methods are invoked one after another on the event dispatch thread.
+ * @see MDIView#createDeferred(MDIFrame, String, MDIIcon, MDIViewContentSupplier)
+ */
+public interface MDIViewContentSupplier {
+	/**
+	 * Loads the data that is shown by the view. This method may be invoked
+	 * on a background thread and so must not touch any Swing component.
+	 * @param view the view whose content is being created.
+	 * @return the loaded data, may be <code>null</code>.
+	 * @throws Exception if the data can not be loaded. The view will then
+	 * 			show the error message instead of its content.
+	 */
+	public Object loadData(MDIView view) throws Exception;
+
+	/**
+	 * Builds the content of the view. This method is always invoked on the
+	 * event dispatch thread. The implementation should add the child
+	 * components to <code>view</code> and set its default component.
+	 * @param view the view whose content is being created, its placeholder
+	 * 			has already been removed.
+	 * @param data the object returned by <code>loadData()</code>.
+	 */
+	public void createContent(MDIView view, Object data);
+}
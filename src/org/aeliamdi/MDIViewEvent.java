@@ -30,6 +30,10 @@ import java.awt.AWTEvent;
 
 /**
  * Event class representing MDIView events.
+ * <p>
+ * A <code>MDIView</code> reuses one event instance per event type for all
+ * of its dispatches, so listeners should not keep a reference to the event
+ * or change its source.
  * @author Pritam G. Barhate
  */
 public class MDIViewEvent extends AWTEvent {
@@ -87,6 +91,49 @@ public class MDIViewEvent extends AWTEvent {
      */
     public static final int INTERNAL_FRAME_LAST = MDIVIEW_CLOSING;
 	
+	/** 
+	 * The event mask for selecting "activiated" events.
+	 * @see MDIView#addMDIViewListener(MDIViewListener, int)
+	 */
+	public static final int MDIVIEW_ACTIVIATED_MASK = 1 << (MDIVIEW_ACTIVIATED - MDIVIEW_FIRST);
+	
+	/** The event mask for selecting "deactiviated" events. */
+	public static final int MDIVIEW_DEACTIVIATED_MASK = 1 << (MDIVIEW_DEACTIVIATED - MDIVIEW_FIRST);
+	
+	/** The event mask for selecting "opened" events. */
+	public static final int MDIVIEW_OPENED_MASK = 1 << (MDIVIEW_OPENED - MDIVIEW_FIRST);
+	
+	/** The event mask for selecting "closed" events. */
+	public static final int MDIVIEW_CLOSED_MASK = 1 << (MDIVIEW_CLOSED - MDIVIEW_FIRST);
+	
+	/** The event mask for selecting "iconified" events. */
+	public static final int MDIVIEW_ICONIFIED_MASK = 1 << (MDIVIEW_ICONIFIED - MDIVIEW_FIRST);
+	
+	/** The event mask for selecting "restored" events. */
+	public static final int MDIVIEW_RESTORED_MASK = 1 << (MDIVIEW_RESTORED - MDIVIEW_FIRST);
+	
+	/** The event mask for selecting "maximized" events. */
+	public static final int MDIVIEW_MAXIMIZED_MASK = 1 << (MDIVIEW_MAXIMIZED - MDIVIEW_FIRST);
+	
+	/** The event mask for selecting "closing" events. */
+	public static final int MDIVIEW_CLOSING_MASK = 1 << (MDIVIEW_CLOSING - MDIVIEW_FIRST);
+	
+	/** The event mask for selecting all <code>MDIView</code> events. */
+	public static final int MDIVIEW_ALL_EVENTS_MASK = (1 << (MDIVIEW_CLOSING - MDIVIEW_FIRST + 1)) - 1;
+	
+	/**
+	 * Gives the event mask for the specified event id, for example
+	 * <code>MDIVIEW_CLOSED_MASK</code> for <code>MDIVIEW_CLOSED</code>.
+	 * @param id the event id.
+	 * @return the event mask or <code>0</code> if <code>id</code> is not
+	 * 			a <code>MDIView</code> event id.
+	 */
+	public static int maskFor(int id){
+		if(id < MDIVIEW_FIRST || id > MDIVIEW_CLOSING)
+			return 0;
+		return 1 << (id - MDIVIEW_FIRST);
+	}
+	
 	/**
 	 * Constructs a <code>MDIViewEvent</code> with given <code>source</code>
 	 * and <code>id</code>
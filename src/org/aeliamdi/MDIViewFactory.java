@@ -0,0 +1,20 @@
+package org.aeliamdi;
+
+/**
+ * Recreates the views of a saved workspace.
+ * @see MDIWorkspace#restore(MDIFrame, MDIViewFactory)
+ */
+public interface MDIViewFactory {
+	/**
+	 * Creates the view saved with <code>factoryId</code> and <code>key</code>.
+	 * The view should not be added to <code>frame</code>, that is done by 
+	 * the workspace. To keep the restore fast, expensive content should be 
+	 * created lazily, for example with <code>MDIView.createDeferred()</code>.
+	 * @param frame the frame the view will be added to.
+	 * @param factoryId the factory id of the saved view.
+	 * @param key the persistence key of the saved view.
+	 * @param title the title of the saved view.
+	 * @return the view or <code>null</code> if it can't be restored any more.
+	 */
+	public MDIView createView(MDIFrame frame, String factoryId, String key, String title);
+}
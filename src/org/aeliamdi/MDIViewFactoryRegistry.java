@@ -0,0 +1,98 @@
+package org.aeliamdi;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A <code>MDIViewFactory</code> that restores the views of a workspace as 
+ * lightweight deferred views. The content of a view is created by the
+ * <code>MDIViewContentSupplier</code> registered for its factory id when
+ * the view is shown for the first time, so restoring a workspace does not
+ * depend on how many views it has.
+ * <pre>
+ * MDIViewFactoryRegistry registry = new MDIViewFactoryRegistry();
+ * registry.register("editor", new EditorContentSupplier(), editorIcon);
+ * MDIWorkspace.read(path).restore(mdiFrame, registry);
+ * </pre>
+ * The supplier can tell the views apart by their persistence key, see
+ * <code>MDIView.getPersistenceKey()</code>. Views whose factory id is not
+ * registered are not restored.
+ * @see MDIView#createDeferred(MDIFrame, String, MDIIcon, MDIViewContentSupplier)
+ */
+public class MDIViewFactoryRegistry implements MDIViewFactory {
+	private final Map<String, Registration> registrations = new ConcurrentHashMap<String, Registration>();
+
+	/**
+	 * Registers the supplier of the views with <code>factoryId</code>.
+	 * @param factoryId the factory id.
+	 * @param supplier creates the content of the views.
+	 */
+	public void register(String factoryId, MDIViewContentSupplier supplier){
+		register(factoryId, supplier, null);
+	}
+
+	/**
+	 * Registers the supplier and the icon of the views with <code>factoryId</code>.
+	 * @param factoryId the factory id.
+	 * @param supplier creates the content of the views.
+	 * @param icon the icon of the views, may be <code>null</code>.
+	 */
+	public void register(String factoryId, MDIViewContentSupplier supplier, MDIIcon icon){
+		if(factoryId == null || supplier == null)
+			throw new IllegalArgumentException("factoryId and supplier should not be null");
+		registrations.put(factoryId, new Registration(supplier, icon));
+	}
+
+	/**
+	 * Removes the registration of <code>factoryId</code>.
+	 * @param factoryId the factory id.
+	 */
+	public void unregister(String factoryId){
+		registrations.remove(factoryId);
+	}
+
+	/**
+	 * Gives the supplier registered for <code>factoryId</code>.
+	 * @param factoryId the factory id.
+	 * @return the supplier or <code>null</code> if none is registered.
+	 */
+	public MDIViewContentSupplier getSupplier(String factoryId){
+		Registration registration = factoryId == null ? null : registrations.get(factoryId);
+		return registration == null ? null : registration.supplier;
+	}
+
+	/**
+	 * Gives the icon registered for <code>factoryId</code>.
+	 * @param factoryId the factory id.
+	 * @return the icon or <code>null</code>.
+	 */
+	public MDIIcon getIcon(String factoryId){
+		Registration registration = factoryId == null ? null : registrations.get(factoryId);
+		return registration == null ? null : registration.icon;
+	}
+
+	/**
+	 * Creates a deferred view with the title and the registered icon that
+	 * shows a placeholder until it is activated.
+	 * @return the view or <code>null</code> if <code>factoryId</code> is not registered.
+	 */
+	public MDIView createView(MDIFrame frame, String factoryId, String key, String title){
+		Registration registration = factoryId == null ? null : registrations.get(factoryId);
+		if(registration == null)
+			return null;
+		MDIView view = MDIView.createDeferred(frame, title, registration.icon, registration.supplier);
+		view.setFactoryId(factoryId);
+		view.setPersistenceKey(key);
+		return view;
+	}
+
+	private static class Registration {
+		final MDIViewContentSupplier supplier;
+		final MDIIcon icon;
+
+		Registration(MDIViewContentSupplier supplier, MDIIcon icon){
+			this.supplier = supplier;
+			this.icon = icon;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package org.aeliamdi;
+
+/**
+ * Callback interface used to hibernate a <code>MDIView</code>, i.e. to
+ * release the heavy content of a view that is not visible and to rebuild
+ * it when the view is activated again.
+ * <p>
+ * When a view is hibernated its <code>MDIViewHibernator</code> is asked to
+ * save the state of the view, after which all child components of the view
+ * are removed. Only the title, icon and frame bounds are kept. When the view
+ * is activated again through <code>MDIFrame.setActiveView()</code>,
+ * <code>MDIView.setSelected()</code>, a tab click or by activating its
+ * internal frame, the hibernator is asked to rebuild the children from the
+ * saved state.
+ * @see MDIView#setHibernator(MDIViewHibernator)
+ * @see MDIView#hibernate()
+ * @see MDIFrame#hibernateInactiveViews()
+ */
+public interface MDIViewHibernator {
+	/**
+	 * Invoked just before the child components of <code>view</code> are
+	 * removed. The returned object should hold everything that is needed to
+	 * rebuild the view and should be much smaller than the view itself.
+	 * @param view the view that is being hibernated.
+	 * @return the state of the view, may be <code>null</code>.
+	 */
+	public Object saveState(MDIView view);
+
+	/**
+	 * Invoked when a hibernated view is activated. The implementation
+	 * should add the child components to <code>view</code> again and set
+	 * its default component if required.
+	 * @param view the view that is being rehydrated, it has no children.
+	 * @param state the object returned by <code>saveState()</code>.
+	 */
+	public void restoreState(MDIView view, Object state);
+}
@@ -0,0 +1,467 @@
+package org.aeliamdi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Incrementally maintained search index over the titles of the
+ * <code>MDIView</code>s of a <code>MDIFrame</code>. It is used by the
+ * <code>MDIQuickSwitcher</code> to find views by (a part of) their title.
+ * <p>
+ * Every view gets a small integer id and every trigram of its lower case
+ * title is mapped to a sorted posting list of those ids. A query is answered
+ * by intersecting the posting lists of its trigrams, so the cost of a
+ * lookup depends on the number of matching views and not on the number of
+ * open views. Queries shorter than a trigram and "fuzzy" queries (for example
+ * <code>"mfr"</code> for <code>"MDIFrame"</code>) fall back to scanning the
+ * compact title array.
+ * <p>
+ * The index is kept up to date by <code>MDIFrame.addInternalView()</code>,
+ * <code>MDIFrame.removeView()</code> and <code>MDIView.setTitle()</code>.
+ * It also records the order in which views were activated so that equally
+ * good matches are ranked most recently used first. The index of a frame
+ * forwards every change to the application wide index of the
+ * <code>MDIViewRegistry</code>, which finds views across all frames.
+ * <p>
+ * Note that like the rest of the framework this class is not thread safe and
+ * should only be used on the event dispatch thread.
+ */
+public class MDIViewIndex {
+	/** Number of characters in one gram of the index. */
+	private static final int GRAM = 3;
+
+	/** Maps the id of a view to the view. Freed slots are <code>null</code>. */
+	private MDIView[] viewsById = new MDIView[16];
+
+	/** Maps the id of a view to its lower case title. */
+	private String[] keysById = new String[16];
+
+	/** 
+	 * Maps the id of a view to a bit set of the characters in its title.
+	 * It is used to skip titles that cannot match a fuzzy query.
+	 */
+	private long[] masksById = new long[16];
+
+	/** Maps the id of a view to the time stamp of its last activation. */
+	private long[] lastUsedById = new long[16];
+
+	/** Ids that have been freed by removed views and can be reused. */
+	private int[] freeIds = new int[16];
+	private int freeCount = 0;
+
+	/** One past the highest id that was ever handed out. */
+	private int idLimit = 0;
+
+	/** Number of views currently in the index. */
+	private int size = 0;
+
+	/** Clock used for the most recently used ordering. */
+	private long useClock = 0;
+
+	/** Maps the views to their ids. */
+	private Map<MDIView, Integer> ids = new IdentityHashMap<MDIView, Integer>();
+
+	/** Maps the packed trigrams to the posting lists of view ids. */
+	private Map<Long, Postings> grams = new HashMap<Long, Postings>();
+
+	/** The index that receives all changes of this index or <code>null</code>. */
+	private MDIViewIndex sharedIndex;
+
+	/**
+	 * Constructs an empty index.
+	 */
+	public MDIViewIndex(){
+	}
+
+	/**
+	 * Sets the index that receives the changes of this index from now on.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 * @param sharedIndex the index that receives all changes or <code>null</code>.
+	 * @see MDIViewRegistry
+	 */
+	void setSharedIndex(MDIViewIndex sharedIndex){
+		this.sharedIndex = sharedIndex;
+	}
+
+	/**
+	 * Adds <code>view</code> to the index. Nothing happens if the view is
+	 * already indexed.
+	 * @param view the view to add.
+	 */
+	public void add(MDIView view){
+		if(sharedIndex != null)
+			sharedIndex.add(view);
+		if(ids.containsKey(view))
+			return;
+		int id = freeCount > 0 ? freeIds[--freeCount] : idLimit++;
+		ensureCapacity(id + 1);
+		viewsById[id] = view;
+		keysById[id] = keyFor(view.getTitle());
+		masksById[id] = maskFor(keysById[id]);
+		lastUsedById[id] = ++useClock;
+		ids.put(view, Integer.valueOf(id));
+		size++;
+		indexGrams(id, keysById[id]);
+	}
+
+	/**
+	 * Removes <code>view</code> from the index.
+	 * @param view the view to remove.
+	 */
+	public void remove(MDIView view){
+		if(sharedIndex != null)
+			sharedIndex.remove(view);
+		Integer boxed = ids.remove(view);
+		if(boxed == null)
+			return;
+		int id = boxed.intValue();
+		unindexGrams(id, keysById[id]);
+		viewsById[id] = null;
+		keysById[id] = null;
+		if(freeCount == freeIds.length)
+			freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+		freeIds[freeCount++] = id;
+		size--;
+	}
+
+	/**
+	 * Re-indexes the title of <code>view</code>. Only the trigrams that
+	 * actually changed are touched.
+	 * @param view the view whose title has changed.
+	 */
+	public void titleChanged(MDIView view){
+		if(sharedIndex != null)
+			sharedIndex.titleChanged(view);
+		Integer boxed = ids.get(view);
+		if(boxed == null)
+			return;
+		int id = boxed.intValue();
+		String newKey = keyFor(view.getTitle());
+		if(newKey.equals(keysById[id]))
+			return;
+		unindexGrams(id, keysById[id]);
+		keysById[id] = newKey;
+		masksById[id] = maskFor(newKey);
+		indexGrams(id, newKey);
+	}
+
+	/**
+	 * Records that <code>view</code> was activated. This is used to rank
+	 * equally good matches in most recently used order.
+	 * @param view the view that was activated.
+	 */
+	public void touch(MDIView view){
+		if(sharedIndex != null)
+			sharedIndex.touch(view);
+		Integer boxed = ids.get(view);
+		if(boxed != null)
+			lastUsedById[boxed.intValue()] = ++useClock;
+	}
+
+	/**
+	 * Gives the number of indexed views.
+	 * @return the number of indexed views.
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Returns whether <code>view</code> is indexed.
+	 * @param view the view to look for.
+	 * @return <code>true</code> if <code>view</code> is indexed.
+	 */
+	public boolean contains(MDIView view){
+		return ids.containsKey(view);
+	}
+
+	/**
+	 * Gives the views in most recently used order.
+	 * @param limit the maximum number of views to return.
+	 * @return at most <code>limit</code> views, most recently activated first.
+	 */
+	public List<MDIView> recentViews(int limit){
+		return search("", limit);
+	}
+
+	/**
+	 * Searches the index for views whose title matches <code>query</code>.
+	 * The matches are ranked as follows: exact title, title prefix,
+	 * prefix of a word in the title, any substring (earlier is better),
+	 * and finally fuzzy matches in which the characters of the query appear
+	 * in order but not necessarily next to each other. Equal ranks are
+	 * ordered most recently used first.
+	 * <p>
+	 * An empty or <code>null</code> query returns all views in most
+	 * recently used order.
+	 * @param query the text to look for, case insensitive.
+	 * @param limit the maximum number of results.
+	 * @return the best <code>limit</code> matches, best first.
+	 */
+	public List<MDIView> search(String query, int limit){
+		String q = keyFor(query);
+		PriorityQueue<Match> best = new PriorityQueue<Match>();
+		if(limit <= 0)
+			return new ArrayList<MDIView>(0);
+
+		if(q.length() >= GRAM){
+			int[] candidates = intersect(q);
+			if(candidates != null){
+				for(int i=0; i<candidates.length; i++){
+					int id = candidates[i];
+					// a key can contain all trigrams of the query but not the query
+					int score = substringScore(keysById[id], q);
+					if(score >= 0)
+						offer(best, limit, id, score);
+				}
+			}
+		}
+
+		// Short queries are answered by a scan of the compact title array,
+		// long ones only if the exact lookup did not fill the result list.
+		if(q.length() < GRAM || best.size() < limit){
+			boolean exactDone = q.length() >= GRAM;
+			long queryMask = maskFor(q);
+			for(int id=0; id<idLimit; id++){
+				String key = keysById[id];
+				if(key == null || (queryMask & ~masksById[id]) != 0)
+					continue;
+				boolean contains = key.indexOf(q) != -1;
+				if(exactDone && contains)
+					continue; // already accepted by the exact lookup
+				int score = contains ? substringScore(key, q) : fuzzyScore(key, q);
+				if(score >= 0)
+					offer(best, limit, id, score);
+			}
+		}
+
+		MDIView[] result = new MDIView[best.size()];
+		for(int i=result.length - 1; i>=0; i--){
+			result[i] = viewsById[best.poll().id];
+		}
+		return new ArrayList<MDIView>(Arrays.asList(result));
+	}
+
+	/**
+	 * Adds the match to the bounded heap of best matches.
+	 */
+	private void offer(PriorityQueue<Match> best, int limit, int id, int score){
+		Match m = new Match(id, score, lastUsedById[id]);
+		if(best.size() < limit){
+			best.add(m);
+		}else if(best.peek().compareTo(m) < 0){
+			best.poll();
+			best.add(m);
+		}
+	}
+
+	/**
+	 * Intersects the posting lists of all trigrams of <code>q</code>,
+	 * smallest list first.
+	 * @return the ids of the views containing all trigrams or <code>null</code>
+	 * 			if there are none.
+	 */
+	private int[] intersect(String q){
+		int n = q.length() - GRAM + 1;
+		Postings[] lists = new Postings[n];
+		for(int i=0; i<n; i++){
+			Postings p = grams.get(Long.valueOf(pack(q, i)));
+			if(p == null || p.size == 0)
+				return null;
+			lists[i] = p;
+		}
+		Arrays.sort(lists);
+		int[] result = Arrays.copyOf(lists[0].ids, lists[0].size);
+		int count = result.length;
+		for(int i=1; i<lists.length && count > 0; i++){
+			count = lists[i].retainIn(result, count);
+		}
+		return count == 0 ? null : Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Scores a title that contains the query as a substring.
+	 */
+	private static int substringScore(String key, String q){
+		if(q.length() == 0)
+			return 0;
+		int index = key.indexOf(q);
+		if(index == -1)
+			return -1;
+		if(key.length() == q.length())
+			return 4000;
+		if(index == 0)
+			return 3000;
+		for(int i=index; i != -1; i=key.indexOf(q, i + 1)){
+			if(!Character.isLetterOrDigit(key.charAt(i - 1)))
+				return 2000;
+		}
+		return 1000 - Math.min(index, 999);
+	}
+
+	/**
+	 * Scores a title against the query when the characters of the query only
+	 * appear in order. Characters matching right after each other or at
+	 * the start of a word score higher.
+	 * @return the score or -1 if the title doesn't match.
+	 */
+	private static int fuzzyScore(String key, String q){
+		int score = 500;
+		int pos = -1;
+		for(int i=0; i<q.length(); i++){
+			int next = key.indexOf(q.charAt(i), pos + 1);
+			if(next == -1)
+				return -1;
+			if(next != pos + 1)
+				score -= Math.min(next - pos, 20);
+			if(next == 0 || !Character.isLetterOrDigit(key.charAt(next - 1)))
+				score += 5;
+			pos = next;
+		}
+		return Math.max(score, 0);
+	}
+
+	/**
+	 * Gives the index key for the title i.e. lower case title.
+	 */
+	private static String keyFor(String title){
+		return title == null ? "" : title.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Gives a bit set of the characters in <code>key</code>. Letters and
+	 * digits get a bit of their own, all other characters share the rest.
+	 */
+	private static long maskFor(String key){
+		long mask = 0;
+		for(int i=0; i<key.length(); i++){
+			char c = key.charAt(i);
+			if(c >= 'a' && c <= 'z')
+				mask |= 1L << (c - 'a');
+			else if(c >= '0' && c <= '9')
+				mask |= 1L << (26 + c - '0');
+			else
+				mask |= 1L << (36 + c % 28);
+		}
+		return mask;
+	}
+
+	/**
+	 * Packs the trigram at <code>index</code> in <code>s</code> into a long.
+	 */
+	private static long pack(String s, int index){
+		return ((long)s.charAt(index) << 32) | ((long)s.charAt(index + 1) << 16) | s.charAt(index + 2);
+	}
+
+	private void indexGrams(int id, String key){
+		for(int i=0; i + GRAM <= key.length(); i++){
+			Long gram = Long.valueOf(pack(key, i));
+			Postings p = grams.get(gram);
+			if(p == null){
+				p = new Postings();
+				grams.put(gram, p);
+			}
+			p.add(id);
+		}
+	}
+
+	private void unindexGrams(int id, String key){
+		for(int i=0; i + GRAM <= key.length(); i++){
+			Long gram = Long.valueOf(pack(key, i));
+			Postings p = grams.get(gram);
+			if(p != null){
+				p.remove(id);
+				if(p.size == 0)
+					grams.remove(gram);
+			}
+		}
+	}
+
+	private void ensureCapacity(int capacity){
+		if(capacity > viewsById.length){
+			int newLength = Math.max(capacity, viewsById.length * 2);
+			viewsById = Arrays.copyOf(viewsById, newLength);
+			keysById = Arrays.copyOf(keysById, newLength);
+			masksById = Arrays.copyOf(masksById, newLength);
+			lastUsedById = Arrays.copyOf(lastUsedById, newLength);
+		}
+	}
+
+	/**
+	 * A sorted, duplicate free list of view ids.
+	 */
+	private static class Postings implements Comparable<Postings> {
+		int[] ids = new int[4];
+		int size = 0;
+
+		void add(int id){
+			int index = Arrays.binarySearch(ids, 0, size, id);
+			if(index >= 0)
+				return; // the same gram appears twice in the title
+			index = -index - 1;
+			if(size == ids.length)
+				ids = Arrays.copyOf(ids, size * 2);
+			System.arraycopy(ids, index, ids, index + 1, size - index);
+			ids[index] = id;
+			size++;
+		}
+
+		void remove(int id){
+			int index = Arrays.binarySearch(ids, 0, size, id);
+			if(index < 0)
+				return;
+			System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+			size--;
+		}
+
+		/**
+		 * Keeps only the ids of <code>result</code> that are also in this list.
+		 * @return the new number of ids in <code>result</code>.
+		 */
+		int retainIn(int[] result, int count){
+			int kept = 0;
+			int j = 0;
+			for(int i=0; i<count && j<size; i++){
+				while(j < size && ids[j] < result[i])
+					j++;
+				if(j < size && ids[j] == result[i])
+					result[kept++] = result[i];
+			}
+			return kept;
+		}
+
+		public int compareTo(Postings o){
+			return size - o.size;
+		}
+	}
+
+	/**
+	 * A scored search result. The natural order is worst match first so
+	 * that a <code>PriorityQueue</code> can be used as bounded heap.
+	 */
+	private static class Match implements Comparable<Match> {
+		final int id;
+		final int score;
+		final long lastUsed;
+
+		Match(int id, int score, long lastUsed){
+			this.id = id;
+			this.score = score;
+			this.lastUsed = lastUsed;
+		}
+
+		public int compareTo(Match o){
+			if(score != o.score)
+				return score < o.score ? -1 : 1;
+			if(lastUsed != o.lastUsed)
+				return lastUsed < o.lastUsed ? -1 : 1;
+			return 0;
+		}
+	}
+}
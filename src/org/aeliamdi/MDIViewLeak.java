@@ -0,0 +1,75 @@
+package org.aeliamdi;
+
+/**
+ * Describes a closed <code>MDIView</code> that was still reachable when the
+ * <code>MDIViewLeakTracker</code> checked for leaks: its title, how long ago
+ * it was closed and the category of the reference that keeps it alive.
+ * @see MDIViewLeakTracker#check()
+ */
+public class MDIViewLeak {
+	/** The view is still referenced by the state of its <code>MDIFrame</code>. */
+	public static final String FRAME = "MDIFrame";
+
+	/** The view is still contained in a Swing container. */
+	public static final String COMPONENT_TREE = "component tree";
+
+	/** The view is still listed by a <code>MDIWindowsMenu</code> of its frame. */
+	public static final String WINDOWS_MENU = "MDIWindowsMenu";
+
+	/** The view is still listed by the <code>MDIQuickSwitcher</code> of its frame. */
+	public static final String QUICK_SWITCHER = "MDIQuickSwitcher";
+
+	/** The view is still in the index of the <code>MDIViewRegistry</code>. */
+	public static final String REGISTRY = "MDIViewRegistry";
+
+	/** A component of the view still is the focus owner. */
+	public static final String FOCUS = "keyboard focus";
+
+	/**
+	 * None of the references of the framework keeps the view alive, so it is
+	 * held by the application, for example by a listener that was not removed.
+	 */
+	public static final String APPLICATION = "application";
+
+	private final String title;
+	private final String retainer;
+	private final long closedMillis;
+
+	/**
+	 * Constructs a report.
+	 * @param title the title of the view when it was closed.
+	 * @param retainer the category of the retaining reference, one of the constants of this class.
+	 * @param closedMillis how long ago the view was closed.
+	 */
+	public MDIViewLeak(String title, String retainer, long closedMillis){
+		this.title = title;
+		this.retainer = retainer;
+		this.closedMillis = closedMillis;
+	}
+
+	/**
+	 * @return the title of the view when it was closed.
+	 */
+	public String getTitle() {
+		return title;
+	}
+
+	/**
+	 * @return the category of the reference that keeps the view alive, one
+	 * 			of the constants of this class.
+	 */
+	public String getRetainer() {
+		return retainer;
+	}
+
+	/**
+	 * @return how long before the check the view was closed, in milliseconds.
+	 */
+	public long getClosedMillis() {
+		return closedMillis;
+	}
+
+	public String toString(){
+		return "\"" + title + "\" closed " + closedMillis + " ms ago, retained by " + retainer;
+	}
+}
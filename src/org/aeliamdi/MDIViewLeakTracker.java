@@ -0,0 +1,202 @@
+package org.aeliamdi;
+
+import java.awt.Component;
+import java.awt.KeyboardFocusManager;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Debugging aid that finds closed <code>MDIView</code>s which are never
+ * garbage collected. When it is enabled every view that is closed in any
+ * <code>MDIFrame</code> is held through a weak reference; <code>check()</code>
+ * runs the garbage collector and reports the closed views that survived,
+ * together with the category of the reference that keeps them alive:
+ * <pre>
+ * MDIViewLeakTracker.getInstance().setEnabled(true);
+ * ...
+ * for(MDIViewLeak leak : MDIViewLeakTracker.getInstance().check())
+ *     System.err.println(leak);
+ * </pre>
+ * The tracker is disabled by default, it is enabled at start up by the
+ * system property <code>org.aeliamdi.leakTracker=true</code>. The counts
+ * are also exposed by the <code>MDIMetricsRecorder</code> over JMX.
+ * <p>
+ * The retainer is found by checking the references the framework knows of,
+ * a view that is not held by any of them is reported as retained by the
+ * application, for example by a listener that was never removed. Note that
+ * a view that was closed a moment ago can still be referenced by pending
+ * events, so it is only a leak if it survives a later check as well.
+ */
+public class MDIViewLeakTracker {
+	/** The system property that enables the tracker at start up. */
+	public static final String ENABLED_PROPERTY = "org.aeliamdi.leakTracker";
+
+	/** The tracker of the application. */
+	private static final MDIViewLeakTracker INSTANCE = new MDIViewLeakTracker();
+
+	private volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+
+	/** The closed views that have not been collected yet. */
+	private final Set<ClosedView> closedViews = Collections.newSetFromMap(new ConcurrentHashMap<ClosedView, Boolean>());
+
+	/** Receives the references of the collected views. */
+	private final ReferenceQueue<MDIView> queue = new ReferenceQueue<MDIView>();
+
+	/** Number of closed views that were collected. */
+	private final AtomicLong collectedCount = new AtomicLong();
+
+	/** The number of leaks per retainer found by the last check. */
+	private volatile Map<String, Long> leakCounts = Collections.emptyMap();
+
+	private MDIViewLeakTracker(){
+	}
+
+	/**
+	 * Gives the tracker of the application.
+	 * @return the tracker.
+	 */
+	public static MDIViewLeakTracker getInstance(){
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns whether closed views are tracked.
+	 * @return <code>true</code> if the tracker is enabled.
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables the tracker. Disabling it forgets the views that
+	 * are tracked.
+	 * @param enabled <code>true</code> to track the views that are closed from now on.
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		if(!enabled){
+			closedViews.clear();
+			leakCounts = Collections.emptyMap();
+		}
+	}
+
+	/**
+	 * Starts tracking <code>view</code>, which has just been closed.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 */
+	void viewClosed(MDIView view){
+		if(!enabled)
+			return;
+		expunge();
+		closedViews.add(new ClosedView(view, queue));
+	}
+
+	/**
+	 * Runs the garbage collector and reports the closed views that are
+	 * still reachable. This should be called on the event dispatch thread.
+	 * @return the leaked views, longest closed first.
+	 */
+	public List<MDIViewLeak> check(){
+		System.gc();
+		expunge();
+		long now = System.nanoTime();
+		List<ClosedView> survivors = new ArrayList<ClosedView>(closedViews);
+		Collections.sort(survivors);
+		List<MDIViewLeak> leaks = new ArrayList<MDIViewLeak>(survivors.size());
+		Map<String, Long> counts = new LinkedHashMap<String, Long>();
+		for(int i=0; i<survivors.size(); i++){
+			ClosedView closed = survivors.get(i);
+			MDIView view = closed.get();
+			if(view == null)
+				continue;
+			String retainer = findRetainer(view);
+			leaks.add(new MDIViewLeak(closed.title, retainer, TimeUnit.NANOSECONDS.toMillis(now - closed.closedNanos)));
+			Long count = counts.get(retainer);
+			counts.put(retainer, Long.valueOf(count == null ? 1 : count.longValue() + 1));
+		}
+		leakCounts = Collections.unmodifiableMap(counts);
+		return leaks;
+	}
+
+	/**
+	 * Gives the number of closed views that have not been collected yet.
+	 * @return the number of tracked views.
+	 */
+	public int getTrackedCount(){
+		expunge();
+		return closedViews.size();
+	}
+
+	/**
+	 * Gives the number of tracked views that were garbage collected.
+	 * @return the number of collected views.
+	 */
+	public long getCollectedCount(){
+		expunge();
+		return collectedCount.get();
+	}
+
+	/**
+	 * Gives the number of leaked views per retainer found by the last <code>check()</code>.
+	 * @return the counts keyed by the retainer constants of <code>MDIViewLeak</code>.
+	 */
+	public Map<String, Long> getLeakCounts(){
+		return leakCounts;
+	}
+
+	/** Forgets the views that were collected. */
+	private void expunge(){
+		Reference<? extends MDIView> ref;
+		while((ref = queue.poll()) != null){
+			if(closedViews.remove(ref))
+				collectedCount.incrementAndGet();
+		}
+	}
+
+	/** Finds the category of the reference that keeps <code>view</code> alive. */
+	private static String findRetainer(MDIView view){
+		MDIFrame mdiFrame = view.getMdiFrame();
+		String retainer = mdiFrame == null ? null : mdiFrame.findRetainer(view);
+		if(retainer != null)
+			return retainer;
+		if(MDIViewRegistry.getInstance().getViewIndex().contains(view))
+			return MDIViewLeak.REGISTRY;
+		if(view.getParent() != null)
+			return MDIViewLeak.COMPONENT_TREE;
+		KeyboardFocusManager focusManager = KeyboardFocusManager.getCurrentKeyboardFocusManager();
+		if(isInView(focusManager.getFocusOwner(), view) || isInView(focusManager.getPermanentFocusOwner(), view))
+			return MDIViewLeak.FOCUS;
+		return MDIViewLeak.APPLICATION;
+	}
+
+	private static boolean isInView(Component comp, MDIView view){
+		return comp != null && SwingUtilities.isDescendingFrom(comp, view);
+	}
+
+	/** A weak reference to a closed view. */
+	private static class ClosedView extends WeakReference<MDIView> implements Comparable<ClosedView> {
+		final String title;
+		final long closedNanos = System.nanoTime();
+
+		ClosedView(MDIView view, ReferenceQueue<MDIView> queue){
+			super(view, queue);
+			title = view.getTitle();
+		}
+
+		public int compareTo(ClosedView o){
+			return closedNanos < o.closedNanos ? -1 : (closedNanos == o.closedNanos ? 0 : 1);
+		}
+	}
+}
@@ -0,0 +1,255 @@
+package org.aeliamdi;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Vector;
+
+/**
+ * Copy-on-write list of the <code>MDIViewListener</code>s of a
+ * <code>MDIView</code>.
+ * <p>
+ * Adding and removing a listener copies the arrays, dispatching an event
+ * only reads one immutable array. So a dispatch takes no lock, and a listener
+ * that adds or removes listeners while it is notified does not affect the
+ * running dispatch.
+ * <p>
+ * The listeners are kept in one array per event type, so that the method to
+ * invoke is resolved once per dispatch instead of once per listener. A
+ * <code>MDIViewAdapter</code> subclass is only put into the arrays of the
+ * event types whose methods it overrides, the empty methods of the adapter
+ * are never invoked. Listeners can also be registered for a subset of the
+ * event types with an event mask.
+ * <p>
+ * Listeners registered weakly are wrapped in a <code>MDIWeakListener</code>.
+ * Wrappers whose listener was garbage collected remove themselves when they
+ * are notified and are dropped by the next <code>add()</code>.
+ * @see MDIViewEvent#maskFor(int)
+ */
+final class MDIViewListenerList {
+	/** Number of <code>MDIViewEvent</code> types. */
+	static final int TYPE_COUNT = MDIViewEvent.MDIVIEW_CLOSING - MDIViewEvent.MDIVIEW_FIRST + 1;
+
+	/** Bit mask containing all event types. */
+	static final int ALL_TYPES = MDIViewEvent.MDIVIEW_ALL_EVENTS_MASK;
+
+	/** Names of the listener methods, indexed by event type. */
+	private static final String[] METHOD_NAMES = {
+		"MDIViewActivated", "MDIViewDeactivated", "MDIViewOpened", "MDIViewClosed",
+		"MDIViewIconified", "MDIViewRestored", "MDIViewMaximized", "MDIViewClosing"
+	};
+
+	/** The event types each <code>MDIViewListener</code> class actually handles. */
+	private static final ClassValue<Integer> HANDLED_TYPES = new ClassValue<Integer>(){
+		protected Integer computeValue(Class<?> type){
+			if(!MDIViewAdapter.class.isAssignableFrom(type))
+				return Integer.valueOf(ALL_TYPES);
+			int mask = 0;
+			for(int i=0; i<TYPE_COUNT; i++){
+				try{
+					Method method = type.getMethod(METHOD_NAMES[i], MDIViewEvent.class);
+					if(method.getDeclaringClass() != MDIViewAdapter.class)
+						mask |= 1 << i;
+				}catch(NoSuchMethodException ex){
+					mask |= 1 << i;
+				}
+			}
+			return Integer.valueOf(mask);
+		}
+	};
+
+	private static final MDIViewListener[] NONE = new MDIViewListener[0];
+
+	/** All registered listeners in order of registration. Guarded by <code>this</code>. */
+	private MDIViewListener[] listeners = NONE;
+
+	/** The event masks the listeners were registered with. Guarded by <code>this</code>. */
+	private int[] masks = new int[0];
+
+	/** The listeners per event type. Replaced, never modified. */
+	private volatile MDIViewListener[][] byType = emptyTypes();
+
+	private static MDIViewListener[][] emptyTypes(){
+		MDIViewListener[][] types = new MDIViewListener[TYPE_COUNT][];
+		Arrays.fill(types, NONE);
+		return types;
+	}
+
+	/**
+	 * Gives the index of the event type of <code>eventId</code> or -1 if it
+	 * is not a <code>MDIViewEvent</code> id.
+	 */
+	static int typeIndex(int eventId){
+		int index = eventId - MDIViewEvent.MDIVIEW_FIRST;
+		return index >= 0 && index < TYPE_COUNT ? index : -1;
+	}
+
+	/**
+	 * Adds <code>listener</code>. It is notified of the event types it handles.
+	 */
+	void add(MDIViewListener listener){
+		add(listener, ALL_TYPES);
+	}
+
+	/**
+	 * Adds <code>listener</code> for the event types in <code>eventMask</code>.
+	 */
+	synchronized void add(MDIViewListener listener, int eventMask){
+		if(listener == null || (eventMask & ALL_TYPES) == 0)
+			return;
+		MDIViewListener[] newListeners = new MDIViewListener[listeners.length + 1];
+		int[] newMasks = new int[listeners.length + 1];
+		int count = 0;
+		for(int i=0; i<listeners.length; i++){
+			//the registrations of collected weak listeners are dropped
+			if(listeners[i] instanceof MDIWeakListener && ((MDIWeakListener)listeners[i]).isCleared())
+				continue;
+			newListeners[count] = listeners[i];
+			newMasks[count++] = masks[i];
+		}
+		newListeners[count] = listener;
+		newMasks[count++] = eventMask & ALL_TYPES;
+		listeners = count == newListeners.length ? newListeners : Arrays.copyOf(newListeners, count);
+		masks = count == newMasks.length ? newMasks : Arrays.copyOf(newMasks, count);
+		rebuild();
+	}
+
+	/**
+	 * Adds <code>listener</code> for the event types in <code>eventMask</code>
+	 * without keeping it alive.
+	 * @param owner the view the listener is registered with.
+	 */
+	void addWeak(MDIViewListener listener, int eventMask, MDIView owner){
+		if(listener == null)
+			return;
+		//the wrapper implements all methods, so it is registered only for
+		//the types the listener handles
+		int handled = HANDLED_TYPES.get(listener.getClass()).intValue();
+		add(new MDIWeakListener(listener, owner), eventMask & handled);
+	}
+
+	/**
+	 * Removes the first registration of <code>listener</code>, which may be
+	 * a weak registration.
+	 */
+	synchronized void remove(MDIViewListener listener){
+		for(int i=0; i<listeners.length; i++){
+			if(listeners[i].equals(listener) || (listeners[i] instanceof MDIWeakListener && ((MDIWeakListener)listeners[i]).isFor(listener))){
+				MDIViewListener[] newListeners = new MDIViewListener[listeners.length - 1];
+				System.arraycopy(listeners, 0, newListeners, 0, i);
+				System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+				int[] newMasks = new int[masks.length - 1];
+				System.arraycopy(masks, 0, newMasks, 0, i);
+				System.arraycopy(masks, i + 1, newMasks, i, masks.length - i - 1);
+				listeners = newListeners;
+				masks = newMasks;
+				rebuild();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Rebuilds the arrays per event type. Must be called with the lock held.
+	 */
+	private void rebuild(){
+		MDIViewListener[][] types = new MDIViewListener[TYPE_COUNT][];
+		MDIViewListener[] buffer = new MDIViewListener[listeners.length];
+		for(int type=0; type<TYPE_COUNT; type++){
+			int count = 0;
+			for(int i=0; i<listeners.length; i++){
+				int handled = masks[i] & HANDLED_TYPES.get(listeners[i].getClass()).intValue();
+				if((handled & (1 << type)) != 0)
+					buffer[count++] = listeners[i];
+			}
+			types[type] = count == 0 ? NONE : Arrays.copyOf(buffer, count);
+		}
+		byType = types;
+	}
+
+	/**
+	 * Gives a copy of all registered listeners. Weakly registered 
+	 * listeners that were not collected yet are included.
+	 */
+	synchronized Vector<MDIViewListener> getListeners(){
+		Vector<MDIViewListener> result = new Vector<MDIViewListener>(listeners.length);
+		for(int i=0; i<listeners.length; i++){
+			MDIViewListener listener = (MDIViewListener)MDIWeakListener.unwrap(listeners[i]);
+			if(listener != null)
+				result.add(listener);
+		}
+		return result;
+	}
+
+	/**
+	 * Gives the listeners for the event type of <code>eventId</code>. The
+	 * returned array must not be modified.
+	 */
+	MDIViewListener[] getListeners(int eventId){
+		int type = typeIndex(eventId);
+		return type == -1 ? NONE : byType[type];
+	}
+
+	/**
+	 * Notifies the single <code>listener</code> of <code>event</code>.
+	 */
+	static void dispatch(MDIViewEvent event, MDIViewListener listener){
+		switch(event.getID()){
+			case MDIViewEvent.MDIVIEW_ACTIVIATED: listener.MDIViewActivated(event); break;
+			case MDIViewEvent.MDIVIEW_DEACTIVIATED: listener.MDIViewDeactivated(event); break;
+			case MDIViewEvent.MDIVIEW_OPENED: listener.MDIViewOpened(event); break;
+			case MDIViewEvent.MDIVIEW_CLOSED: listener.MDIViewClosed(event); break;
+			case MDIViewEvent.MDIVIEW_ICONIFIED: listener.MDIViewIconified(event); break;
+			case MDIViewEvent.MDIVIEW_RESTORED: listener.MDIViewRestored(event); break;
+			case MDIViewEvent.MDIVIEW_MAXIMIZED: listener.MDIViewMaximized(event); break;
+			case MDIViewEvent.MDIVIEW_CLOSING: listener.MDIViewClosing(event); break;
+		}
+	}
+
+	/**
+	 * Notifies <code>targets</code> of <code>event</code>. The targets 
+	 * should be the array returned by <code>getListeners(event.getID())</code>.
+	 */
+	static void dispatch(MDIViewEvent event, MDIViewListener[] targets){
+		switch(event.getID()){
+			case MDIViewEvent.MDIVIEW_ACTIVIATED:
+				for(int i=0; i<targets.length; i++)
+					targets[i].MDIViewActivated(event);
+				break;
+
+			case MDIViewEvent.MDIVIEW_DEACTIVIATED:
+				for(int i=0; i<targets.length; i++)
+					targets[i].MDIViewDeactivated(event);
+				break;
+
+			case MDIViewEvent.MDIVIEW_OPENED:
+				for(int i=0; i<targets.length; i++)
+					targets[i].MDIViewOpened(event);
+				break;
+
+			case MDIViewEvent.MDIVIEW_CLOSED:
+				for(int i=0; i<targets.length; i++)
+					targets[i].MDIViewClosed(event);
+				break;
+
+			case MDIViewEvent.MDIVIEW_ICONIFIED:
+				for(int i=0; i<targets.length; i++)
+					targets[i].MDIViewIconified(event);
+				break;
+
+			case MDIViewEvent.MDIVIEW_RESTORED:
+				for(int i=0; i<targets.length; i++)
+					targets[i].MDIViewRestored(event);
+				break;
+
+			case MDIViewEvent.MDIVIEW_MAXIMIZED:
+				for(int i=0; i<targets.length; i++)
+					targets[i].MDIViewMaximized(event);
+				break;
+
+			case MDIViewEvent.MDIVIEW_CLOSING:
+				for(int i=0; i<targets.length; i++)
+					targets[i].MDIViewClosing(event);
+				break;
+		}
+	}
+}
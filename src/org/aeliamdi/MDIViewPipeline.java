@@ -0,0 +1,268 @@
+package org.aeliamdi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Prepares <code>MDIView</code>s in the background and adds them to a
+ * <code>MDIFrame</code> without blocking the event dispatch thread.
+ * <p>
+ * The non-Swing phase of each <code>MDIViewPreparationTask</code> runs on a
+ * bounded pool of worker threads (virtual threads when the JVM supports
+ * them). Prepared views are then assembled and added on the event dispatch
+ * thread in slices of at most <code>sliceMillis</code> milliseconds, so a
+ * burst of opens does not freeze the user interface. Between two slices the
+ * event dispatch thread is free to process input and paint events.
+ * <p>
+ * The number of preparations that are submitted but not yet added is
+ * limited by <code>maxPending</code>. A thread other than the event dispatch
+ * thread that submits more tasks blocks until a slot is free. On the event
+ * dispatch thread, which must never block, a
+ * <code>RejectedExecutionException</code> is thrown instead.
+ * <p>
+ * The worker pool can also be used as the content executor of deferred
+ * views, see <code>getExecutor()</code>.
+ * @see MDIFrame#prepareView(MDIViewPreparationTask)
+ */
+public class MDIViewPipeline {
+	/** Default number of worker threads. */
+	public static final int DEFAULT_PARALLELISM = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+	/** Default maximum number of pending preparations. */
+	public static final int DEFAULT_MAX_PENDING = 256;
+
+	/** Default length of one assembly slice on the event dispatch thread. */
+	public static final int DEFAULT_SLICE_MILLIS = 8;
+
+	/** The frame the views are added to. */
+	private final MDIFrame mdiFrame;
+
+	/** The workers that run the background phase. */
+	private final ThreadPoolExecutor workers;
+
+	/** Limits the number of pending preparations. */
+	private final Semaphore pendingPermits;
+
+	/** The maximum number of pending preparations. */
+	private final int maxPending;
+
+	/** Prepared tasks waiting to be assembled on the event dispatch thread. */
+	private final ConcurrentLinkedQueue<MDIViewPreparation> ready = new ConcurrentLinkedQueue<MDIViewPreparation>();
+
+	/** Whether an assembly slice has been posted to the event queue. */
+	private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+	/** Length of one assembly slice in nanoseconds. */
+	private volatile long sliceNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SLICE_MILLIS);
+
+	/** Runs one assembly slice. */
+	private final Runnable drainer = new Runnable(){
+		public void run(){
+			drain();
+		}
+	};
+
+	/**
+	 * Constructs a pipeline for <code>mdiFrame</code> with default settings.
+	 * @param mdiFrame the frame the views are added to.
+	 */
+	public MDIViewPipeline(MDIFrame mdiFrame){
+		this(mdiFrame, DEFAULT_PARALLELISM, DEFAULT_MAX_PENDING);
+	}
+
+	/**
+	 * Constructs a pipeline for <code>mdiFrame</code>.
+	 * @param mdiFrame the frame the views are added to.
+	 * @param parallelism the number of worker threads.
+	 * @param maxPending the maximum number of preparations that may be
+	 * 			submitted but not yet added.
+	 */
+	public MDIViewPipeline(MDIFrame mdiFrame, int parallelism, int maxPending){
+		if(parallelism < 1 || maxPending < 1)
+			throw new IllegalArgumentException("parallelism and maxPending must be positive");
+		this.mdiFrame = mdiFrame;
+		this.maxPending = maxPending;
+		this.pendingPermits = new Semaphore(maxPending);
+		this.workers = new ThreadPoolExecutor(parallelism, parallelism, 30, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), createThreadFactory());
+		this.workers.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Creates a factory for virtual threads if the JVM supports them and for
+	 * daemon platform threads otherwise. Reflection is used so that the
+	 * framework still runs on older JVMs.
+	 */
+	private static ThreadFactory createThreadFactory(){
+		try{
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "MDIViewPipeline-", Long.valueOf(0));
+			return (ThreadFactory)builderClass.getMethod("factory").invoke(builder);
+		}catch(Exception ex){
+			// virtual threads are not available
+		}
+		final AtomicInteger counter = new AtomicInteger();
+		return new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, "MDIViewPipeline-" + counter.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * Submits a view preparation. The view is added to the frame once both
+	 * phases of the task have completed, unless the returned preparation
+	 * has been cancelled before.
+	 * @param task the task to prepare.
+	 * @return a handle to the preparation.
+	 * @throws RejectedExecutionException if called on the event dispatch
+	 * 			thread while <code>maxPending</code> preparations are pending.
+	 */
+	public MDIViewPreparation submit(MDIViewPreparationTask task) throws RejectedExecutionException{
+		if(task == null)
+			throw new IllegalArgumentException("task should not be null");
+		if(SwingUtilities.isEventDispatchThread()){
+			if(!pendingPermits.tryAcquire())
+				throw new RejectedExecutionException("More than " + maxPending + " views are pending");
+		}else{
+			pendingPermits.acquireUninterruptibly();
+		}
+
+		final MDIViewPreparation preparation = new MDIViewPreparation(task, pendingPermits);
+		try{
+			preparation.setBackgroundFuture(workers.submit(new Runnable(){
+				public void run(){
+					prepare(preparation);
+				}
+			}));
+		}catch(RejectedExecutionException ex){
+			preparation.releasePermit();
+			throw ex;
+		}
+		return preparation;
+	}
+
+	/**
+	 * Runs the background phase of the preparation on a worker thread.
+	 */
+	private void prepare(MDIViewPreparation preparation){
+		if(preparation.isCancelled())
+			return;
+		try{
+			Object data = preparation.getTask().prepare();
+			if(!preparation.prepared(data))
+				return;
+		}catch(Throwable t){
+			preparation.failed(t);
+			preparation.releasePermit();
+			return;
+		}
+		ready.add(preparation);
+		if(drainScheduled.compareAndSet(false, true))
+			SwingUtilities.invokeLater(drainer);
+	}
+
+	/**
+	 * Assembles and adds prepared views on the event dispatch thread until
+	 * the slice time is used up. Remaining views are left for the next slice.
+	 */
+	private void drain(){
+		drainScheduled.set(false);
+		long deadline = System.nanoTime() + sliceNanos;
+		List<MDIView> batch = new ArrayList<MDIView>();
+		List<MDIViewPreparation> batchPreparations = new ArrayList<MDIViewPreparation>();
+		MDIViewPreparation preparation;
+		while((preparation = ready.poll()) != null){
+			if(preparation.isCancelled())
+				continue;
+			try{
+				MDIView view = preparation.getTask().assemble(mdiFrame, preparation.getData());
+				if(view == null){
+					preparation.done(null);
+					preparation.releasePermit();
+				}else{
+					batch.add(view);
+					batchPreparations.add(preparation);
+				}
+			}catch(Throwable t){
+				preparation.failed(t);
+				preparation.releasePermit();
+			}
+			if(System.nanoTime() >= deadline)
+				break;
+		}
+
+		if(!batch.isEmpty()){
+			try{
+				mdiFrame.addInternalViews(batch);
+			}finally{
+				for(int i=0; i<batchPreparations.size(); i++){
+					batchPreparations.get(i).done(batch.get(i));
+					batchPreparations.get(i).releasePermit();
+				}
+			}
+		}
+
+		if(!ready.isEmpty() && drainScheduled.compareAndSet(false, true))
+			SwingUtilities.invokeLater(drainer);
+	}
+
+	/**
+	 * Gives the number of preparations that are submitted but not yet added.
+	 * @return the number of pending preparations.
+	 */
+	public int getPendingCount(){
+		return maxPending - pendingPermits.availablePermits();
+	}
+
+	/**
+	 * Gives the worker pool of this pipeline. It can be used as content
+	 * executor of the <code>MDIFrame</code> so that deferred views are
+	 * loaded by the same bounded set of threads.
+	 * @return the worker pool.
+	 * @see MDIFrame#setContentExecutor(java.util.concurrent.Executor)
+	 */
+	public ExecutorService getExecutor(){
+		return workers;
+	}
+
+	/**
+	 * Gives the maximum time one assembly slice may take on the event
+	 * dispatch thread.
+	 * @return the slice length in milliseconds.
+	 */
+	public long getSliceMillis(){
+		return TimeUnit.NANOSECONDS.toMillis(sliceNanos);
+	}
+
+	/**
+	 * Sets the maximum time one assembly slice may take on the event
+	 * dispatch thread. At least one view is assembled per slice.
+	 * @param sliceMillis the slice length in milliseconds.
+	 */
+	public void setSliceMillis(long sliceMillis){
+		this.sliceNanos = TimeUnit.MILLISECONDS.toNanos(sliceMillis);
+	}
+
+	/**
+	 * Stops the worker threads. Pending preparations are not added.
+	 */
+	public void shutdown(){
+		workers.shutdownNow();
+	}
+}
@@ -0,0 +1,188 @@
+package org.aeliamdi;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A handle to a view that is being prepared by a <code>MDIViewPipeline</code>.
+ * It completes with the added <code>MDIView</code> once the view has been
+ * assembled and added to its <code>MDIFrame</code>.
+ * <p>
+ * Cancelling a preparation interrupts its background phase and makes sure
+ * the view is never added. A preparation can no longer be cancelled once
+ * its view has been added.
+ * @see MDIFrame#prepareView(MDIViewPreparationTask)
+ */
+public class MDIViewPreparation implements Future<MDIView> {
+	private static final int PENDING = 0;
+	private static final int PREPARED = 1;
+	private static final int DONE = 2;
+	private static final int FAILED = 3;
+	private static final int CANCELLED = 4;
+
+	/** The task being prepared. */
+	private final MDIViewPreparationTask task;
+
+	/** One of the state constants above. Guarded by <code>this</code>. */
+	private int state = PENDING;
+
+	/** The data returned by <code>prepare()</code>. */
+	private Object data;
+
+	/** The view that was added. */
+	private MDIView view;
+
+	/** The exception thrown by the task. */
+	private Throwable error;
+
+	/** The future of the background phase, used to interrupt it. */
+	private Future<?> backgroundFuture;
+
+	/** 
+	 * The pending slot this preparation holds in its pipeline or 
+	 * <code>null</code> once it has been released.
+	 */
+	private Semaphore pendingPermits;
+
+	/**
+	 * Constructs a pending preparation of <code>task</code> that holds one
+	 * permit of <code>pendingPermits</code>.
+	 */
+	MDIViewPreparation(MDIViewPreparationTask task, Semaphore pendingPermits){
+		this.task = task;
+		this.pendingPermits = pendingPermits;
+	}
+
+	/**
+	 * Gives the pending slot of this preparation back to its pipeline.
+	 * Calling this method more than once has no effect.
+	 */
+	void releasePermit(){
+		Semaphore permits;
+		synchronized(this){
+			permits = pendingPermits;
+			pendingPermits = null;
+		}
+		if(permits != null)
+			permits.release();
+	}
+
+	/**
+	 * Gives the task being prepared.
+	 * @return the task.
+	 */
+	public MDIViewPreparationTask getTask() {
+		return task;
+	}
+
+	synchronized void setBackgroundFuture(Future<?> backgroundFuture){
+		this.backgroundFuture = backgroundFuture;
+	}
+
+	/**
+	 * Records the prepared data.
+	 * @return <code>false</code> if the preparation was cancelled meanwhile.
+	 */
+	synchronized boolean prepared(Object data){
+		if(state != PENDING)
+			return false;
+		this.data = data;
+		state = PREPARED;
+		return true;
+	}
+
+	synchronized Object getData(){
+		return data;
+	}
+
+	/**
+	 * Marks the preparation as done with the given view.
+	 * @return <code>false</code> if the preparation was cancelled meanwhile.
+	 */
+	synchronized boolean done(MDIView view){
+		if(state == CANCELLED)
+			return false;
+		this.view = view;
+		this.data = null;
+		state = DONE;
+		notifyAll();
+		return true;
+	}
+
+	synchronized void failed(Throwable error){
+		if(state == CANCELLED)
+			return;
+		this.error = error;
+		this.data = null;
+		state = FAILED;
+		notifyAll();
+	}
+
+	/**
+	 * Cancels the preparation unless its view has already been added.
+	 * @param mayInterruptIfRunning whether the background phase should be
+	 * 			interrupted.
+	 * @return <code>true</code> if the preparation was cancelled.
+	 */
+	public boolean cancel(boolean mayInterruptIfRunning){
+		Future<?> future;
+		synchronized(this){
+			if(state == DONE || state == FAILED || state == CANCELLED)
+				return false;
+			state = CANCELLED;
+			data = null;
+			future = backgroundFuture;
+			notifyAll();
+		}
+		if(future != null)
+			future.cancel(mayInterruptIfRunning);
+		releasePermit();
+		return true;
+	}
+
+	public synchronized boolean isCancelled(){
+		return state == CANCELLED;
+	}
+
+	public synchronized boolean isDone(){
+		return state == DONE || state == FAILED || state == CANCELLED;
+	}
+
+	/**
+	 * Waits for the view to be added. Note that this method must not be
+	 * called on the event dispatch thread because the view is assembled there.
+	 */
+	public synchronized MDIView get() throws InterruptedException, ExecutionException{
+		while(!isDone())
+			wait();
+		return result();
+	}
+
+	/**
+	 * Waits at most the given time for the view to be added. Note that this
+	 * method must not be called on the event dispatch thread because the view
+	 * is assembled there.
+	 */
+	public synchronized MDIView get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException{
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while(!isDone()){
+			long left = deadline - System.nanoTime();
+			if(left <= 0)
+				throw new TimeoutException();
+			TimeUnit.NANOSECONDS.timedWait(this, left);
+		}
+		return result();
+	}
+
+	private MDIView result() throws ExecutionException{
+		if(state == CANCELLED)
+			throw new CancellationException();
+		if(state == FAILED)
+			throw new ExecutionException(error);
+		return view;
+	}
+}
@@ -0,0 +1,29 @@
+package org.aeliamdi;
+
+/**
+ * A task that prepares a <code>MDIView</code> in two phases: the expensive
+ * non-Swing work such as reading files or querying a database is done by
+ * <code>prepare()</code> on a background thread, after which
+ * <code>assemble()</code> builds the view on the event dispatch thread.
+ * @see MDIFrame#prepareView(MDIViewPreparationTask)
+ * @see MDIViewPipeline
+ */
+public interface MDIViewPreparationTask {
+	/**
+	 * Does the non-Swing part of the preparation. This method is invoked on
+	 * a background thread and so must not touch any Swing component.
+	 * @return the prepared data, may be <code>null</code>.
+	 * @throws Exception if the preparation failed. The view is then not added.
+	 */
+	public Object prepare() throws Exception;
+
+	/**
+	 * Builds the view from the prepared data. This method is invoked on the
+	 * event dispatch thread. The returned view is added to
+	 * <code>frame</code> by the pipeline, the implementation should not add it.
+	 * @param frame the frame the view will be added to.
+	 * @param data the object returned by <code>prepare()</code>.
+	 * @return the view to add, or <code>null</code> to add nothing.
+	 */
+	public MDIView assemble(MDIFrame frame, Object data);
+}
@@ -0,0 +1,242 @@
+package org.aeliamdi;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Frame;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+
+import org.aeliamdi.util.SmallNumberIcon;
+
+/**
+ * The application wide registry of the <code>MDIFrame</code>s and their
+ * views. Every <code>MDIFrame</code> registers itself when it becomes
+ * displayable, that is when it is packed or shown, and unregisters when it
+ * is disposed. While a frame is registered its <code>MDIViewIndex</code>
+ * forwards its changes to the index of the registry. This gives a search
+ * and a most recently used order over the views of all frames, including
+ * detached views:
+ * <pre>
+ * List&lt;MDIView&gt; views = MDIViewRegistry.getInstance().search("report", 10);
+ * MDIViewRegistry.getInstance().activate(views.get(0));
+ * </pre>
+ * Views can be moved to another frame with <code>moveView()</code>.
+ * <p>
+ * The registry keeps a frame and its views alive only as long as AWT
+ * keeps the frame alive: a frame that is never shown is not registered,
+ * and a frame that is only hidden stays registered with all its views
+ * until it is disposed. Dispose the frames that are not used any more.
+ * <p>
+ * The registry also caches the icons that all frames share, such as the
+ * close icons of the tabs, the aqua icons of the <code>MDIFrameButton</code>s
+ * and the number icons of the <code>MDIWindowsMenu</code>, so that every
+ * frame, tab and menu rebuild uses the same instances instead of loading
+ * and painting its own.
+ * <p>
+ * Like the rest of the framework the view methods should only be used on
+ * the event dispatch thread, the icon caches can be used from any thread.
+ */
+public class MDIViewRegistry {
+	/** The registry of the application. */
+	private static final MDIViewRegistry INSTANCE = new MDIViewRegistry();
+
+	/** The registered frames in the order they were registered. */
+	private final List<MDIFrame> frames = new CopyOnWriteArrayList<MDIFrame>();
+
+	/** The index over the views of all registered frames. */
+	private final MDIViewIndex viewIndex = new MDIViewIndex();
+
+	/** The icons loaded from class path resources, by resource name. */
+	private final Map<String, ImageIcon> resourceIcons = new ConcurrentHashMap<String, ImageIcon>();
+
+	/** The number icons, by number, font and color. */
+	private final Map<List<Object>, Icon> numberIcons = new ConcurrentHashMap<List<Object>, Icon>();
+
+	private MDIViewRegistry(){
+	}
+
+	/**
+	 * Gives the registry of the application.
+	 * @return the registry.
+	 */
+	public static MDIViewRegistry getInstance(){
+		return INSTANCE;
+	}
+
+	/**
+	 * Registers <code>mdiFrame</code> and indexes its views. Nothing happens
+	 * if the frame is already registered. This is called by the
+	 * <code>MDIFrame</code> itself.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 */
+	void register(MDIFrame mdiFrame){
+		if(frames.contains(mdiFrame))
+			return;
+		frames.add(mdiFrame);
+		mdiFrame.getViewIndex().setSharedIndex(viewIndex);
+		List<MDIView> views = viewsOf(mdiFrame);
+		for(int i=0; i<views.size(); i++){
+			viewIndex.add(views.get(i));
+		}
+	}
+
+	/**
+	 * Removes <code>mdiFrame</code> and its views from the registry.
+	 * <p><b>Note: This Method is for internal purpose olny</b>
+	 */
+	void unregister(MDIFrame mdiFrame){
+		if(!frames.remove(mdiFrame))
+			return;
+		mdiFrame.getViewIndex().setSharedIndex(null);
+		List<MDIView> views = viewsOf(mdiFrame);
+		for(int i=0; i<views.size(); i++){
+			viewIndex.remove(views.get(i));
+		}
+	}
+
+	/**
+	 * Gives the registered frames.
+	 * @return a copy of the list of frames, in the order they were registered.
+	 */
+	public List<MDIFrame> getFrames(){
+		return new ArrayList<MDIFrame>(frames);
+	}
+
+	/**
+	 * Gives the index over the views of all registered frames.
+	 * @return the index.
+	 */
+	public MDIViewIndex getViewIndex(){
+		return viewIndex;
+	}
+
+	/**
+	 * Searches the views of all frames by their title.
+	 * @param query the text to look for, case insensitive.
+	 * @param limit the maximum number of results.
+	 * @return the best <code>limit</code> matches, best first.
+	 * @see MDIViewIndex#search(String, int)
+	 */
+	public List<MDIView> search(String query, int limit){
+		return viewIndex.search(query, limit);
+	}
+
+	/**
+	 * Gives the views of all frames in most recently used order.
+	 * @param limit the maximum number of views to return.
+	 * @return at most <code>limit</code> views, most recently activated first.
+	 */
+	public List<MDIView> recentViews(int limit){
+		return viewIndex.recentViews(limit);
+	}
+
+	/**
+	 * Activates <code>view</code>: its frame is brought to the front and
+	 * the view is set active in it, a detached view gets its window to the
+	 * front.
+	 * @param view the view to activate.
+	 * @throws IllegalArgumentException if no registered frame contains the <code>view</code>.
+	 */
+	public void activate(MDIView view) throws IllegalArgumentException{
+		MDIFrame mdiFrame = frameOf(view);
+		if(!mdiFrame.isDetached(view)){
+			if((mdiFrame.getExtendedState() & Frame.ICONIFIED) != 0)
+				mdiFrame.setExtendedState(mdiFrame.getExtendedState() & ~Frame.ICONIFIED);
+			mdiFrame.toFront();
+		}
+		if(view.isIconified())
+			view.setRestored();
+		else
+			mdiFrame.setActiveView(view);
+	}
+
+	/**
+	 * Moves <code>view</code> from its frame into <code>target</code> and
+	 * activates it there. The view is moved with its components and
+	 * listeners, like <code>MDIFrame.detachView()</code> it receives no
+	 * closed and opened events but it is deactivated in its old frame. A
+	 * detached view is attached to <code>target</code>. Nothing happens if
+	 * the view already belongs to <code>target</code>.
+	 * @param view the view to move.
+	 * @param target the frame that takes the view.
+	 * @throws IllegalArgumentException if no registered frame contains
+	 * 			the <code>view</code> or <code>target</code> is not registered.
+	 */
+	public void moveView(MDIView view, MDIFrame target) throws IllegalArgumentException{
+		MDIFrame source = frameOf(view);
+		if(!frames.contains(target))
+			throw new IllegalArgumentException("The target MDIFrame is not registered");
+		if(source == target)
+			return;
+		source.transferOut(view);
+		target.transferIn(view);
+	}
+
+	/**
+	 * Gives the icon of the image class path resource <code>name</code>.
+	 * The icon is loaded once and shared by all frames.
+	 * @param name the absolute resource name, for example <code>"/res/images/tab-close.gif"</code>.
+	 * @return the icon or <code>null</code> if there is no such resource.
+	 */
+	public Icon getResourceIcon(String name){
+		ImageIcon icon = resourceIcons.get(name);
+		if(icon == null){
+			URL url = MDIViewRegistry.class.getResource(name);
+			if(url == null)
+				return null;
+			icon = new ImageIcon(url);
+			ImageIcon previous = resourceIcons.putIfAbsent(name, icon);
+			if(previous != null)
+				icon = previous;
+		}
+		return icon;
+	}
+
+	/**
+	 * Gives the <code>SmallNumberIcon</code> that shows <code>number</code>
+	 * in <code>font</code> and <code>color</code>. The icon is painted once
+	 * and shared by all frames.
+	 * @param number the number to show.
+	 * @param font the font of the number.
+	 * @param color the color of the number.
+	 * @return the icon.
+	 */
+	public Icon getNumberIcon(int number, Font font, Color color){
+		List<Object> key = Arrays.asList(Integer.valueOf(number), font, color);
+		Icon icon = numberIcons.get(key);
+		if(icon == null){
+			icon = new SmallNumberIcon(number, font, color);
+			Icon previous = numberIcons.putIfAbsent(key, icon);
+			if(previous != null)
+				icon = previous;
+		}
+		return icon;
+	}
+
+	/** Gives the registered frame of <code>view</code>. */
+	private MDIFrame frameOf(MDIView view){
+		MDIFrame mdiFrame = view.getMdiFrame();
+		if(!frames.contains(mdiFrame) || !(mdiFrame.getViews().contains(view) || mdiFrame.isDetached(view)))
+			throw new IllegalArgumentException("No registered MDIFrame contains the specified view");
+		return mdiFrame;
+	}
+
+	/** Gives the views of <code>mdiFrame</code> including the detached views. */
+	private static List<MDIView> viewsOf(MDIFrame mdiFrame){
+		List<?> frameViews = mdiFrame.getViews();
+		List<MDIView> views = new ArrayList<MDIView>(frameViews.size());
+		for(int i=0; i<frameViews.size(); i++){
+			views.add((MDIView)frameViews.get(i));
+		}
+		views.addAll(mdiFrame.getDetachedViews());
+		return views;
+	}
+}
@@ -0,0 +1,126 @@
+package org.aeliamdi;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Registration of a <code>MDIFrameListener</code> or <code>MDIViewListener</code>
+ * that does not keep the listener alive. It forwards the events to the
+ * listener as long as the listener is reachable from elsewhere; the first
+ * event after the listener was garbage collected removes the registration
+ * from its <code>MDIFrame</code> or <code>MDIView</code>, and so do later
+ * registrations on the same list.
+ * @see MDIFrame#addWeakMDIFrameListener(MDIFrameListener)
+ * @see MDIView#addWeakMDIViewListener(MDIViewListener, int)
+ */
+final class MDIWeakListener implements MDIFrameListener, MDIViewListener {
+	private final WeakReference<Object> listener;
+
+	/** The <code>MDIFrame</code> or <code>MDIView</code> the listener is registered with. */
+	private final Object owner;
+
+	MDIWeakListener(MDIFrameListener listener, MDIFrame owner){
+		this.listener = new WeakReference<Object>(listener);
+		this.owner = owner;
+	}
+
+	MDIWeakListener(MDIViewListener listener, MDIView owner){
+		this.listener = new WeakReference<Object>(listener);
+		this.owner = owner;
+	}
+
+	/**
+	 * Gives the listener or <code>null</code> if it was garbage collected.
+	 */
+	Object get(){
+		return listener.get();
+	}
+
+	/**
+	 * Returns whether the listener was garbage collected.
+	 */
+	boolean isCleared(){
+		return listener.get() == null;
+	}
+
+	/**
+	 * Returns whether this is the registration of <code>l</code>.
+	 */
+	boolean isFor(Object l){
+		return l != null && listener.get() == l;
+	}
+
+	/**
+	 * Gives the listener of <code>l</code> if it is a weak registration,
+	 * <code>l</code> otherwise.
+	 */
+	static Object unwrap(Object l){
+		return l instanceof MDIWeakListener ? ((MDIWeakListener)l).get() : l;
+	}
+
+	public void viewPaneChanged(MDIFrameEvent e){
+		MDIFrameListener l = (MDIFrameListener)listener.get();
+		if(l != null)
+			l.viewPaneChanged(e);
+		else
+			((MDIFrame)owner).removeMDIFrameListener(this);
+	}
+
+	/**
+	 * Gives the view listener or removes this registration if it was
+	 * garbage collected.
+	 */
+	private MDIViewListener viewListener(){
+		MDIViewListener l = (MDIViewListener)listener.get();
+		if(l == null)
+			((MDIView)owner).removeMDIViewListener(this);
+		return l;
+	}
+
+	public void MDIViewActivated(MDIViewEvent e){
+		MDIViewListener l = viewListener();
+		if(l != null)
+			l.MDIViewActivated(e);
+	}
+
+	public void MDIViewDeactivated(MDIViewEvent e){
+		MDIViewListener l = viewListener();
+		if(l != null)
+			l.MDIViewDeactivated(e);
+	}
+
+	public void MDIViewOpened(MDIViewEvent e){
+		MDIViewListener l = viewListener();
+		if(l != null)
+			l.MDIViewOpened(e);
+	}
+
+	public void MDIViewClosed(MDIViewEvent e){
+		MDIViewListener l = viewListener();
+		if(l != null)
+			l.MDIViewClosed(e);
+	}
+
+	public void MDIViewIconified(MDIViewEvent e){
+		MDIViewListener l = viewListener();
+		if(l != null)
+			l.MDIViewIconified(e);
+	}
+
+	public void MDIViewRestored(MDIViewEvent e){
+		MDIViewListener l = viewListener();
+		if(l != null)
+			l.MDIViewRestored(e);
+	}
+
+	public void MDIViewMaximized(MDIViewEvent e){
+		MDIViewListener l = viewListener();
+		if(l != null)
+			l.MDIViewMaximized(e);
+	}
+
+	public void MDIViewClosing(MDIViewEvent e){
+		MDIViewListener l = viewListener();
+		if(l != null)
+			l.MDIViewClosing(e);
+	}
+}
@@ -1,7 +1,6 @@
 package org.aeliamdi;
 
 import ca.guydavis.swing.desktop.WindowPositioner;
-import org.aeliamdi.util.SmallNumberIcon;
 
 import javax.swing.*;
 import java.awt.*;
@@ -194,7 +193,12 @@ public class MDIWindowsMenu extends JMenu implements ContainerListener {
                 public void actionPerformed(@SuppressWarnings("unused")
                 ActionEvent e) {
 	                setTabbed( false );
-                    cascade();
+                    long start = mdiFrame.beginOperation( MDIOperation.CASCADE );
+                    try {
+                        cascade();
+                    } finally {
+                        mdiFrame.endOperation( start );
+                    }
                 }
             };
             break;
@@ -205,7 +209,12 @@ public class MDIWindowsMenu extends JMenu implements ContainerListener {
                 public void actionPerformed(@SuppressWarnings("unused")
                 ActionEvent e) {
 	                setTabbed( false );
-                    tile();
+                    long start = mdiFrame.beginOperation( MDIOperation.TILE );
+                    try {
+                        tile();
+                    } finally {
+                        mdiFrame.endOperation( start );
+                    }
                 }
             };
             break;
@@ -216,7 +225,12 @@ public class MDIWindowsMenu extends JMenu implements ContainerListener {
                 public void actionPerformed(@SuppressWarnings("unused")
                 ActionEvent e) {
 	                setTabbed( false );
-                    tileHorizontally();
+                    long start = mdiFrame.beginOperation( MDIOperation.TILE );
+                    try {
+                        tileHorizontally();
+                    } finally {
+                        mdiFrame.endOperation( start );
+                    }
                 }
             };
             break;
@@ -227,7 +241,12 @@ public class MDIWindowsMenu extends JMenu implements ContainerListener {
                 public void actionPerformed(@SuppressWarnings("unused")
                 ActionEvent e) {
 	                setTabbed( false );
-                    tileVertically();
+                    long start = mdiFrame.beginOperation( MDIOperation.TILE );
+                    try {
+                        tileVertically();
+                    } finally {
+                        mdiFrame.endOperation( start );
+                    }
                 }
             };
             break;
@@ -540,6 +559,9 @@ public class MDIWindowsMenu extends JMenu implements ContainerListener {
             frame.setLocation(position);
         }
 
+        if (mdiFrame.isBatchUpdating())
+            return; // updated once at the end of the batch
+
         updateWindowsList();
 	    updateStaticMenuItems();
     }
@@ -550,6 +572,9 @@ public class MDIWindowsMenu extends JMenu implements ContainerListener {
      * @see java.awt.event.ContainerListener#componentRemoved(java.awt.event.ContainerEvent)
      */
     public void componentRemoved( @SuppressWarnings("unused") ContainerEvent e ) {
+        if (mdiFrame.isBatchUpdating())
+            return;
+
         updateWindowsList();
 	    updateStaticMenuItems();
     }
@@ -559,6 +584,15 @@ public class MDIWindowsMenu extends JMenu implements ContainerListener {
      * of the menu.
      */
     private void updateWindowsList() {
+        long start = mdiFrame.beginOperation( MDIOperation.UPDATE_WINDOWS_LIST );
+        try {
+            rebuildWindowsList();
+        } finally {
+            mdiFrame.endOperation( start );
+        }
+    }
+
+    private void rebuildWindowsList() {
 
         List<MDIView> views = new ArrayList<MDIView>();
         for( MDIView view : (List<MDIView>)mdiFrame.getViews() )
@@ -578,7 +612,7 @@ public class MDIWindowsMenu extends JMenu implements ContainerListener {
 		int i = 1;
 		ButtonGroup group = new ButtonGroup();
 		for (final MDIView view : views) {
-			JCheckBoxMenuItem item = new JCheckBoxMenuItem( view.getTitle(), new SmallNumberIcon( i, UIManager.getFont("Label.font"), UIManager.getColor("Label.foreground") ) );
+			JCheckBoxMenuItem item = new JCheckBoxMenuItem( view.getTitle(), MDIViewRegistry.getInstance().getNumberIcon( i, UIManager.getFont("Label.font"), UIManager.getColor("Label.foreground") ) );
 
 			if (view.isIconified()) {
 				item.setSelected(false);
@@ -620,6 +654,14 @@ public class MDIWindowsMenu extends JMenu implements ContainerListener {
 		}
     }
 
+    /**
+     * Returns whether this menu lists <code>view</code>.
+     * <p><b>Note: This Method is for internal purpose olny</b>
+     */
+    boolean retains( MDIView view ) {
+        return menusForViews.containsKey( view );
+    }
+
     /**
      * Toggle the enabled state of the static menu items depending on the
      * selected frame.
@@ -695,6 +737,8 @@ public class MDIWindowsMenu extends JMenu implements ContainerListener {
 		@Override
 		public void viewPaneChanged( MDIFrameEvent e )
 		{
+			if( mdiFrame.isBatchUpdating() )
+				return;
 			updateWindowsList();
 			updateStaticMenuItems();
 		}
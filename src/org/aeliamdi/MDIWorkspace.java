@@ -0,0 +1,494 @@
+package org.aeliamdi;
+
+import java.awt.Rectangle;
+import java.beans.PropertyVetoException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.JInternalFrame;
+import javax.swing.SwingUtilities;
+
+/**
+ * A snapshot of the layout of a <code>MDIFrame</code>: the view pane, the
+ * views in their order, the active view and for every view its bounds and
+ * state on the desktop. The content of the views is not part of the
+ * snapshot, a view is saved with its factory id and persistence key and
+ * recreated by a <code>MDIViewFactory</code> when the workspace is restored.
+ * Views without persistence key are not saved. Detached views are saved
+ * with the screen bounds of their window and detached again on restore.
+ * Readers of older versions restore them as normal views.
+ * <pre>
+ * MDIWorkspace.save(mdiFrame, path);
+ * ...
+ * MDIWorkspace.read(path).restore(mdiFrame, factory);
+ * </pre>
+ * The snapshot is stored in a compact, versioned binary format. It is
+ * encoded into one buffer and written with a single channel write to a
+ * temporary file that then replaces the target, so a crash while saving
+ * leaves the previous workspace intact. Restoring adds all views in one
+ * batch, so the cost is dominated by the factory; factories should create
+ * expensive content lazily.
+ * <p>
+ * <code>capture()</code> and <code>restore()</code> must be called on the
+ * event dispatch thread, <code>write()</code> and <code>read()</code> may be
+ * called on any thread.
+ * @see MDIView#setPersistenceKey(String)
+ */
+public class MDIWorkspace {
+	/** The version of the format written by this class. */
+	public static final int VERSION = 1;
+
+	/** Marks a workspace file, "AMDW". */
+	private static final int MAGIC = 0x414D4457;
+
+	private static final byte PANE_TABS = 0;
+
+	private static final byte PANE_DESKTOP = 1;
+
+	private static final int FLAG_BOUNDS = 1;
+
+	private static final int FLAG_ICONIFIED = 2;
+
+	/** The bounds of the entry are the screen bounds of its detached window. */
+	private static final int FLAG_DETACHED = 4;
+
+	/** Either <code>MDIFrame.TABS</code> or <code>MDIFrame.DESKTOP</code>. */
+	private final String viewPane;
+
+	/** The index of the active view in <code>entries</code>, -1 if none. */
+	private final int activeIndex;
+
+	private final List<ViewEntry> entries;
+
+	MDIWorkspace(String viewPane, int activeIndex, List<ViewEntry> entries){
+		this.viewPane = viewPane;
+		this.activeIndex = activeIndex;
+		this.entries = Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Takes a snapshot of the layout of <code>mdiFrame</code>.
+	 * @param mdiFrame the frame.
+	 * @return the snapshot.
+	 */
+	public static MDIWorkspace capture(MDIFrame mdiFrame){
+		String pane = mdiFrame.getCurrentViewPane();
+		boolean desktop = pane == MDIFrame.DESKTOP;
+		MDIView activeView = mdiFrame.getActiveView();
+		List<?> views = mdiFrame.getViews();
+		List<ViewEntry> entries = new ArrayList<ViewEntry>(views.size());
+		int activeIndex = -1;
+		for(int i=0; i<views.size(); i++){
+			MDIView view = (MDIView)views.get(i);
+			if(view.getPersistenceKey() == null)
+				continue;
+			if(view == activeView)
+				activeIndex = entries.size();
+			entries.add(describe(view, desktop));
+		}
+		List<MDIView> detached = mdiFrame.getDetachedViews();
+		for(int i=0; i<detached.size(); i++){
+			MDIView view = detached.get(i);
+			if(view.getPersistenceKey() != null)
+				entries.add(describe(view, desktop));
+		}
+		return new MDIWorkspace(desktop ? MDIFrame.DESKTOP : MDIFrame.TABS, activeIndex, entries);
+	}
+
+	/**
+	 * Describes the current layout of <code>view</code>.
+	 * @param desktop whether the frame of the view shows the desktop.
+	 */
+	static ViewEntry describe(MDIView view, boolean desktop){
+		MDIDetachedWindow window = view.getMdiFrame() == null ? null : view.getMdiFrame().getDetachedWindow(view);
+		if(window != null)
+			return new ViewEntry(view.getFactoryId(), view.getPersistenceKey(), view.getTitle(),
+					window.getBounds(), false, view.getState(), true);
+		Rectangle bounds = view.getFrameBounds();
+		boolean iconified = view.wasIconified();
+		if(desktop){
+			// the fields of the view are only updated on a pane switch
+			JInternalFrame frame = findFrame(view);
+			if(frame != null){
+				iconified = frame.isIcon();
+				bounds = frame.isIcon() || frame.isMaximum() ? frame.getNormalBounds() : frame.getBounds();
+			}
+		}
+		return new ViewEntry(view.getFactoryId(), view.getPersistenceKey(), view.getTitle(),
+				bounds == null ? null : new Rectangle(bounds), iconified, view.getState(), false);
+	}
+
+	/**
+	 * Takes a snapshot of the layout of <code>mdiFrame</code> and writes it to <code>path</code>.
+	 * @param mdiFrame the frame.
+	 * @param path the file to write.
+	 * @throws IOException if the file could not be written.
+	 */
+	public static void save(MDIFrame mdiFrame, Path path) throws IOException {
+		capture(mdiFrame).write(path);
+	}
+
+	/**
+	 * Writes this snapshot to <code>path</code>, replacing the file if it exists.
+	 * @param path the file to write.
+	 * @throws IOException if the file could not be written.
+	 */
+	public void write(Path path) throws IOException {
+		ByteBuffer buffer = encode();
+		Path absolute = path.toAbsolutePath();
+		Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+		FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		try{
+			while(buffer.hasRemaining()){
+				channel.write(buffer);
+			}
+			channel.force(false);
+		}finally{
+			channel.close();
+		}
+		try{
+			Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}catch(AtomicMoveNotSupportedException ex){
+			Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Reads a snapshot written by <code>write()</code>.
+	 * @param path the file to read.
+	 * @return the snapshot.
+	 * @throws IOException if the file could not be read or is not a
+	 * 			workspace of a supported version.
+	 */
+	public static MDIWorkspace read(Path path) throws IOException {
+		ByteBuffer buffer;
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try{
+			long size = channel.size();
+			if(size > Integer.MAX_VALUE)
+				throw new IOException("Not a workspace: " + path);
+			buffer = ByteBuffer.allocate((int)size);
+			while(buffer.hasRemaining()){
+				if(channel.read(buffer) < 0)
+					break;
+			}
+		}finally{
+			channel.close();
+		}
+		buffer.flip();
+		try{
+			return decode(buffer);
+		}catch(RuntimeException ex){
+			// BufferUnderflowException or IllegalArgumentException of a damaged file
+			throw new IOException("Damaged workspace: " + path, ex);
+		}
+	}
+
+	/**
+	 * Recreates the views of this snapshot with <code>factory</code> and adds
+	 * them to <code>mdiFrame</code> in one batch. If the frame has no views
+	 * yet it is switched to the saved view pane first. The views keep their
+	 * saved order, bounds and iconified state, and the saved active view is
+	 * activated. Views that were detached are detached again with the
+	 * saved bounds of their windows.
+	 * <p>
+	 * If the factory creates deferred views, for example a 
+	 * <code>MDIViewFactoryRegistry</code>, only the content of the views the
+	 * user can see is created: the selected tab, or the frames on the desktop
+	 * that are not iconified. The other views are realized when they are 
+	 * activated for the first time.
+	 * @param mdiFrame the frame to add the views to.
+	 * @param factory creates the views.
+	 * @return the added views.
+	 */
+	public List<MDIView> restore(MDIFrame mdiFrame, MDIViewFactory factory){
+		// changeView() of an empty frame only switches the pane and notifies the listeners
+		if(mdiFrame.getViews().isEmpty() && mdiFrame.getCurrentViewPane() != viewPane)
+			mdiFrame.changeView();
+		List<MDIView> views = new ArrayList<MDIView>(entries.size());
+		List<ViewEntry> restored = new ArrayList<ViewEntry>(entries.size());
+		MDIView activeView = null;
+		for(int i=0; i<entries.size(); i++){
+			ViewEntry entry = entries.get(i);
+			MDIView view = factory.createView(mdiFrame, entry.getFactoryId(), entry.getPersistenceKey(), entry.getTitle());
+			if(view == null)
+				continue;
+			if(view.getFactoryId() == null)
+				view.setFactoryId(entry.getFactoryId());
+			if(view.getPersistenceKey() == null)
+				view.setPersistenceKey(entry.getPersistenceKey());
+			if(view.getTitle() == null)
+				view.setInitTitle(entry.getTitle());
+			if(i == activeIndex)
+				activeView = view;
+			views.add(view);
+			restored.add(entry);
+		}
+		mdiFrame.addInternalViews(views, activeView);
+
+		boolean desktop = mdiFrame.getCurrentViewPane() == MDIFrame.DESKTOP;
+		for(int i=0; i<views.size(); i++){
+			MDIView view = views.get(i);
+			ViewEntry entry = restored.get(i);
+			if(entry.isDetached()){
+				mdiFrame.detachView(view, entry.getBounds());
+			}else if(desktop){
+				JInternalFrame frame = findFrame(view);
+				if(frame == null)
+					continue;
+				if(entry.getBounds() != null)
+					frame.setBounds(entry.getBounds());
+				try{
+					if(entry.isIconified())
+						frame.setIcon(true);
+					else if(viewPane == MDIFrame.DESKTOP && entry.getState() == MDIView.MAXIMIZED)
+						frame.setMaximum(true);
+				}catch(PropertyVetoException pve){
+				}
+				//the frames on the desktop are visible so they need their content
+				if(!frame.isIcon())
+					view.ensureContent();
+			}else{
+				// used when the frame is switched to the desktop
+				if(entry.getBounds() != null)
+					view.setFrameBounds(entry.getBounds());
+				view.setWasIconified(entry.isIconified());
+			}
+		}
+		if(activeView != null && desktop)
+			mdiFrame.setActiveView(activeView);
+		return views;
+	}
+
+	/**
+	 * Gives the saved view pane.
+	 * @return <code>MDIFrame.TABS</code> or <code>MDIFrame.DESKTOP</code>.
+	 */
+	public String getViewPane() {
+		return viewPane;
+	}
+
+	/**
+	 * Gives the index of the saved active view.
+	 * @return the index in <code>getViews()</code> or -1 if no view was active.
+	 */
+	public int getActiveIndex() {
+		return activeIndex;
+	}
+
+	/**
+	 * Gives the saved views in their order.
+	 * @return an unmodifiable list of the saved views.
+	 */
+	public List<ViewEntry> getViews() {
+		return entries;
+	}
+
+	private ByteBuffer encode(){
+		int count = entries.size();
+		byte[][][] strings = new byte[count][][];
+		int size = 4 + 2 + 1 + 4 + 4;
+		for(int i=0; i<count; i++){
+			strings[i] = encodeStrings(entries.get(i));
+			size += entrySize(entries.get(i), strings[i]);
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		buffer.putInt(MAGIC);
+		buffer.putShort((short)VERSION);
+		buffer.put(viewPane == MDIFrame.DESKTOP ? PANE_DESKTOP : PANE_TABS);
+		buffer.putInt(activeIndex);
+		buffer.putInt(count);
+		for(int i=0; i<count; i++){
+			putEntry(buffer, entries.get(i), strings[i]);
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static MDIWorkspace decode(ByteBuffer buffer) throws IOException {
+		if(buffer.remaining() < 4 || buffer.getInt() != MAGIC)
+			throw new IOException("Not a workspace");
+		int version = buffer.getShort();
+		if(version > VERSION || version < 1)
+			throw new IOException("Unsupported workspace version " + version);
+		String viewPane = buffer.get() == PANE_DESKTOP ? MDIFrame.DESKTOP : MDIFrame.TABS;
+		int activeIndex = buffer.getInt();
+		int count = buffer.getInt();
+		if(count < 0 || activeIndex < -1 || activeIndex >= count)
+			throw new IOException("Damaged workspace");
+		List<ViewEntry> entries = new ArrayList<ViewEntry>(Math.min(count, 1024));
+		for(int i=0; i<count; i++){
+			entries.add(getEntry(buffer));
+		}
+		return new MDIWorkspace(viewPane, activeIndex, entries);
+	}
+
+	/** Encodes the factory id, persistence key and title of <code>entry</code>. */
+	static byte[][] encodeStrings(ViewEntry entry){
+		return new byte[][]{
+			encodeString(entry.getFactoryId()),
+			encodeString(entry.getPersistenceKey()),
+			encodeString(entry.getTitle())
+		};
+	}
+
+	/** Gives the number of bytes <code>putEntry()</code> writes for <code>entry</code>. */
+	static int entrySize(ViewEntry entry, byte[][] strings){
+		int size = 3 * 4 + 1 + 4;
+		for(int i=0; i<strings.length; i++){
+			if(strings[i] != null)
+				size += strings[i].length;
+		}
+		if(entry.bounds != null)
+			size += 4 * 4;
+		return size;
+	}
+
+	/**
+	 * Puts <code>entry</code> with the strings encoded by <code>encodeStrings()</code>.
+	 */
+	static void putEntry(ByteBuffer buffer, ViewEntry entry, byte[][] strings){
+		for(int i=0; i<strings.length; i++){
+			putString(buffer, strings[i]);
+		}
+		Rectangle bounds = entry.bounds;
+		int flags = 0;
+		if(bounds != null)
+			flags |= FLAG_BOUNDS;
+		if(entry.isIconified())
+			flags |= FLAG_ICONIFIED;
+		if(entry.isDetached())
+			flags |= FLAG_DETACHED;
+		buffer.put((byte)flags);
+		buffer.putInt(entry.getState());
+		if(bounds != null){
+			buffer.putInt(bounds.x);
+			buffer.putInt(bounds.y);
+			buffer.putInt(bounds.width);
+			buffer.putInt(bounds.height);
+		}
+	}
+
+	/** Reads an entry written by <code>putEntry()</code>. */
+	static ViewEntry getEntry(ByteBuffer buffer){
+		String factoryId = getString(buffer);
+		String key = getString(buffer);
+		String title = getString(buffer);
+		int flags = buffer.get();
+		int state = buffer.getInt();
+		Rectangle bounds = null;
+		if((flags & FLAG_BOUNDS) != 0)
+			bounds = new Rectangle(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+		return new ViewEntry(factoryId, key, title, bounds, (flags & FLAG_ICONIFIED) != 0, state,
+				(flags & FLAG_DETACHED) != 0 && bounds != null);
+	}
+
+	static byte[] encodeString(String s){
+		return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/** Puts the length of <code>bytes</code>, -1 for <code>null</code>, followed by the bytes. */
+	static void putString(ByteBuffer buffer, byte[] bytes){
+		if(bytes == null){
+			buffer.putInt(-1);
+		}else{
+			buffer.putInt(bytes.length);
+			buffer.put(bytes);
+		}
+	}
+
+	static String getString(ByteBuffer buffer){
+		int length = buffer.getInt();
+		if(length < 0)
+			return null;
+		if(length > buffer.remaining())
+			throw new IllegalArgumentException("string exceeds the workspace");
+		String s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+		buffer.position(buffer.position() + length);
+		return s;
+	}
+
+	/** Gives the internal frame that shows <code>view</code> on the desktop or <code>null</code>. */
+	private static JInternalFrame findFrame(MDIView view){
+		return (JInternalFrame)SwingUtilities.getAncestorOfClass(JInternalFrame.class, view);
+	}
+
+	/**
+	 * A view saved in a <code>MDIWorkspace</code>.
+	 */
+	public static final class ViewEntry {
+		private final String factoryId;
+
+		private final String persistenceKey;
+
+		private final String title;
+
+		private final Rectangle bounds;
+
+		private final boolean iconified;
+
+		private final int state;
+
+		private final boolean detached;
+
+		ViewEntry(String factoryId, String persistenceKey, String title, Rectangle bounds, boolean iconified, int state, boolean detached){
+			this.factoryId = factoryId;
+			this.persistenceKey = persistenceKey;
+			this.title = title;
+			this.bounds = bounds;
+			this.iconified = iconified;
+			this.state = state;
+			this.detached = detached;
+		}
+
+		/** @return the id of the factory that recreates the view. */
+		public String getFactoryId() {
+			return factoryId;
+		}
+
+		/** @return the persistence key of the view. */
+		public String getPersistenceKey() {
+			return persistenceKey;
+		}
+
+		/** @return the title of the view. */
+		public String getTitle() {
+			return title;
+		}
+
+		/** 
+		 * @return a copy of the normal bounds of the view on the desktop, the
+		 * 			screen bounds of the window of a detached view, or <code>null</code>.
+		 */
+		public Rectangle getBounds() {
+			return bounds == null ? null : new Rectangle(bounds);
+		}
+
+		/** @return whether the view was iconified on the desktop. */
+		public boolean isIconified() {
+			return iconified;
+		}
+
+		/** @return the <code>MDIView</code> state, for example <code>MDIView.MAXIMIZED</code>. */
+		public int getState() {
+			return state;
+		}
+
+		/** @return whether the view was detached into its own window. */
+		public boolean isDetached() {
+			return detached;
+		}
+	}
+}
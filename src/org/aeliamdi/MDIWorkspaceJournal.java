@@ -0,0 +1,539 @@
+package org.aeliamdi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves the workspace of a <code>MDIFrame</code> continuously, so that it
+ * can be recovered after a crash.
+ * <p>
+ * Instead of writing the whole workspace on every change, every change of
+ * a view is appended to a journal: views opened, closed, activated,
+ * iconified, restored, maximized, renamed, detached or attached, and moved
+ * or resized on the desktop or in their detached windows, as well as view
+ * pane switches. Recording a change only encodes
+ * a small record on the event dispatch thread. A background thread writes
+ * the records in batches every <code>flushIntervalMillis</code> and, after
+ * <code>compactThreshold</code> records, compacts the journal into a
+ * <code>MDIWorkspace</code> snapshot and truncates it. The snapshot is built
+ * from the records, so compaction does not touch the event dispatch thread.
+ * <pre>
+ * MDIWorkspace workspace = MDIWorkspaceJournal.recover(snapshotPath, journalPath);
+ * if(workspace != null)
+ *     workspace.restore(mdiFrame, factory);
+ * MDIWorkspaceJournal journal = new MDIWorkspaceJournal(mdiFrame, snapshotPath, journalPath);
+ * journal.start();
+ * ...
+ * journal.stop();
+ * </pre>
+ * <p>
+ * <code>stop()</code> returns at once, the last records are written and
+ * the journal is compacted in the background. Wait on the returned
+ * <code>Future</code> off the event dispatch thread, for example in a
+ * shutdown hook, if the files must be complete before the application
+ * exits.
+ * <p>
+ * Like <code>MDIWorkspace</code> only views with a persistence key are saved.
+ * <code>start()</code> and <code>stop()</code> must be called on the event
+ * dispatch thread.
+ * @see MDIView#setPersistenceKey(String)
+ */
+public class MDIWorkspaceJournal {
+	/** Default interval in which the records are written. */
+	public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+	/** Default number of records after which the journal is compacted. */
+	public static final int DEFAULT_COMPACT_THRESHOLD = 1000;
+
+	/** Marks a journal file, "AMDJ". */
+	private static final int MAGIC = 0x414D444A;
+
+	private static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 4 + 2;
+
+	/** A view opened or changed, followed by its <code>MDIWorkspace</code> entry. */
+	private static final byte RECORD_VIEW = 1;
+
+	/** A view closed, followed by its persistence key. */
+	private static final byte RECORD_CLOSE = 2;
+
+	/** A view activated, followed by its persistence key. */
+	private static final byte RECORD_ACTIVATE = 3;
+
+	/** The view pane switched, followed by a byte, 1 for <code>MDIFrame.DESKTOP</code>. */
+	private static final byte RECORD_PANE = 4;
+
+	private final MDIFrame mdiFrame;
+
+	private final Path snapshotPath;
+
+	private final Path journalPath;
+
+	private final long flushIntervalMillis;
+
+	private final int compactThreshold;
+
+	/** The views of the frame that are in the journal. Only used on the event dispatch thread. */
+	private final Set<MDIView> journaledViews = Collections.newSetFromMap(new IdentityHashMap<MDIView, Boolean>());
+
+	/** The records waiting to be written. Guarded by <code>itself</code>. */
+	private final List<ByteBuffer> pending = new ArrayList<ByteBuffer>();
+
+	/** The workspace as written so far. Only used on the journal thread. */
+	private Model model;
+
+	/** Only used on the journal thread. */
+	private FileChannel channel;
+
+	/** Number of records in the journal file. Only used on the journal thread. */
+	private int journalRecords;
+
+	private volatile IOException lastError;
+
+	/** The journal thread or <code>null</code> if stopped. */
+	private ScheduledExecutorService executor;
+
+	/** The final write of the last <code>stop()</code>, <code>null</code> if never stopped. */
+	private Future<?> stopped;
+
+	private final MDIFrameListener paneListener = new MDIFrameAdapter(){
+		public void viewPaneChanged(MDIFrameEvent e){
+			// the views change their state and bounds without events on a switch
+			if(e.getNewViewPane() != null)
+				recordPane(e.getNewViewPane() == MDIFrame.DESKTOP);
+		}
+	};
+
+	/**
+	 * Constructs a journal with default settings.
+	 * @param mdiFrame the frame whose workspace is saved.
+	 * @param snapshotPath the file of the compacted workspace.
+	 * @param journalPath the file of the journal.
+	 */
+	public MDIWorkspaceJournal(MDIFrame mdiFrame, Path snapshotPath, Path journalPath){
+		this(mdiFrame, snapshotPath, journalPath, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_COMPACT_THRESHOLD);
+	}
+
+	/**
+	 * Constructs a journal.
+	 * @param mdiFrame the frame whose workspace is saved.
+	 * @param snapshotPath the file of the compacted workspace.
+	 * @param journalPath the file of the journal.
+	 * @param flushIntervalMillis the interval in which the records are written.
+	 * @param compactThreshold the number of records after which the journal is compacted.
+	 */
+	public MDIWorkspaceJournal(MDIFrame mdiFrame, Path snapshotPath, Path journalPath, long flushIntervalMillis, int compactThreshold){
+		if(mdiFrame == null || snapshotPath == null || journalPath == null)
+			throw new IllegalArgumentException("mdiFrame and the paths should not be null");
+		if(flushIntervalMillis < 1 || compactThreshold < 1)
+			throw new IllegalArgumentException("flushIntervalMillis and compactThreshold must be positive");
+		this.mdiFrame = mdiFrame;
+		this.snapshotPath = snapshotPath;
+		this.journalPath = journalPath;
+		this.flushIntervalMillis = flushIntervalMillis;
+		this.compactThreshold = compactThreshold;
+	}
+
+	/**
+	 * Recovers the workspace saved by a journal: the snapshot with the
+	 * records of the journal applied. A record that was cut short by a crash
+	 * ends the journal.
+	 * @param snapshotPath the file of the compacted workspace.
+	 * @param journalPath the file of the journal.
+	 * @return the workspace or <code>null</code> if neither file exists.
+	 * @throws IOException if a file could not be read or is damaged.
+	 */
+	public static MDIWorkspace recover(Path snapshotPath, Path journalPath) throws IOException {
+		boolean hasSnapshot = Files.exists(snapshotPath);
+		boolean hasJournal = Files.exists(journalPath);
+		if(!hasSnapshot && !hasJournal)
+			return null;
+		Model model = new Model(hasSnapshot ? MDIWorkspace.read(snapshotPath) : null);
+		if(hasJournal){
+			ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(journalPath));
+			if(buffer.remaining() >= HEADER_SIZE){
+				if(buffer.getInt() != MAGIC || buffer.getShort() != VERSION)
+					throw new IOException("Not a workspace journal: " + journalPath);
+				model.replay(buffer);
+			}
+		}
+		return model.toWorkspace();
+	}
+
+	/**
+	 * Starts journaling. The current workspace of the frame is written as
+	 * snapshot and the journal is started empty. Calling this method on a
+	 * running journal has no effect.
+	 */
+	public synchronized void start(){
+		if(executor != null)
+			return;
+		final MDIWorkspace initial = MDIWorkspace.capture(mdiFrame);
+		journaledViews.clear();
+		List<?> views = mdiFrame.getViews();
+		for(int i=0; i<views.size(); i++){
+			MDIView view = (MDIView)views.get(i);
+			if(view.getPersistenceKey() != null)
+				journaledViews.add(view);
+		}
+		for(MDIView view : mdiFrame.getDetachedViews()){
+			if(view.getPersistenceKey() != null)
+				journaledViews.add(view);
+		}
+		synchronized(pending){
+			pending.clear();
+		}
+		lastError = null;
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, "MDIWorkspaceJournal");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		final Future<?> previous = stopped;
+		executor.execute(new Runnable(){
+			public void run(){
+				// the files are still written by the journal thread of the last stop()
+				if(previous != null){
+					try{
+						previous.get();
+					}catch(InterruptedException ex){
+						return;
+					}catch(ExecutionException ex){
+						// the last write failed, the snapshot is written again below
+					}
+				}
+				model = new Model(initial);
+				try{
+					compact();
+				}catch(IOException ex){
+					lastError = ex;
+				}
+			}
+		});
+		executor.scheduleWithFixedDelay(new Runnable(){
+			public void run(){
+				flushPending();
+			}
+		}, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+		mdiFrame.addMDIFrameListener(paneListener);
+		mdiFrame.setWorkspaceJournal(this);
+	}
+
+	/**
+	 * Stops journaling. The pending records are written and the journal is
+	 * compacted on the journal thread, so the snapshot alone holds the
+	 * workspace once the returned <code>Future</code> is done. This method 
+	 * does not wait for it, so it never blocks the event dispatch thread.
+	 * Errors of the final write are reported by <code>getLastError()</code>.
+	 * @return the final write of the journal, already done if the journal
+	 * 			was not running.
+	 */
+	public synchronized Future<?> stop(){
+		if(executor == null)
+			return stopped != null ? stopped : CompletableFuture.completedFuture(null);
+		mdiFrame.setWorkspaceJournal(null);
+		mdiFrame.removeMDIFrameListener(paneListener);
+		//the last records are taken now, a following start() records into a new list
+		final ByteBuffer[] last = takePending();
+		stopped = executor.submit(new Runnable(){
+			public void run(){
+				if(last.length > 0)
+					writeRecords(last);
+				try{
+					//a closed journal missed records since its last error
+					if(journalRecords > 0 || channel == null)
+						compact();
+				}catch(IOException ex){
+					lastError = ex;
+				}
+				closeChannel();
+			}
+		});
+		//the submitted write still runs, the periodic flush is cancelled
+		executor.shutdown();
+		executor = null;
+		journaledViews.clear();
+		return stopped;
+	}
+
+	/**
+	 * @return whether the journal is running.
+	 */
+	public synchronized boolean isRunning(){
+		return executor != null;
+	}
+
+	/**
+	 * Gives the last error that occurred while writing the journal or the
+	 * snapshot. Journaling continues after an error.
+	 * @return the error or <code>null</code>.
+	 */
+	public IOException getLastError(){
+		return lastError;
+	}
+
+	/**
+	 * Gives the number of records waiting to be written.
+	 * @return the pending record count.
+	 */
+	public int getPendingCount(){
+		synchronized(pending){
+			return pending.size();
+		}
+	}
+
+	/**
+	 * Records the event of <code>view</code>.
+	 * Called by <code>MDIView.fireMDIViewEvent()</code>.
+	 */
+	void viewEventFired(MDIView view, int eventId){
+		String key = view.getPersistenceKey();
+		if(key == null)
+			return;
+		switch(eventId){
+			case MDIViewEvent.MDIVIEW_OPENED:
+				journaledViews.add(view);
+				recordView(view);
+				break;
+			case MDIViewEvent.MDIVIEW_CLOSED:
+				if(journaledViews.remove(view))
+					recordKey(RECORD_CLOSE, key);
+				break;
+			case MDIViewEvent.MDIVIEW_ACTIVIATED:
+				if(journaledViews.contains(view))
+					recordKey(RECORD_ACTIVATE, key);
+				break;
+			case MDIViewEvent.MDIVIEW_ICONIFIED:
+			case MDIViewEvent.MDIVIEW_RESTORED:
+			case MDIViewEvent.MDIVIEW_MAXIMIZED:
+				viewChanged(view);
+				break;
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * Records the title, state and bounds of <code>view</code> if it is in the journal.
+	 * Called when a view is renamed, moved or resized.
+	 */
+	void viewChanged(MDIView view){
+		if(journaledViews.contains(view))
+			recordView(view);
+	}
+
+	private void recordView(MDIView view){
+		MDIWorkspace.ViewEntry entry = MDIWorkspace.describe(view, mdiFrame.getCurrentViewPane() == MDIFrame.DESKTOP);
+		byte[][] strings = MDIWorkspace.encodeStrings(entry);
+		ByteBuffer record = ByteBuffer.allocate(1 + MDIWorkspace.entrySize(entry, strings));
+		record.put(RECORD_VIEW);
+		MDIWorkspace.putEntry(record, entry, strings);
+		append(record);
+	}
+
+	private void recordKey(byte type, String key){
+		byte[] bytes = MDIWorkspace.encodeString(key);
+		ByteBuffer record = ByteBuffer.allocate(1 + 4 + bytes.length);
+		record.put(type);
+		MDIWorkspace.putString(record, bytes);
+		append(record);
+	}
+
+	private void recordPane(boolean desktop){
+		ByteBuffer record = ByteBuffer.allocate(2);
+		record.put(RECORD_PANE);
+		record.put((byte)(desktop ? 1 : 0));
+		append(record);
+		Iterator<MDIView> it = journaledViews.iterator();
+		while(it.hasNext()){
+			recordView(it.next());
+		}
+		MDIView activeView = mdiFrame.getActiveView();
+		if(activeView != null && journaledViews.contains(activeView))
+			recordKey(RECORD_ACTIVATE, activeView.getPersistenceKey());
+	}
+
+	private void append(ByteBuffer record){
+		record.flip();
+		synchronized(pending){
+			pending.add(record);
+		}
+	}
+
+	/** Writes the pending records and compacts the journal if it is due. Runs on the journal thread. */
+	private void flushPending(){
+		ByteBuffer[] buffers = takePending();
+		if(buffers.length > 0)
+			writeRecords(buffers);
+	}
+
+	/** Removes the records waiting to be written. */
+	private ByteBuffer[] takePending(){
+		synchronized(pending){
+			ByteBuffer[] buffers = pending.toArray(new ByteBuffer[pending.size()]);
+			pending.clear();
+			return buffers;
+		}
+	}
+
+	/**
+	 * Appends <code>buffers</code> to the journal. After an error the journal
+	 * was closed and may miss records, so the model, which holds all records,
+	 * is compacted instead. Runs on the journal thread.
+	 */
+	private void writeRecords(ByteBuffer[] buffers){
+		for(int i=0; i<buffers.length; i++){
+			model.replay(buffers[i].duplicate());
+		}
+		try{
+			if(channel == null){
+				compact();
+				return;
+			}
+			long remaining = 0;
+			for(int i=0; i<buffers.length; i++){
+				remaining += buffers[i].remaining();
+			}
+			while(remaining > 0){
+				remaining -= channel.write(buffers);
+			}
+			channel.force(false);
+			journalRecords += buffers.length;
+			if(journalRecords >= compactThreshold)
+				compact();
+		}catch(IOException ex){
+			lastError = ex;
+			closeChannel();
+		}
+	}
+
+	/**
+	 * Writes the model as snapshot and empties the journal. This is the only
+	 * place the journal is opened, so its records are never dropped before
+	 * the snapshot holds them. Runs on the journal thread.
+	 */
+	private void compact() throws IOException {
+		model.toWorkspace().write(snapshotPath);
+		FileChannel channel = openChannel();
+		channel.truncate(HEADER_SIZE);
+		channel.position(HEADER_SIZE);
+		channel.force(false);
+		journalRecords = 0;
+	}
+
+	private FileChannel openChannel() throws IOException {
+		if(channel == null){
+			FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC);
+			header.putShort((short)VERSION);
+			header.flip();
+			// called by compact() only, the snapshot holds all records
+			channel.truncate(0);
+			while(header.hasRemaining()){
+				channel.write(header, HEADER_SIZE - header.remaining());
+			}
+			channel.position(HEADER_SIZE);
+			this.channel = channel;
+			journalRecords = 0;
+		}
+		return channel;
+	}
+
+	private void closeChannel(){
+		if(channel != null){
+			try{
+				channel.close();
+			}catch(IOException ex){
+				// nothing left to write
+			}
+			channel = null;
+		}
+	}
+
+	/**
+	 * The workspace the journal records are applied to. The views are kept
+	 * by persistence key in their order, so applying a record twice has no
+	 * further effect.
+	 */
+	private static class Model {
+		private boolean desktop;
+
+		private String activeKey;
+
+		private final LinkedHashMap<String, MDIWorkspace.ViewEntry> entries = new LinkedHashMap<String, MDIWorkspace.ViewEntry>();
+
+		Model(MDIWorkspace workspace){
+			if(workspace == null)
+				return;
+			desktop = workspace.getViewPane() == MDIFrame.DESKTOP;
+			List<MDIWorkspace.ViewEntry> views = workspace.getViews();
+			for(int i=0; i<views.size(); i++){
+				MDIWorkspace.ViewEntry entry = views.get(i);
+				entries.put(entry.getPersistenceKey(), entry);
+				if(i == workspace.getActiveIndex())
+					activeKey = entry.getPersistenceKey();
+			}
+		}
+
+		/** Applies the records in <code>buffer</code> up to the first incomplete one. */
+		void replay(ByteBuffer buffer){
+			try{
+				while(buffer.hasRemaining()){
+					byte type = buffer.get();
+					if(type == RECORD_VIEW){
+						MDIWorkspace.ViewEntry entry = MDIWorkspace.getEntry(buffer);
+						entries.put(entry.getPersistenceKey(), entry);
+					}else if(type == RECORD_CLOSE){
+						String key = MDIWorkspace.getString(buffer);
+						entries.remove(key);
+						if(key != null && key.equals(activeKey))
+							activeKey = null;
+					}else if(type == RECORD_ACTIVATE){
+						activeKey = MDIWorkspace.getString(buffer);
+					}else if(type == RECORD_PANE){
+						desktop = buffer.get() == 1;
+					}else{
+						// unknown record, the rest can't be read
+						return;
+					}
+				}
+			}catch(RuntimeException ex){
+				// a record cut short by a crash
+			}
+		}
+
+		MDIWorkspace toWorkspace(){
+			List<MDIWorkspace.ViewEntry> views = new ArrayList<MDIWorkspace.ViewEntry>(entries.size());
+			int activeIndex = -1;
+			for(Map.Entry<String, MDIWorkspace.ViewEntry> e : entries.entrySet()){
+				if(e.getKey().equals(activeKey))
+					activeIndex = views.size();
+				views.add(e.getValue());
+			}
+			return new MDIWorkspace(desktop ? MDIFrame.DESKTOP : MDIFrame.TABS, activeIndex, views);
+		}
+	}
+}